@@ -0,0 +1,68 @@
+package com.smartclassroom.backend.config;
+
+import com.smartclassroom.backend.model.IdGenerators;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves each id generator past the ids already in its table, so that databases created while the
+ * keys were {@code AUTO_INCREMENT} columns keep working. A generator is only ever moved forward, so
+ * this is a no-op once the generators are in use. Runs after the schema migrations and before the
+ * server accepts requests.
+ */
+@Component
+public class IdGeneratorInitializer implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorInitializer.class);
+
+    // Generator segments are named after the table they supply ids for.
+    private static final List<String> TABLES = List.of(
+            "users", "classrooms", "classroom_members", "assignments", "assignment_submissions",
+            "announcements", "chat_messages", "audit_logs", "storage_usage");
+
+    private static final String ADVANCE = "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = ?"
+            + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ? AND " + IdGenerators.VALUE_COLUMN + " < ?";
+    private static final String COUNT = "SELECT COUNT(*) FROM " + IdGenerators.TABLE
+            + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ?";
+    private static final String INSERT = "INSERT INTO " + IdGenerators.TABLE
+            + " (" + IdGenerators.SEGMENT_COLUMN + ", " + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The entity manager factory is only injected so that this runs after it, and so after the migrations.
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (String table : TABLES) {
+            advance(table);
+        }
+    }
+
+    private void advance(String table) {
+        Long next = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+        if (jdbcTemplate.update(ADVANCE, next, table, next) > 0) {
+            log.info("Moved id generator of {} to {}", table, next);
+            return;
+        }
+        Integer rows = jdbcTemplate.queryForObject(COUNT, Integer.class, table);
+        if (rows != null && rows > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT, table, next);
+        } catch (DuplicateKeyException ex) {
+            // Another instance created the row first.
+            jdbcTemplate.update(ADVANCE, next, table, next);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.smartclassroom.backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Decides per request whether its read-only transactions may use the replica. Only GET and HEAD
+ * requests may; any other request is treated as a write, runs entirely on the primary, and marks its
+ * client with a cookie that keeps the client's following reads on the primary for {@code window},
+ * so that users see their own changes even while the replica is behind.
+ * <p>
+ * The app has no authenticated principal, so "the user" is the client holding the cookie.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "read-primary-until";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!READ_METHODS.contains(request.getMethod())) {
+            // Set before the handler runs, while the response can still take headers.
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(System.currentTimeMillis() + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+            chain.doFilter(request, response);
+            return;
+        }
+        if (wroteRecently(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.allowReplicaReads();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clear();
+        }
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
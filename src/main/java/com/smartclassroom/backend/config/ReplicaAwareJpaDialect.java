@@ -0,0 +1,50 @@
+package com.smartclassroom.backend.config;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps transactions that may read from the replica from storing what they load in the second-level
+ * cache. A row read from a lagging replica would otherwise replace the current one the primary's
+ * writes left in the cache, and every instance reading it would see the old row until it expired.
+ * Such transactions still read from the cache.
+ * <p>
+ * The store mode is set as the entity manager's {@code jakarta.persistence.cache.storeMode} property:
+ * Hibernate applies that property to every find and query, so a cache mode set on the session alone
+ * would be overridden by its default of {@link CacheStoreMode#USE}.
+ */
+class ReplicaAwareJpaDialect extends HibernateJpaDialect {
+
+    static final String CACHE_STORE_MODE = "jakarta.persistence.cache.storeMode";
+
+    private record ReplicaTransactionData(Object sessionState, EntityManager entityManager,
+                                          Object previousStoreMode) {
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        Object sessionState = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || !ReplicaRoutingDataSource.replicaReadsAllowed()) {
+            return sessionState;
+        }
+        Object previousStoreMode = entityManager.getProperties().get(CACHE_STORE_MODE);
+        entityManager.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaTransactionData(sessionState, entityManager, previousStoreMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaTransactionData data) {
+            data.entityManager().setProperty(CACHE_STORE_MODE,
+                    data.previousStoreMode() != null ? data.previousStoreMode() : CacheStoreMode.USE);
+            super.cleanupTransaction(data.sessionState());
+            return;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartclassroom.backend.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica when the current thread allows it, and everything else
+ * to the primary. Replica reads are opt-in per thread (see {@link ReadYourWritesFilter}), so writes,
+ * startup, scheduled jobs and requests that just wrote never see replication lag.
+ * <p>
+ * The lookup happens when a connection is obtained, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: a transaction manager
+ * opens its connection before the transaction is marked read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> replicaReads = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    public static void allowReplicaReads() {
+        replicaReads.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        replicaReads.remove();
+    }
+
+    public static boolean replicaReadsAllowed() {
+        return Boolean.TRUE.equals(replicaReads.get());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean replica = replicaReadsAllowed()
+                && TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return replica ? Target.REPLICA : Target.PRIMARY;
+    }
+}
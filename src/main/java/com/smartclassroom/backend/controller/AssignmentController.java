@@ -4,10 +4,12 @@ import com.smartclassroom.backend.dto.assignment.AssignmentCreateRequestDTO;
 import com.smartclassroom.backend.dto.assignment.AssignmentResponseDTO;
 import com.smartclassroom.backend.dto.assignment.AssignmentStatisticsDTO;
 import com.smartclassroom.backend.dto.assignment.AssignmentUpdateRequestDTO;
+import com.smartclassroom.backend.dto.assignment.RescaleProgressDTO;
 import com.smartclassroom.backend.dto.auth.UserResponseDTO;
 import com.smartclassroom.backend.model.Assignment;
 import com.smartclassroom.backend.model.User;
 import com.smartclassroom.backend.service.AssignmentService;
+import com.smartclassroom.backend.service.MarksRescaleService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -22,6 +24,7 @@ import java.util.stream.Collectors;
 public class AssignmentController {
 
     private final AssignmentService assignmentService;
+    private final MarksRescaleService marksRescaleService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -67,6 +70,18 @@ public class AssignmentController {
                 .collect(Collectors.toList());
     }
 
+    @PostMapping("/rescale-marks")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public RescaleProgressDTO rescaleMarks(@PathVariable Long classroomId,
+                                           @RequestParam("maxMarks") Integer maxMarks) {
+        return marksRescaleService.startClassroomRescale(classroomId, maxMarks);
+    }
+
+    @GetMapping("/rescale-marks/{jobId}")
+    public RescaleProgressDTO getRescaleProgress(@PathVariable Long classroomId, @PathVariable String jobId) {
+        return marksRescaleService.getProgress(jobId);
+    }
+
     @DeleteMapping("/{assignmentId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteAssignment(@PathVariable Long classroomId, @PathVariable Long assignmentId) {
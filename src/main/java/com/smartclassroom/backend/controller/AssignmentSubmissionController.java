@@ -3,15 +3,22 @@ package com.smartclassroom.backend.controller;
 import com.smartclassroom.backend.dto.assignment.AssignmentSubmissionRequestDTO;
 import com.smartclassroom.backend.dto.assignment.AssignmentSubmissionResponseDTO;
 import com.smartclassroom.backend.dto.assignment.GradeSubmissionRequestDTO;
+import com.smartclassroom.backend.dto.assignment.SimilarSubmissionPairDTO;
 import com.smartclassroom.backend.dto.auth.UserResponseDTO;
 import com.smartclassroom.backend.model.AssignmentSubmission;
 import com.smartclassroom.backend.model.User;
 import com.smartclassroom.backend.service.AssignmentSubmissionService;
+import com.smartclassroom.backend.service.SubmissionArchiveService;
+import com.smartclassroom.backend.service.SubmissionSimilarityService;
 import com.smartclassroom.backend.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,6 +30,8 @@ public class AssignmentSubmissionController {
 
     private final AssignmentSubmissionService submissionService;
     private final UserService userService;
+    private final SubmissionSimilarityService similarityService;
+    private final SubmissionArchiveService archiveService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -41,6 +50,17 @@ public class AssignmentSubmissionController {
                 .collect(Collectors.toList());
     }
 
+    @GetMapping("/archive")
+    public ResponseEntity<StreamingResponseBody> downloadArchive(@PathVariable Long assignmentId) {
+        List<SubmissionArchiveService.Entry> entries = archiveService.getEntries(assignmentId);
+        StreamingResponseBody body = out -> archiveService.write(entries, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"assignment-" + assignmentId + "-submissions.zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+
     @GetMapping("/my")
     public AssignmentSubmissionResponseDTO getMySubmission(@PathVariable Long assignmentId,
                                                            @RequestParam("studentId") Long studentId) {
@@ -48,6 +68,12 @@ public class AssignmentSubmissionController {
         return toResponse(submission);
     }
 
+    @GetMapping("/similar")
+    public List<SimilarSubmissionPairDTO> getSimilarSubmissions(@PathVariable Long assignmentId,
+                                                                @RequestParam(value = "threshold", required = false) Double threshold) {
+        return similarityService.findSimilarSubmissions(assignmentId, threshold);
+    }
+
     @PutMapping("/{submissionId}/grade")
     public AssignmentSubmissionResponseDTO grade(@PathVariable Long assignmentId,
                                                  @PathVariable Long submissionId,
@@ -2,13 +2,23 @@ package com.smartclassroom.backend.controller;
 
 import com.smartclassroom.backend.dto.auth.UserResponseDTO;
 import com.smartclassroom.backend.dto.classroom.*;
+import com.smartclassroom.backend.dto.storage.StorageUsageDTO;
+import com.smartclassroom.backend.repository.projection.ClassroomSummaryView;
+import com.smartclassroom.backend.exception.BadRequestException;
 import com.smartclassroom.backend.model.Classroom;
 import com.smartclassroom.backend.model.ClassroomMember;
 import com.smartclassroom.backend.model.User;
 import com.smartclassroom.backend.service.ClassroomService;
+import com.smartclassroom.backend.service.RosterImportService;
+import com.smartclassroom.backend.service.StorageQuotaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -20,6 +30,8 @@ import java.util.stream.Collectors;
 public class ClassroomController {
 
     private final ClassroomService classroomService;
+    private final RosterImportService rosterImportService;
+    private final StorageQuotaService storageQuotaService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -37,6 +49,15 @@ public class ClassroomController {
                 .collect(Collectors.toList());
     }
 
+    // Sortable by id, name, code, createdAt or teacherName, e.g. ?page=0&size=20&sort=name,asc
+    @GetMapping("/summaries")
+    public PagedModel<ClassroomSummaryView> listClassroomSummaries(
+            @RequestParam(value = "teacherId", required = false) Long teacherId,
+            @RequestParam(value = "studentId", required = false) Long studentId,
+            @PageableDefault(size = 20, sort = "name", direction = Sort.Direction.ASC) Pageable pageable) {
+        return new PagedModel<>(classroomService.getClassroomPage(teacherId, studentId, pageable));
+    }
+
     @GetMapping("/{id}")
     public ClassroomResponseDTO getClassroom(@PathVariable Long id) {
         Classroom classroom = classroomService.getClassroomById(id);
@@ -59,6 +80,37 @@ public class ClassroomController {
                 .collect(Collectors.toList());
     }
 
+    @PostMapping(value = "/{id}/roster", consumes = "text/csv")
+    public RosterImportReportDTO importRosterCsv(@PathVariable Long id,
+                                                 @RequestParam("teacherId") Long teacherId,
+                                                 @RequestBody String csv) {
+        return rosterImportService.importCsv(id, teacherId, csv);
+    }
+
+    @PostMapping(value = "/{id}/roster", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public RosterImportReportDTO importRoster(@PathVariable Long id,
+                                              @RequestParam("teacherId") Long teacherId,
+                                              @Valid @RequestBody RosterImportRequestDTO request) {
+        return rosterImportService.importEmails(id, teacherId, request.getEmails());
+    }
+
+    @GetMapping("/{id}/storage")
+    public StorageUsageDTO getStorageUsage(@PathVariable Long id) {
+        return storageQuotaService.getClassroomUsage(id);
+    }
+
+    // Keyset-paginated; pass the returned nextCursor to get the following page.
+    @GetMapping("/{id}/members/page")
+    public MemberPageDTO getMemberPage(@PathVariable("id") Long classroomId,
+                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                       @RequestParam(value = "size", defaultValue = "50") int size,
+                                       @RequestParam(value = "sort", defaultValue = "joined") String sort) {
+        if (!"joined".equals(sort) && !"name".equals(sort)) {
+            throw new BadRequestException("sort must be 'joined' or 'name'");
+        }
+        return classroomService.getMemberPage(classroomId, cursor, size, "name".equals(sort));
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteClassroom(@PathVariable Long id, @RequestParam("teacherId") Long teacherId) {
@@ -1,28 +1,195 @@
 package com.smartclassroom.backend.controller;
 
+import com.smartclassroom.backend.dto.upload.UploadSessionCreateRequestDTO;
+import com.smartclassroom.backend.dto.upload.UploadSessionDTO;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.service.CompressedVariantService;
 import com.smartclassroom.backend.service.FileStorageService;
+import com.smartclassroom.backend.service.HotFileCache;
+import com.smartclassroom.backend.service.ResumableUploadService;
+import com.smartclassroom.backend.service.StreamingUploadService;
+import com.smartclassroom.backend.service.ThumbnailService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/files")
 @RequiredArgsConstructor
 public class FileController {
 
+    // Request attributes of Tomcat's sendfile support (see org.apache.catalina.Globals).
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a plain write is as cheap as setting up sendfile (Tomcat's own default threshold).
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
     private final FileStorageService fileStorageService;
+    private final ResumableUploadService resumableUploadService;
+    private final StreamingUploadService streamingUploadService;
+    private final HotFileCache hotFileCache;
+    private final CompressedVariantService compressedVariantService;
+    private final ThumbnailService thumbnailService;
 
+    // Uploads are charged to the user and, for classroom material, to the classroom; see StorageQuotaService.
+    // Clients that do not send a user id (the web app's plain upload) are not charged.
     @PostMapping("/upload")
-    public Map<String, String> uploadFile(@RequestParam("file") MultipartFile file) {
-        String storedFilename = fileStorageService.storeFile(file);
+    public Map<String, String> uploadFile(@RequestParam("file") MultipartFile file,
+                                          @RequestParam(value = "userId", required = false) Long userId,
+                                          @RequestParam(value = "classroomId", required = false) Long classroomId) {
+        String storedFilename = fileStorageService.storeFile(file, userId, classroomId);
+        return toUrlResponse(storedFilename);
+    }
+
+    // Reads the multipart body itself; see StreamingUploadService. The user id is part of the path
+    // because reading a query parameter would make the container parse (and spool) the whole body.
+    @PostMapping("/users/{userId}/stream")
+    public Map<String, String> streamUpload(@PathVariable Long userId, HttpServletRequest request) throws IOException {
+        return streamUpload(userId, null, request);
+    }
+
+    @PostMapping("/users/{userId}/classrooms/{classroomId}/stream")
+    public Map<String, String> streamUpload(@PathVariable Long userId,
+                                            @PathVariable Long classroomId,
+                                            HttpServletRequest request) throws IOException {
+        String storedFilename = streamingUploadService.store(userId, classroomId,
+                request.getContentType(), request.getContentLengthLong(), request.getInputStream());
+        return toUrlResponse(storedFilename);
+    }
+
+    @PostMapping("/uploads")
+    @ResponseStatus(HttpStatus.CREATED)
+    public UploadSessionDTO createUploadSession(@Valid @RequestBody UploadSessionCreateRequestDTO request) {
+        return resumableUploadService.createSession(request);
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public UploadSessionDTO getUploadSession(@PathVariable String uploadId) {
+        return resumableUploadService.getSession(uploadId);
+    }
+
+    @PutMapping("/uploads/{uploadId}")
+    public UploadSessionDTO uploadChunk(@PathVariable String uploadId,
+                                        @RequestParam long offset,
+                                        InputStream body) {
+        return resumableUploadService.writeChunk(uploadId, offset, body);
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public Map<String, String> completeUpload(@PathVariable String uploadId, @RequestParam String sha256) {
+        String storedFilename = resumableUploadService.complete(uploadId, sha256);
+        return toUrlResponse(storedFilename);
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void abortUpload(@PathVariable String uploadId) {
+        resumableUploadService.abort(uploadId);
+    }
+
+    @GetMapping("/{filename:.+}")
+    public ResponseEntity<Resource> getFile(@PathVariable String filename,
+                                            @RequestParam(value = "size", required = false) Integer size,
+                                            HttpServletRequest request,
+                                            HttpServletResponse response,
+                                            WebRequest webRequest) throws IOException {
+        FileStorageService.StoredFile file = fileStorageService.describe(filename);
+        if (size != null) {
+            if (!ThumbnailService.SIZES.contains(size)) {
+                throw new BadRequestException("size must be one of " + ThumbnailService.SIZES);
+            }
+            ThumbnailService.Thumbnail thumbnail = thumbnailService.getThumbnail(file, size);
+            if (thumbnail != null) {
+                return getThumbnail(file, size, thumbnail, request, webRequest);
+            }
+            // Not a scalable image: fall through and serve the original.
+        }
+        boolean rangeRequested = request.getHeader(HttpHeaders.RANGE) != null;
+
+        // Text-like files have a gzip representation; ranges are only served from the original.
+        boolean compressible = CompressedVariantService.isCompressible(file.contentType());
+        Path gzipVariant = compressible && !rangeRequested && acceptsGzip(request)
+                ? compressedVariantService.findGzip(file).orElse(null)
+                : null;
+        if (compressible) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        String etag = "\"" + file.etag() + (gzipVariant != null ? "-gzip" : "") + "\"";
+
+        // Answer If-None-Match / If-Modified-Since before any body (or sendfile) is set up.
+        if (webRequest.checkNotModified(etag, file.lastModified().toEpochMilli())) {
+            return null;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(file.contentType());
+        headers.setContentDisposition(ContentDisposition.builder(isSafeInline(file.contentType()) ? "inline" : "attachment")
+                .filename(filename)
+                .build());
+        headers.setETag(etag);
+        headers.setLastModified(file.lastModified());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.set("X-Content-Type-Options", "nosniff");
+
+        if (!file.isLocal()) {
+            return serveRemote(request, headers, file, rangeRequested && isRangeStillValid(request, etag, file));
+        }
+
+        // Spring turns a Range header on a file-backed Resource into a 206, or a multipart/byteranges
+        // response when several ranges are requested.
+        if (rangeRequested && isRangeStillValid(request, etag, file)) {
+            return new ResponseEntity<>(new FileSystemResource(file.path()), headers, HttpStatus.OK);
+        }
+
+        if (gzipVariant != null) {
+            long compressedSize = Files.size(gzipVariant);
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.setContentLength(compressedSize);
+            compressedVariantService.recordCompressedResponse(file.size(), compressedSize);
+            return serveWhole(request, headers, gzipVariant, compressedSize);
+        }
+
+        headers.setContentLength(file.size());
+        if (HttpMethod.GET.matches(request.getMethod())) {
+            ByteBuffer cached = hotFileCache.get(file);
+            if (cached != null) {
+                return new ResponseEntity<>(new InputStreamResource(HotFileCache.asInputStream(cached)), headers, HttpStatus.OK);
+            }
+        }
+        return serveWhole(request, headers, file.path(), file.size());
+    }
+
+    private static Map<String, String> toUrlResponse(String storedFilename) {
         String fileDownloadUri = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/api/files/")
                 .path(storedFilename)
@@ -33,13 +200,144 @@ public class FileController {
         return response;
     }
 
-    @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> getFile(@PathVariable String filename) {
-        Resource resource = fileStorageService.loadFileAsResource(filename);
+    private ResponseEntity<Resource> getThumbnail(FileStorageService.StoredFile file,
+                                                  int size,
+                                                  ThumbnailService.Thumbnail thumbnail,
+                                                  HttpServletRequest request,
+                                                  WebRequest webRequest) throws IOException {
+        String etag = "\"" + file.etag() + "-" + size + "\"";
+        if (webRequest.checkNotModified(etag, file.lastModified().toEpochMilli())) {
+            return null;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(thumbnail.contentType());
+        headers.setContentDisposition(ContentDisposition.inline().filename(file.filename()).build());
+        headers.setETag(etag);
+        headers.setLastModified(file.lastModified());
+        headers.set("X-Content-Type-Options", "nosniff");
+        headers.setContentLength(thumbnail.size());
+        return serveWhole(request, headers, thumbnail.path(), thumbnail.size());
+    }
+
+    private static ResponseEntity<Resource> serveWhole(HttpServletRequest request, HttpHeaders headers,
+                                                       Path path, long size) throws IOException {
+        if (HttpMethod.GET.matches(request.getMethod())
+                && size >= SENDFILE_MIN_SIZE
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file after the headers with FileChannel.transferTo, so the bytes go from
+            // the page cache to the socket without passing through the JVM heap.
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+
+        // An InputStreamResource is never split into ranges, so a stale If-Range gets the whole file.
+        return new ResponseEntity<>(new InputStreamResource(Files.newInputStream(path)), headers, HttpStatus.OK);
+    }
+
+    // Files in a remote store are either handed off to a presigned URL, or proxied. Only a single
+    // range is forwarded; a multi-range request gets the whole object, which RFC 9110 allows.
+    private ResponseEntity<Resource> serveRemote(HttpServletRequest request, HttpHeaders headers,
+                                                 FileStorageService.StoredFile file,
+                                                 boolean rangeRequested) throws IOException {
+        Optional<URI> direct = fileStorageService.directDownloadUri(file);
+        if (direct.isPresent()) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(direct.get())
+                    .cacheControl(CacheControl.noStore())
+                    .build();
+        }
+
+        long start = 0;
+        long length = file.size();
+        HttpStatus status = HttpStatus.OK;
+        if (rangeRequested) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+            } catch (IllegalArgumentException ex) {
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(file.size());
+                    length = range.getRangeEnd(file.size()) - start + 1;
+                } catch (IllegalArgumentException ex) {
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                    return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                }
+                headers.set(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (start + length - 1) + "/" + file.size());
+                status = HttpStatus.PARTIAL_CONTENT;
+            }
+        }
+        headers.setContentLength(length);
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return new ResponseEntity<>(headers, status);
+        }
+        return new ResponseEntity<>(new InputStreamResource(fileStorageService.openStream(file, start, length)),
+                headers, status);
+    }
+
+    // True if the client lists gzip (or "*") without q=0.
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException ex) {
+                        refused = true;
+                    }
+                }
+            }
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                return !refused;
+            }
+            if ("*".equals(name)) {
+                wildcard = !refused;
+            }
+        }
+        return wildcard;
+    }
+
+    // If-Range carries either the entity tag or the Last-Modified date the client's partial copy came from.
+    private static boolean isRangeStillValid(HttpServletRequest request, String etag, FileStorageService.StoredFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == file.lastModified().getEpochSecond();
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(resource);
+    // User uploads are only rendered by the browser for types that cannot run script in our origin.
+    private static boolean isSafeInline(MediaType contentType) {
+        String type = contentType.getType();
+        if ("image".equals(type)) {
+            return !contentType.getSubtype().contains("svg");
+        }
+        return "video".equals(type)
+                || "audio".equals(type)
+                || MediaType.APPLICATION_PDF.equalsTypeAndSubtype(contentType)
+                || MediaType.TEXT_PLAIN.equalsTypeAndSubtype(contentType);
     }
 }
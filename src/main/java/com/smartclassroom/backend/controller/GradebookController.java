@@ -0,0 +1,38 @@
+package com.smartclassroom.backend.controller;
+
+import com.smartclassroom.backend.service.GradebookExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/classrooms/{classroomId}/gradebook")
+@RequiredArgsConstructor
+public class GradebookController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final GradebookExportService gradebookExportService;
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable Long classroomId,
+                                                        @RequestParam(value = "format", required = false) String format) {
+        GradebookExportService.Format exportFormat = GradebookExportService.Format.parse(format);
+        List<GradebookExportService.Column> columns = gradebookExportService.getColumns(classroomId);
+
+        StreamingResponseBody body = out -> gradebookExportService.export(classroomId, columns, exportFormat, out);
+
+        boolean csv = exportFormat == GradebookExportService.Format.CSV;
+        String filename = "gradebook-" + classroomId + (csv ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(csv ? TEXT_CSV : APPLICATION_NDJSON)
+                .body(body);
+    }
+}
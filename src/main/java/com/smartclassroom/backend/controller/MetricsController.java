@@ -0,0 +1,53 @@
+package com.smartclassroom.backend.controller;
+
+import com.smartclassroom.backend.dto.metrics.CompressionStatsDTO;
+import com.smartclassroom.backend.dto.metrics.DashboardCacheStatsDTO;
+import com.smartclassroom.backend.dto.metrics.HotFileCacheStatsDTO;
+import com.smartclassroom.backend.dto.metrics.SecondLevelCacheStatsDTO;
+import com.smartclassroom.backend.dto.metrics.UploadMetricsDTO;
+import com.smartclassroom.backend.service.CompressedVariantService;
+import com.smartclassroom.backend.service.DashboardCache;
+import com.smartclassroom.backend.service.HotFileCache;
+import com.smartclassroom.backend.service.SecondLevelCacheMetrics;
+import com.smartclassroom.backend.service.StreamingUploadService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final DashboardCache dashboardCache;
+    private final StreamingUploadService streamingUploadService;
+    private final HotFileCache hotFileCache;
+    private final CompressedVariantService compressedVariantService;
+    private final SecondLevelCacheMetrics secondLevelCacheMetrics;
+
+    @GetMapping("/dashboard-cache")
+    public DashboardCacheStatsDTO getDashboardCacheStats() {
+        return dashboardCache.getStats();
+    }
+
+    @GetMapping("/file-cache")
+    public HotFileCacheStatsDTO getFileCacheStats() {
+        return hotFileCache.getStats();
+    }
+
+    @GetMapping("/second-level-cache")
+    public SecondLevelCacheStatsDTO getSecondLevelCacheStats() {
+        return secondLevelCacheMetrics.getStats();
+    }
+
+    @GetMapping("/compression")
+    public CompressionStatsDTO getCompressionStats() {
+        return compressedVariantService.getStats();
+    }
+
+    @GetMapping("/uploads")
+    public UploadMetricsDTO getUploadMetrics() {
+        return streamingUploadService.getMetrics();
+    }
+}
@@ -0,0 +1,64 @@
+package com.smartclassroom.backend.controller;
+
+import com.smartclassroom.backend.dto.storage.ContentMigrationProgressDTO;
+import com.smartclassroom.backend.dto.storage.GcReportDTO;
+import com.smartclassroom.backend.dto.storage.ShardMigrationReportDTO;
+import com.smartclassroom.backend.dto.storage.StorageReconciliationReportDTO;
+import com.smartclassroom.backend.dto.storage.StorageReportDTO;
+import com.smartclassroom.backend.service.ContentAddressedStore;
+import com.smartclassroom.backend.service.FileStorageService;
+import com.smartclassroom.backend.service.StorageQuotaService;
+import com.smartclassroom.backend.service.UploadGarbageCollector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/storage")
+@RequiredArgsConstructor
+public class StorageController {
+
+    private final FileStorageService fileStorageService;
+    private final ContentAddressedStore contentAddressedStore;
+    private final UploadGarbageCollector uploadGarbageCollector;
+    private final StorageQuotaService storageQuotaService;
+
+    @GetMapping("/report")
+    public StorageReportDTO getReport() {
+        return contentAddressedStore.getReport();
+    }
+
+    @PostMapping("/migrate")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ContentMigrationProgressDTO migrateToContentAddressed() {
+        return fileStorageService.startContentAddressedMigration();
+    }
+
+    @GetMapping("/migrate/{jobId}")
+    public ContentMigrationProgressDTO getMigrationProgress(@PathVariable String jobId) {
+        return fileStorageService.getContentAddressedMigration(jobId);
+    }
+
+    @PostMapping("/migrate-sharded")
+    public ShardMigrationReportDTO migrateToShardedLayout(
+            @RequestParam(value = "parallelism", defaultValue = "8") int parallelism) {
+        return fileStorageService.migrateToShardedLayout(parallelism);
+    }
+
+    // Dry run unless asked otherwise, so a stray call only reports what would be deleted.
+    @PostMapping("/gc")
+    public GcReportDTO collectGarbage(@RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun) {
+        return uploadGarbageCollector.collect(dryRun);
+    }
+
+    @PostMapping("/quota/reconcile")
+    public StorageReconciliationReportDTO reconcileUsage() {
+        return storageQuotaService.reconcile();
+    }
+}
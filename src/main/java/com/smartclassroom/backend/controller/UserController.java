@@ -2,7 +2,9 @@ package com.smartclassroom.backend.controller;
 
 import com.smartclassroom.backend.dto.auth.UserResponseDTO;
 import com.smartclassroom.backend.dto.auth.UserUpdateRequestDTO;
+import com.smartclassroom.backend.dto.storage.StorageUsageDTO;
 import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.service.StorageQuotaService;
 import com.smartclassroom.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +18,7 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserService userService;
+    private final StorageQuotaService storageQuotaService;
 
     @GetMapping("/me")
     public UserResponseDTO getMe(@RequestParam("userId") Long userId) {
@@ -29,6 +32,11 @@ public class UserController {
         return toUserResponse(user);
     }
 
+    @GetMapping("/{id}/storage")
+    public StorageUsageDTO getStorageUsage(@PathVariable Long id) {
+        return storageQuotaService.getUserUsage(id);
+    }
+
     @GetMapping
     public List<UserResponseDTO> getAll() {
         return userService.getAllUsers().stream()
@@ -18,5 +18,8 @@ public class AssignmentUpdateRequestDTO {
 
     private Integer maxMarks;
 
+    // When maxMarks changes, also rescale marks already given to submissions
+    private Boolean rescaleMarks;
+
     private String attachmentUrl;
 }
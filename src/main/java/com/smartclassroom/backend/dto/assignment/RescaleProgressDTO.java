@@ -0,0 +1,32 @@
+package com.smartclassroom.backend.dto.assignment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RescaleProgressDTO {
+
+    private String jobId;
+
+    private Long classroomId;
+
+    private Integer newMaxMarks;
+
+    private Integer totalAssignments;
+
+    private Integer completedAssignments;
+
+    private Long totalSubmissions;
+
+    private Long processedSubmissions;
+
+    // RUNNING, COMPLETED or FAILED
+    private String status;
+
+    private String error;
+}
@@ -0,0 +1,28 @@
+package com.smartclassroom.backend.dto.assignment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarSubmissionPairDTO {
+
+    private Long firstSubmissionId;
+
+    private Long firstStudentId;
+
+    private String firstStudentName;
+
+    private Long secondSubmissionId;
+
+    private Long secondStudentId;
+
+    private String secondStudentName;
+
+    // Estimated Jaccard similarity of the two files' word shingles, between 0 and 1
+    private Double similarity;
+}
@@ -0,0 +1,21 @@
+package com.smartclassroom.backend.dto.classroom;
+
+import com.smartclassroom.backend.repository.projection.MemberSummaryView;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberPageDTO {
+
+    private List<MemberSummaryView> members;
+
+    // Pass as cursor to get the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,25 @@
+package com.smartclassroom.backend.dto.classroom;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RosterImportReportDTO {
+
+    private Long classroomId;
+
+    private Integer added;
+
+    private Integer skipped;
+
+    private List<RosterImportRowDTO> rows;
+
+    private Long elapsedMillis;
+}
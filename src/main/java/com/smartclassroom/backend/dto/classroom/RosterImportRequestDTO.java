@@ -0,0 +1,13 @@
+package com.smartclassroom.backend.dto.classroom;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class RosterImportRequestDTO {
+
+    @NotEmpty
+    private List<String> emails;
+}
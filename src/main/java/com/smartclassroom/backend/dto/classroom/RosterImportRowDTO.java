@@ -0,0 +1,30 @@
+package com.smartclassroom.backend.dto.classroom;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RosterImportRowDTO {
+
+    public enum Status {
+        ADDED,
+        ALREADY_MEMBER,
+        DUPLICATE,
+        NOT_FOUND,
+        INVALID
+    }
+
+    // Line of the CSV file, or position in the JSON list, counting from 1
+    private Integer row;
+
+    private String email;
+
+    private Status status;
+
+    private Long userId;
+}
@@ -0,0 +1,23 @@
+package com.smartclassroom.backend.dto.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionStatsDTO {
+
+    private String region;
+
+    private Long hits;
+
+    private Long misses;
+
+    private Long puts;
+
+    private Long entries;
+}
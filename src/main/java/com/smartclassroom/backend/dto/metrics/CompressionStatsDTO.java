@@ -0,0 +1,26 @@
+package com.smartclassroom.backend.dto.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompressionStatsDTO {
+
+    private Long variantsGenerated;
+
+    // Sizes of the originals and of their gzip variants, over all variants generated since startup
+    private Long originalBytes;
+
+    private Long compressedBytes;
+
+    private Double compressionRatio;
+
+    private Long compressedResponses;
+
+    private Long bytesSavedOnResponses;
+}
@@ -0,0 +1,35 @@
+package com.smartclassroom.backend.dto.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotFileCacheStatsDTO {
+
+    private Long hits;
+
+    private Long misses;
+
+    private Double hitRatio;
+
+    private Long admissions;
+
+    // Popular-enough files turned away because the entries they would evict were more popular
+    private Long rejections;
+
+    private Long evictions;
+
+    private Integer entries;
+
+    private Long residentBytes;
+
+    // Direct memory of every cache buffer not yet garbage collected, including evicted ones downloads still read
+    private Long outstandingBytes;
+
+    private Long maxBytes;
+}
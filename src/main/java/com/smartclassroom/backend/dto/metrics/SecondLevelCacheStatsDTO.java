@@ -0,0 +1,34 @@
+package com.smartclassroom.backend.dto.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SecondLevelCacheStatsDTO {
+
+    private Long hits;
+
+    private Long misses;
+
+    private Long puts;
+
+    private Double hitRatio;
+
+    private Long queryCacheHits;
+
+    private Long queryCacheMisses;
+
+    private Long queryCachePuts;
+
+    // Statements prepared since startup, for comparing against the hits.
+    private Long statements;
+
+    private List<CacheRegionStatsDTO> regions;
+}
@@ -0,0 +1,28 @@
+package com.smartclassroom.backend.dto.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadMetricsDTO {
+
+    private Long completedUploads;
+
+    private Long rejectedUploads;
+
+    private Long failedUploads;
+
+    private Long bytesReceived;
+
+    // Average per-upload throughput over all completed uploads
+    private Double averageMegabytesPerSecond;
+
+    private Integer activeUploads;
+
+    private Long bytesInFlight;
+}
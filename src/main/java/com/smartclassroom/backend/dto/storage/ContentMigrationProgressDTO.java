@@ -0,0 +1,22 @@
+package com.smartclassroom.backend.dto.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentMigrationProgressDTO {
+
+    private String jobId;
+
+    // RUNNING, COMPLETED or FAILED
+    private String status;
+
+    private Long migratedFiles;
+
+    private String error;
+}
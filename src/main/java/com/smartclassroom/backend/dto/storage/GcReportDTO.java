@@ -0,0 +1,34 @@
+package com.smartclassroom.backend.dto.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GcReportDTO {
+
+    private Boolean dryRun;
+
+    private Long liveReferences;
+
+    private Long scannedFiles;
+
+    private Long orphanedFiles;
+
+    // Local files only; the size of a content-addressed file depends on whether its blob is shared.
+    private Long orphanedBytes;
+
+    private Long deletedFiles;
+
+    private Long failedFiles;
+
+    private List<String> sampleOrphans;
+
+    private Long elapsedMillis;
+}
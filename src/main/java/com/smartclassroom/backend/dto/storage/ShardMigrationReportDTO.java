@@ -0,0 +1,19 @@
+package com.smartclassroom.backend.dto.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardMigrationReportDTO {
+
+    private Long movedFiles;
+
+    private Long failedFiles;
+
+    private Long elapsedMillis;
+}
@@ -0,0 +1,22 @@
+package com.smartclassroom.backend.dto.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageReconciliationReportDTO {
+
+    private Long countersChecked;
+
+    private Long countersCorrected;
+
+    // Sum of the absolute differences between the stored counters and the recomputed totals.
+    private Long driftBytes;
+
+    private Long elapsedMillis;
+}
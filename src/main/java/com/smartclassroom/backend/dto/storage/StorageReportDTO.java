@@ -0,0 +1,24 @@
+package com.smartclassroom.backend.dto.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageReportDTO {
+
+    private Long logicalFiles;
+
+    private Long blobs;
+
+    // Sum of the sizes of all logical files, i.e. what a store without deduplication would hold.
+    private Long logicalBytes;
+
+    private Long storedBytes;
+
+    private Long bytesSaved;
+}
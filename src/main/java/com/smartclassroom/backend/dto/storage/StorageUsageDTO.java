@@ -0,0 +1,21 @@
+package com.smartclassroom.backend.dto.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsageDTO {
+
+    private Long usedBytes;
+
+    // Held by uploads that are still in progress.
+    private Long reservedBytes;
+
+    // Zero when there is no limit.
+    private Long quotaBytes;
+}
@@ -0,0 +1,24 @@
+package com.smartclassroom.backend.dto.upload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class UploadSessionCreateRequestDTO {
+
+    @NotBlank
+    private String filename;
+
+    // Total size of the file in bytes
+    @NotNull
+    @Positive
+    private Long size;
+
+    // Charged for the upload; see StorageQuotaService
+    @NotNull
+    private Long userId;
+
+    private Long classroomId;
+}
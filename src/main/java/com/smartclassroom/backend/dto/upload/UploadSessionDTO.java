@@ -0,0 +1,28 @@
+package com.smartclassroom.backend.dto.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDTO {
+
+    private String uploadId;
+
+    private String filename;
+
+    private Long size;
+
+    private Long receivedBytes;
+
+    // Byte ranges received so far, inclusive, formatted like HTTP Content-Range ("0-1048575")
+    private List<String> receivedRanges;
+
+    private Boolean complete;
+}
@@ -0,0 +1,7 @@
+package com.smartclassroom.backend.event;
+
+/**
+ * An assignment of the classroom was created, updated (including rescaled marks) or deleted.
+ */
+public record AssignmentChangedEvent(Long classroomId) implements ClassroomEvent {
+}
@@ -0,0 +1,12 @@
+package com.smartclassroom.backend.event;
+
+/**
+ * Domain events raised after classroom-scoped data changes. Published through Spring's
+ * {@link org.springframework.context.ApplicationEventPublisher} so that caches and other
+ * derived views can react without the services knowing about them.
+ */
+public sealed interface ClassroomEvent
+        permits AssignmentChangedEvent, SubmissionChangedEvent, MembershipChangedEvent {
+
+    Long classroomId();
+}
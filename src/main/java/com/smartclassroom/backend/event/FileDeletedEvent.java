@@ -0,0 +1,7 @@
+package com.smartclassroom.backend.event;
+
+/**
+ * A stored file has been deleted from the file store.
+ */
+public record FileDeletedEvent(String filename) {
+}
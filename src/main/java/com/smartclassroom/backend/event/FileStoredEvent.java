@@ -0,0 +1,10 @@
+package com.smartclassroom.backend.event;
+
+import java.nio.file.Path;
+
+/**
+ * A new upload has been written to the file store under {@code filename}. {@code path} is
+ * {@code null} when the storage backend keeps files off this machine.
+ */
+public record FileStoredEvent(String filename, Path path) {
+}
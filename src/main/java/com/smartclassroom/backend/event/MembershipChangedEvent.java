@@ -0,0 +1,8 @@
+package com.smartclassroom.backend.event;
+
+/**
+ * A user joined or left the classroom. A {@code null} userId means the whole classroom
+ * changed (it was created or deleted).
+ */
+public record MembershipChangedEvent(Long classroomId, Long userId) implements ClassroomEvent {
+}
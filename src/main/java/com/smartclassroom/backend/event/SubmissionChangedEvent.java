@@ -0,0 +1,7 @@
+package com.smartclassroom.backend.event;
+
+/**
+ * A student's submission in the classroom was created or graded.
+ */
+public record SubmissionChangedEvent(Long classroomId, Long studentId) implements ClassroomEvent {
+}
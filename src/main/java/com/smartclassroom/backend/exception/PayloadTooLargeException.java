@@ -0,0 +1,7 @@
+package com.smartclassroom.backend.exception;
+
+public class PayloadTooLargeException extends RuntimeException {
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.smartclassroom.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A unique piece of uploaded content, stored once under its SHA-256 hash.
+ */
+@Entity
+@Table(name = "file_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Long size;
+
+    // Number of logical files pointing at this blob.
+    @Column(nullable = false)
+    private Integer refCount;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,53 @@
+package com.smartclassroom.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Who a stored file is charged to. Rows are only ever inserted or deleted, so they report themselves
+ * as new until loaded, which lets them be inserted without a lookup first.
+ */
+@Entity
+@Table(name = "file_ownership", indexes = {
+        @Index(columnList = "user_id"),
+        @Index(columnList = "classroom_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileOwnership implements Persistable<String> {
+
+    @Id
+    private String filename;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "classroom_id")
+    private Long classroomId;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public String getId() {
+        return filename;
+    }
+
+    @Override
+    public boolean isNew() {
+        return createdAt == null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.smartclassroom.backend.model;
+
+/**
+ * Settings shared by the entities' id generators. Each entity draws its ids from its own row of
+ * {@link #TABLE}, named after the entity's table, and reserves {@link #ALLOCATION_SIZE} ids per
+ * round trip. Unlike {@code IDENTITY} keys, which are only known once a row is inserted, this lets
+ * Hibernate batch inserts.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String SEGMENT_COLUMN = "name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,37 @@
+package com.smartclassroom.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored filename as it appears in download URLs, mapped to the blob holding its content.
+ */
+@Entity
+@Table(name = "logical_files")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LogicalFile {
+
+    @Id
+    private String filename;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_hash")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private FileBlob blob;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
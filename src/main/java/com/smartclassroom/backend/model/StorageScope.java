@@ -0,0 +1,6 @@
+package com.smartclassroom.backend.model;
+
+public enum StorageScope {
+    USER,
+    CLASSROOM
+}
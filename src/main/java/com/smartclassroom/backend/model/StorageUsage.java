@@ -0,0 +1,45 @@
+package com.smartclassroom.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bytes of uploads charged to a user or a classroom. Maintained incrementally by
+ * {@code StorageQuotaService} and recomputed from {@link FileOwnership} by its reconciliation job.
+ */
+@Entity
+@Table(name = "storage_usage", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"scope", "owner_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StorageUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "storage_usage")
+    @TableGenerator(name = "storage_usage", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "storage_usage",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private StorageScope scope;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(nullable = false)
+    private Long usedBytes;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
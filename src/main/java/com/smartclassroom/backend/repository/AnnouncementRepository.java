@@ -1,10 +1,37 @@
 package com.smartclassroom.backend.repository;
 
 import com.smartclassroom.backend.model.Announcement;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AnnouncementRepository extends JpaRepository<Announcement, Long> {
+    @EntityGraph(attributePaths = "author")
     List<Announcement> findByClassroomIdOrderByCreatedAtDesc(Long classroomId);
+
+    @EntityGraph(attributePaths = "author")
+    Optional<Announcement> findWithAuthorById(Long id);
+
+    // Forward-only cursor for the upload garbage collector. Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a.attachmentUrl FROM Announcement a WHERE a.attachmentUrl IS NOT NULL")
+    Stream<String> streamAttachmentUrls();
+
+    // URLs that may point at one of the stored filenames: those ending in one, plus any carrying a query
+    // string, which the caller resolves with FileStorageService.toStoredFilename.
+    @Query("SELECT a.attachmentUrl FROM Announcement a WHERE a.attachmentUrl LIKE '%/api/files/%' "
+            + "AND (SUBSTRING(a.attachmentUrl, LOCATE('/api/files/', a.attachmentUrl) + 11) IN :filenames OR a.attachmentUrl LIKE '%?%')")
+    List<String> findAttachmentUrlsReferencing(@Param("filenames") Collection<String> filenames);
 }
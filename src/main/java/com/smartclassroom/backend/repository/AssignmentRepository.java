@@ -1,15 +1,57 @@
 package com.smartclassroom.backend.repository;
 
 import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.repository.projection.AssignmentScaleView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AssignmentRepository extends JpaRepository<Assignment, Long> {
     List<Assignment> findByClassroomId(Long classroomId);
 
+    List<Assignment> findByClassroomIdOrderByIdAsc(Long classroomId);
+
+    // Dashboards show the classroom name next to each assignment.
+    @EntityGraph(attributePaths = "classroom")
     @Query("SELECT a FROM Assignment a WHERE a.classroom.id IN :classroomIds ORDER BY a.dueDate ASC")
     List<Assignment> findByClassroomIdIn(@Param("classroomIds") List<Long> classroomIds);
+
+    // Forward-only cursor for the upload garbage collector. Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a.attachmentUrl FROM Assignment a WHERE a.attachmentUrl IS NOT NULL")
+    Stream<String> streamAttachmentUrls();
+
+    // Exclusive lock taken while marks are rescaled, so two rescales or a rescale and a delete cannot interleave.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Assignment a WHERE a.id = :id")
+    Optional<Assignment> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM Assignment a WHERE a.id = :id")
+    int deleteByIdInBulk(@Param("id") Long id);
+
+    // Read past the second-level cache, which may still hold the maximum from before a rescale committed.
+    @Query("SELECT a.maxMarks AS maxMarks, a.classroom.id AS classroomId FROM Assignment a WHERE a.id = :id")
+    Optional<AssignmentScaleView> findScaleById(@Param("id") Long id);
+
+    // URLs that may point at one of the stored filenames: those ending in one, plus any carrying a query
+    // string, which the caller resolves with FileStorageService.toStoredFilename.
+    @Query("SELECT a.attachmentUrl FROM Assignment a WHERE a.attachmentUrl LIKE '%/api/files/%' "
+            + "AND (SUBSTRING(a.attachmentUrl, LOCATE('/api/files/', a.attachmentUrl) + 11) IN :filenames OR a.attachmentUrl LIKE '%?%')")
+    List<String> findAttachmentUrlsReferencing(@Param("filenames") Collection<String> filenames);
 }
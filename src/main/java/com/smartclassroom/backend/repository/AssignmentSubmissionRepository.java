@@ -1,21 +1,93 @@
 package com.smartclassroom.backend.repository;
 
 import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.repository.projection.SubmissionFileView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AssignmentSubmissionRepository extends JpaRepository<AssignmentSubmission, Long> {
 
     Optional<AssignmentSubmission> findByAssignmentIdAndStudentId(Long assignmentId, Long studentId);
 
+    @EntityGraph(attributePaths = "student")
+    Optional<AssignmentSubmission> findWithStudentByAssignmentIdAndStudentId(Long assignmentId, Long studentId);
+
+    @EntityGraph(attributePaths = "student")
+    Optional<AssignmentSubmission> findWithStudentById(Long id);
+
+    // Row lock taken while grading; a rescale's UPDATE waits for it and then scales the new grade.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = "student")
+    @Query("SELECT s FROM AssignmentSubmission s WHERE s.id = :id")
+    Optional<AssignmentSubmission> findWithStudentByIdForUpdate(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = "student")
     List<AssignmentSubmission> findByAssignmentId(Long assignmentId);
 
     Long countByAssignmentId(Long assignmentId);
 
     @Query("SELECT COUNT(s) FROM AssignmentSubmission s WHERE s.assignment.id = :assignmentId AND s.marks IS NOT NULL")
     Long countGradedByAssignmentId(@Param("assignmentId") Long assignmentId);
+
+    @Query("SELECT COUNT(s) FROM AssignmentSubmission s WHERE s.assignment.classroom.id = :classroomId AND s.marks IS NOT NULL")
+    Long countGradedByClassroomId(@Param("classroomId") Long classroomId);
+
+    @Query("SELECT MIN(s.id) FROM AssignmentSubmission s WHERE s.assignment.id = :assignmentId")
+    Long findMinIdByAssignmentId(@Param("assignmentId") Long assignmentId);
+
+    @Query("SELECT MAX(s.id) FROM AssignmentSubmission s WHERE s.assignment.id = :assignmentId")
+    Long findMaxIdByAssignmentId(@Param("assignmentId") Long assignmentId);
+
+    @Query("SELECT s.contentUrl FROM AssignmentSubmission s WHERE s.assignment.id = :assignmentId AND s.contentUrl IS NOT NULL")
+    List<String> findContentUrlsByAssignmentId(@Param("assignmentId") Long assignmentId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM AssignmentSubmission s WHERE s.assignment.id = :assignmentId")
+    int deleteAllByAssignmentIdInBulk(@Param("assignmentId") Long assignmentId);
+
+    @Query("SELECT s.student.id AS studentId, s.student.name AS studentName, s.contentUrl AS contentUrl " +
+            "FROM AssignmentSubmission s WHERE s.assignment.id = :assignmentId AND s.contentUrl IS NOT NULL " +
+            "ORDER BY s.student.name, s.student.id")
+    List<SubmissionFileView> findSubmissionFilesByAssignmentId(@Param("assignmentId") Long assignmentId);
+
+    // Forward-only cursor for the upload garbage collector. Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.contentUrl FROM AssignmentSubmission s WHERE s.contentUrl IS NOT NULL")
+    Stream<String> streamAllContentUrls();
+
+    // Set-based rescale of one id range; rounding to the nearest whole mark. Marks outside 0..oldMaxMarks,
+    // stored before grades were validated, are clamped to 0..newMaxMarks.
+    @Modifying
+    @Query("UPDATE AssignmentSubmission s SET s.marks = CASE " +
+            "WHEN s.marks >= :oldMaxMarks THEN :newMaxMarks " +
+            "WHEN s.marks <= 0 THEN 0 " +
+            "ELSE CAST(ROUND(s.marks * :newMaxMarks * 1.0 / :oldMaxMarks, 0) AS Integer) END " +
+            "WHERE s.assignment.id = :assignmentId AND s.marks IS NOT NULL AND s.id BETWEEN :fromId AND :toId")
+    int rescaleMarksInRange(@Param("assignmentId") Long assignmentId,
+                            @Param("oldMaxMarks") Integer oldMaxMarks,
+                            @Param("newMaxMarks") Integer newMaxMarks,
+                            @Param("fromId") Long fromId,
+                            @Param("toId") Long toId);
+
+    // URLs that may point at one of the stored filenames: those ending in one, plus any carrying a query
+    // string, which the caller resolves with FileStorageService.toStoredFilename.
+    @Query("SELECT s.contentUrl FROM AssignmentSubmission s WHERE s.contentUrl LIKE '%/api/files/%' "
+            + "AND (SUBSTRING(s.contentUrl, LOCATE('/api/files/', s.contentUrl) + 11) IN :filenames OR s.contentUrl LIKE '%?%')")
+    List<String> findContentUrlsReferencing(@Param("filenames") Collection<String> filenames);
 }
@@ -3,24 +3,101 @@ package com.smartclassroom.backend.repository;
 import com.smartclassroom.backend.model.ClassroomMember;
 import com.smartclassroom.backend.model.ClassroomRole;
 import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.repository.projection.ClassroomSummaryView;
+import com.smartclassroom.backend.repository.projection.GradebookCellView;
+import com.smartclassroom.backend.repository.projection.MemberSummaryView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ClassroomMemberRepository extends JpaRepository<ClassroomMember, Long> {
 
+    // Membership checks and lookups are served from the query cache; any write to classroom_members
+    // invalidates the cached results.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<ClassroomMember> findByClassroomIdAndUserId(Long classroomId, Long userId);
 
+    @EntityGraph(attributePaths = "user")
     List<ClassroomMember> findByClassroomId(Long classroomId);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<ClassroomMember> findByUserId(Long userId);
 
+    // A student's classroom list, with each classroom's teacher.
+    @EntityGraph(attributePaths = {"classroom", "classroom.teacher"})
+    List<ClassroomMember> findWithClassroomByUserId(Long userId);
+
+    @Query("SELECT cm.user.id FROM ClassroomMember cm WHERE cm.classroom.id = :classroomId AND cm.user.id IN :userIds")
+    List<Long> findMemberUserIds(@Param("classroomId") Long classroomId, @Param("userIds") Collection<Long> userIds);
+
+    @Query(value = "SELECT c.id AS id, c.name AS name, c.description AS description, c.code AS code, " +
+            "t.id AS teacherId, t.name AS teacherName, c.createdAt AS createdAt " +
+            "FROM ClassroomMember cm JOIN cm.classroom c JOIN c.teacher t WHERE cm.user.id = :userId",
+            countQuery = "SELECT COUNT(cm) FROM ClassroomMember cm WHERE cm.user.id = :userId")
+    Page<ClassroomSummaryView> findClassroomSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Keyset pages of a member list in join order: the next page starts after the last member id seen.
+    @Query("SELECT cm.id AS id, u.id AS userId, u.name AS name, u.email AS email, " +
+            "u.profileImageUrl AS profileImageUrl, cm.roleInClass AS roleInClass, cm.joinedAt AS joinedAt " +
+            "FROM ClassroomMember cm JOIN cm.user u " +
+            "WHERE cm.classroom.id = :classroomId AND cm.id > :afterId " +
+            "ORDER BY cm.id")
+    List<MemberSummaryView> findMemberPage(@Param("classroomId") Long classroomId,
+                                           @Param("afterId") Long afterId,
+                                           Limit limit);
+
+    // The first page of a member list by name. It has no cursor condition, so no name can sort before
+    // a sentinel and be skipped.
+    @Query("SELECT cm.id AS id, u.id AS userId, u.name AS name, u.email AS email, " +
+            "u.profileImageUrl AS profileImageUrl, cm.roleInClass AS roleInClass, cm.joinedAt AS joinedAt " +
+            "FROM ClassroomMember cm JOIN cm.user u " +
+            "WHERE cm.classroom.id = :classroomId " +
+            "ORDER BY u.name, cm.id")
+    List<MemberSummaryView> findFirstMemberPageByName(@Param("classroomId") Long classroomId, Limit limit);
+
+    // Keyset pages of a member list by name, ties broken by member id.
+    @Query("SELECT cm.id AS id, u.id AS userId, u.name AS name, u.email AS email, " +
+            "u.profileImageUrl AS profileImageUrl, cm.roleInClass AS roleInClass, cm.joinedAt AS joinedAt " +
+            "FROM ClassroomMember cm JOIN cm.user u " +
+            "WHERE cm.classroom.id = :classroomId " +
+            "AND (u.name > :afterName OR (u.name = :afterName AND cm.id > :afterId)) " +
+            "ORDER BY u.name, cm.id")
+    List<MemberSummaryView> findMemberPageByName(@Param("classroomId") Long classroomId,
+                                                 @Param("afterName") String afterName,
+                                                 @Param("afterId") Long afterId,
+                                                 Limit limit);
+
     @Query("SELECT COUNT(cm) FROM ClassroomMember cm WHERE cm.classroom.id = :classroomId AND cm.roleInClass = :role")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Long countByClassroomIdAndRole(@Param("classroomId") Long classroomId, @Param("role") ClassroomRole role);
 
     @Query("SELECT cm.user FROM ClassroomMember cm WHERE cm.classroom.id = :classroomId AND cm.roleInClass = :role")
     List<User> findUsersByClassroomIdAndRole(@Param("classroomId") Long classroomId, @Param("role") ClassroomRole role);
+
+    // Forward-only cursor over every student of the classroom joined with their submissions,
+    // ordered so that the caller can pivot one student at a time. Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u.id AS studentId, u.name AS studentName, u.email AS studentEmail, " +
+            "s.assignment.id AS assignmentId, s.marks AS marks, s.submittedAt AS submittedAt " +
+            "FROM ClassroomMember cm JOIN cm.user u " +
+            "LEFT JOIN AssignmentSubmission s ON s.student.id = u.id " +
+            "AND s.assignment.id IN (SELECT a.id FROM Assignment a WHERE a.classroom.id = :classroomId) " +
+            "WHERE cm.classroom.id = :classroomId AND cm.roleInClass = :role " +
+            "ORDER BY u.id, s.assignment.id")
+    Stream<GradebookCellView> streamGradebookCells(@Param("classroomId") Long classroomId, @Param("role") ClassroomRole role);
 }
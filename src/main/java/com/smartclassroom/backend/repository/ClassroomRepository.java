@@ -1,13 +1,61 @@
 package com.smartclassroom.backend.repository;
 
 import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.repository.projection.ClassroomSummaryView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ClassroomRepository extends JpaRepository<Classroom, Long> {
     Optional<Classroom> findByCode(String code);
 
+    @EntityGraph(attributePaths = "teacher")
     List<Classroom> findByTeacherId(Long teacherId);
+
+    @EntityGraph(attributePaths = "teacher")
+    Optional<Classroom> findWithTeacherById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "teacher")
+    List<Classroom> findAll();
+
+    boolean existsByCode(String code);
+
+    @Query(value = "SELECT c.id AS id, c.name AS name, c.description AS description, c.code AS code, " +
+            "t.id AS teacherId, t.name AS teacherName, c.createdAt AS createdAt " +
+            "FROM Classroom c JOIN c.teacher t",
+            countQuery = "SELECT COUNT(c) FROM Classroom c")
+    Page<ClassroomSummaryView> findSummaries(Pageable pageable);
+
+    @Query(value = "SELECT c.id AS id, c.name AS name, c.description AS description, c.code AS code, " +
+            "t.id AS teacherId, t.name AS teacherName, c.createdAt AS createdAt " +
+            "FROM Classroom c JOIN c.teacher t WHERE t.id = :teacherId",
+            countQuery = "SELECT COUNT(c) FROM Classroom c WHERE c.teacher.id = :teacherId")
+    Page<ClassroomSummaryView> findSummariesByTeacherId(@Param("teacherId") Long teacherId, Pageable pageable);
+
+    @Query("SELECT c.id FROM Classroom c WHERE c.code = :code")
+    Optional<Long> findIdByCode(@Param("code") String code);
+
+    // Forward-only cursor for rebuilding the class code index. Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.code FROM Classroom c")
+    Stream<String> streamCodes();
+
+    // Codes of classrooms created recently, for refreshing the class code index between rebuilds.
+    @Query("SELECT c.code FROM Classroom c WHERE c.createdAt >= :since")
+    List<String> findCodesCreatedSince(@Param("since") LocalDateTime since);
 }
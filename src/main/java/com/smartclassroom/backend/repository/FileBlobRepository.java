@@ -0,0 +1,21 @@
+package com.smartclassroom.backend.repository;
+
+import com.smartclassroom.backend.model.FileBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    // Serializes reference count changes of one blob with the creation and removal of its file.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM FileBlob b WHERE b.hash = :hash")
+    Optional<FileBlob> findByHashForUpdate(@Param("hash") String hash);
+
+    @Query("SELECT COALESCE(SUM(b.size), 0) FROM FileBlob b")
+    long sumSize();
+}
@@ -0,0 +1,18 @@
+package com.smartclassroom.backend.repository;
+
+import com.smartclassroom.backend.model.FileOwnership;
+import com.smartclassroom.backend.repository.projection.StorageTotalView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface FileOwnershipRepository extends JpaRepository<FileOwnership, String> {
+
+    @Query("SELECT f.userId AS ownerId, SUM(f.size) AS totalBytes FROM FileOwnership f GROUP BY f.userId")
+    List<StorageTotalView> sumSizeByUser();
+
+    @Query("SELECT f.classroomId AS ownerId, SUM(f.size) AS totalBytes FROM FileOwnership f "
+            + "WHERE f.classroomId IS NOT NULL GROUP BY f.classroomId")
+    List<StorageTotalView> sumSizeByClassroom();
+}
@@ -0,0 +1,34 @@
+package com.smartclassroom.backend.repository;
+
+import com.smartclassroom.backend.model.LogicalFile;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface LogicalFileRepository extends JpaRepository<LogicalFile, String> {
+
+    @Query("SELECT l.blob.hash FROM LogicalFile l WHERE l.filename = :filename")
+    Optional<String> findBlobHashByFilename(@Param("filename") String filename);
+
+    @Modifying
+    @Query("DELETE FROM LogicalFile l WHERE l.filename = :filename")
+    int deleteByFilename(@Param("filename") String filename);
+
+    @Query("SELECT COALESCE(SUM(l.blob.size), 0) FROM LogicalFile l")
+    long sumLogicalSize();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l.filename FROM LogicalFile l WHERE l.createdAt < :cutoff")
+    Stream<String> streamFilenamesCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
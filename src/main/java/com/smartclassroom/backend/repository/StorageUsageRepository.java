@@ -0,0 +1,18 @@
+package com.smartclassroom.backend.repository;
+
+import com.smartclassroom.backend.model.StorageScope;
+import com.smartclassroom.backend.model.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, Long> {
+
+    Optional<StorageUsage> findByScopeAndOwnerId(StorageScope scope, Long ownerId);
+
+    List<StorageUsage> findByScopeAndOwnerIdIn(StorageScope scope, Collection<Long> ownerIds);
+
+    List<StorageUsage> findByScope(StorageScope scope);
+}
@@ -1,10 +1,36 @@
 package com.smartclassroom.backend.repository;
 
 import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.repository.projection.UserIdentityView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.id AS id, u.email AS email, u.role AS role FROM User u WHERE u.email IN :emails")
+    List<UserIdentityView> findIdentitiesByEmailIn(@Param("emails") Collection<String> emails);
+
+    // Forward-only cursor for the upload garbage collector. Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u.profileImageUrl FROM User u WHERE u.profileImageUrl IS NOT NULL")
+    Stream<String> streamProfileImageUrls();
+
+    // URLs that may point at one of the stored filenames: those ending in one, plus any carrying a query
+    // string, which the caller resolves with FileStorageService.toStoredFilename.
+    @Query("SELECT u.profileImageUrl FROM User u WHERE u.profileImageUrl LIKE '%/api/files/%' "
+            + "AND (SUBSTRING(u.profileImageUrl, LOCATE('/api/files/', u.profileImageUrl) + 11) IN :filenames OR u.profileImageUrl LIKE '%?%')")
+    List<String> findProfileImageUrlsReferencing(@Param("filenames") Collection<String> filenames);
 }
@@ -0,0 +1,11 @@
+package com.smartclassroom.backend.repository.projection;
+
+/**
+ * The current maximum of an assignment and its classroom, read without loading the entity.
+ */
+public interface AssignmentScaleView {
+
+    Integer getMaxMarks();
+
+    Long getClassroomId();
+}
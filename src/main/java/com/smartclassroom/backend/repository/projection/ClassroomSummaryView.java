@@ -0,0 +1,23 @@
+package com.smartclassroom.backend.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * A classroom as shown in listings, with its teacher flattened to id and name.
+ */
+public interface ClassroomSummaryView {
+
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+
+    String getCode();
+
+    Long getTeacherId();
+
+    String getTeacherName();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,22 @@
+package com.smartclassroom.backend.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * One (student, submission) cell of a classroom gradebook.
+ * Students without any submission appear once with a null {@code assignmentId}.
+ */
+public interface GradebookCellView {
+
+    Long getStudentId();
+
+    String getStudentName();
+
+    String getStudentEmail();
+
+    Long getAssignmentId();
+
+    Integer getMarks();
+
+    LocalDateTime getSubmittedAt();
+}
@@ -0,0 +1,25 @@
+package com.smartclassroom.backend.repository.projection;
+
+import com.smartclassroom.backend.model.ClassroomRole;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of a classroom's member list. Contact details beyond the email are left out.
+ */
+public interface MemberSummaryView {
+
+    Long getId();
+
+    Long getUserId();
+
+    String getName();
+
+    String getEmail();
+
+    String getProfileImageUrl();
+
+    ClassroomRole getRoleInClass();
+
+    LocalDateTime getJoinedAt();
+}
@@ -0,0 +1,11 @@
+package com.smartclassroom.backend.repository.projection;
+
+/**
+ * Total size of the files charged to one user or classroom.
+ */
+public interface StorageTotalView {
+
+    Long getOwnerId();
+
+    Long getTotalBytes();
+}
@@ -0,0 +1,13 @@
+package com.smartclassroom.backend.repository.projection;
+
+/**
+ * The uploaded content of one submission, with just enough of the student to name it in an archive.
+ */
+public interface SubmissionFileView {
+
+    Long getStudentId();
+
+    String getStudentName();
+
+    String getContentUrl();
+}
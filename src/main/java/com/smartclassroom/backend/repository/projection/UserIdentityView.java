@@ -0,0 +1,15 @@
+package com.smartclassroom.backend.repository.projection;
+
+import com.smartclassroom.backend.model.UserRole;
+
+/**
+ * The columns of a user needed to enrol them, without loading the entity.
+ */
+public interface UserIdentityView {
+
+    Long getId();
+
+    String getEmail();
+
+    UserRole getRole();
+}
@@ -9,6 +9,7 @@ import com.smartclassroom.backend.repository.ClassroomRepository;
 import com.smartclassroom.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -19,6 +20,7 @@ public class AnnouncementService {
     private final AnnouncementRepository announcementRepository;
     private final ClassroomRepository classroomRepository;
     private final UserRepository userRepository;
+    private final FileCleanupService fileCleanupService;
 
     public Announcement createAnnouncement(Long classroomId, Long authorId, String title, String content, String attachmentUrl) {
         Classroom classroom = classroomRepository.findById(classroomId)
@@ -36,24 +38,30 @@ public class AnnouncementService {
         return announcementRepository.save(announcement);
     }
 
+    @Transactional(readOnly = true)
     public List<Announcement> getAnnouncements(Long classroomId) {
         return announcementRepository.findByClassroomIdOrderByCreatedAtDesc(classroomId);
     }
 
     public Announcement clearAttachment(Long announcementId) {
-        Announcement announcement = announcementRepository.findById(announcementId)
+        Announcement announcement = announcementRepository.findWithAuthorById(announcementId)
                 .orElseThrow(() -> new ResourceNotFoundException("Announcement not found with id " + announcementId));
+        String previousUrl = announcement.getAttachmentUrl();
         announcement.setAttachmentUrl(null);
-        return announcementRepository.save(announcement);
+        Announcement saved = announcementRepository.save(announcement);
+        fileCleanupService.deleteWhenUnreferenced(previousUrl);
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public Announcement getAnnouncement(Long announcementId) {
-        return announcementRepository.findById(announcementId)
+        return announcementRepository.findWithAuthorById(announcementId)
                 .orElseThrow(() -> new ResourceNotFoundException("Announcement not found with id " + announcementId));
     }
 
     public void deleteAnnouncement(Long announcementId) {
         Announcement announcement = getAnnouncement(announcementId);
         announcementRepository.delete(announcement);
+        fileCleanupService.deleteWhenUnreferenced(announcement.getAttachmentUrl());
     }
 }
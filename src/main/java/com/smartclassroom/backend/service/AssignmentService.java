@@ -4,6 +4,7 @@ import com.smartclassroom.backend.dto.assignment.AssignmentCreateRequestDTO;
 import com.smartclassroom.backend.dto.assignment.AssignmentStatisticsDTO;
 import com.smartclassroom.backend.dto.assignment.AssignmentUpdateRequestDTO;
 import com.smartclassroom.backend.dto.assignment.StudentAssignmentResponseDTO;
+import com.smartclassroom.backend.event.AssignmentChangedEvent;
 import com.smartclassroom.backend.exception.BadRequestException;
 import com.smartclassroom.backend.exception.ResourceNotFoundException;
 import com.smartclassroom.backend.model.*;
@@ -13,9 +14,12 @@ import com.smartclassroom.backend.repository.ClassroomMemberRepository;
 import com.smartclassroom.backend.repository.ClassroomRepository;
 import com.smartclassroom.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,6 +32,10 @@ public class AssignmentService {
     private final UserRepository userRepository;
     private final AssignmentSubmissionRepository submissionRepository;
     private final ClassroomMemberRepository classroomMemberRepository;
+    private final MarksRescaleService marksRescaleService;
+    private final DashboardCache dashboardCache;
+    private final FileCleanupService fileCleanupService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Assignment createAssignment(Long classroomId, Long teacherId, AssignmentCreateRequestDTO request) {
         Classroom classroom = classroomRepository.findById(classroomId)
@@ -53,13 +61,17 @@ public class AssignmentService {
                 .attachmentUrl(request.getAttachmentUrl())
                 .createdBy(teacher)
                 .build();
-        return assignmentRepository.save(assignment);
+        Assignment saved = assignmentRepository.save(assignment);
+        eventPublisher.publishEvent(new AssignmentChangedEvent(classroomId));
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public List<Assignment> getAssignmentsForClassroom(Long classroomId) {
         return assignmentRepository.findByClassroomId(classroomId);
     }
 
+    @Transactional(readOnly = true)
     public Assignment getAssignmentById(Long assignmentId) {
         return assignmentRepository.findById(assignmentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Assignment not found with id " + assignmentId));
@@ -84,8 +96,12 @@ public class AssignmentService {
             assignment.setDueDate(request.getDueDate());
         }
         if (request.getMaxMarks() != null) {
+            if (Boolean.TRUE.equals(request.getRescaleMarks())) {
+                marksRescaleService.rescaleAssignment(assignmentId, request.getMaxMarks());
+            }
             assignment.setMaxMarks(request.getMaxMarks());
         }
+        String previousAttachmentUrl = assignment.getAttachmentUrl();
         if (request.getAttachmentUrl() != null) {
             String url = request.getAttachmentUrl();
             if (url.isBlank()) {
@@ -95,9 +111,15 @@ public class AssignmentService {
             }
         }
 
-        return assignmentRepository.save(assignment);
+        Assignment saved = assignmentRepository.save(assignment);
+        if (previousAttachmentUrl != null && !previousAttachmentUrl.equals(saved.getAttachmentUrl())) {
+            fileCleanupService.deleteWhenUnreferenced(previousAttachmentUrl);
+        }
+        eventPublisher.publishEvent(new AssignmentChangedEvent(saved.getClassroom().getId()));
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public AssignmentStatisticsDTO getAssignmentStatistics(Long assignmentId) {
         Assignment assignment = getAssignmentById(assignmentId);
 
@@ -118,6 +140,7 @@ public class AssignmentService {
                 .build();
     }
 
+    @Transactional(readOnly = true)
     public List<User> getNonSubmittedStudents(Long assignmentId) {
         Assignment assignment = getAssignmentById(assignmentId);
         List<User> allStudents = classroomMemberRepository.findUsersByClassroomIdAndRole(
@@ -132,8 +155,16 @@ public class AssignmentService {
                 .collect(Collectors.toList());
     }
 
+    // Dashboards are loaded in a read-write transaction to keep them on the primary: they are cached until
+    // an event evicts them, and one reloaded from a replica that has not yet seen the evicting write
+    // would be cached stale.
+    @Transactional
     public List<StudentAssignmentResponseDTO> getStudentAssignments(Long studentId) {
-        User student = userRepository.findById(studentId)
+        return dashboardCache.get(DashboardCache.View.STUDENT, studentId, () -> loadStudentAssignments(studentId));
+    }
+
+    private DashboardCache.Snapshot loadStudentAssignments(Long studentId) {
+        userRepository.findById(studentId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id " + studentId));
 
         List<ClassroomMember> memberships = classroomMemberRepository.findByUserId(studentId);
@@ -142,13 +173,13 @@ public class AssignmentService {
                 .collect(Collectors.toList());
 
         if (classroomIds.isEmpty()) {
-            return List.of();
+            return new DashboardCache.Snapshot(List.of(), classroomIds);
         }
 
         List<Assignment> assignments = assignmentRepository.findByClassroomIdIn(classroomIds);
         LocalDateTime now = LocalDateTime.now();
 
-        return assignments.stream()
+        List<StudentAssignmentResponseDTO> items = assignments.stream()
                 .map(assignment -> {
                     AssignmentSubmission submission = submissionRepository
                             .findByAssignmentIdAndStudentId(assignment.getId(), studentId)
@@ -174,9 +205,15 @@ public class AssignmentService {
                             .build();
                 })
                 .collect(Collectors.toList());
+        return new DashboardCache.Snapshot(items, classroomIds);
     }
 
+    @Transactional
     public List<StudentAssignmentResponseDTO> getTeacherAssignments(Long teacherId) {
+        return dashboardCache.get(DashboardCache.View.TEACHER, teacherId, () -> loadTeacherAssignments(teacherId));
+    }
+
+    private DashboardCache.Snapshot loadTeacherAssignments(Long teacherId) {
         User teacher = userRepository.findById(teacherId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id " + teacherId));
 
@@ -190,13 +227,13 @@ public class AssignmentService {
                 .collect(Collectors.toList());
 
         if (classroomIds.isEmpty()) {
-            return List.of();
+            return new DashboardCache.Snapshot(List.of(), classroomIds);
         }
 
         List<Assignment> assignments = assignmentRepository.findByClassroomIdIn(classroomIds);
         LocalDateTime now = LocalDateTime.now();
 
-        return assignments.stream()
+        List<StudentAssignmentResponseDTO> items = assignments.stream()
                 .map(assignment -> {
                     boolean isPastDeadline = assignment.getDueDate() != null && now.isAfter(assignment.getDueDate());
                     Long submissionCount = submissionRepository.countByAssignmentId(assignment.getId());
@@ -219,14 +256,28 @@ public class AssignmentService {
                             .build();
                 })
                 .collect(Collectors.toList());
+        return new DashboardCache.Snapshot(items, classroomIds);
     }
 
+    /**
+     * Deletes the assignment and its submissions in one transaction: one bulk DELETE for the
+     * submissions, then the assignment row. The uploads they pointed to are handed to the cleanup
+     * once the transaction commits.
+     */
+    @Transactional
     public void deleteAssignment(Long assignmentId) {
-        Assignment assignment = getAssignmentById(assignmentId);
+        // Waits for a rescale or grading in progress rather than deleting under it.
+        Assignment assignment = assignmentRepository.findByIdForUpdate(assignmentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Assignment not found with id " + assignmentId));
+
+        List<String> releasedUrls = new ArrayList<>(submissionRepository.findContentUrlsByAssignmentId(assignmentId));
+        if (assignment.getAttachmentUrl() != null) {
+            releasedUrls.add(assignment.getAttachmentUrl());
+        }
 
-        // First delete submissions referencing this assignment to avoid
-        // foreign key constraint violations, then delete the assignment.
-        submissionRepository.deleteAll(submissionRepository.findByAssignmentId(assignmentId));
-        assignmentRepository.delete(assignment);
+        submissionRepository.deleteAllByAssignmentIdInBulk(assignmentId);
+        assignmentRepository.deleteByIdInBulk(assignmentId);
+        fileCleanupService.deleteWhenUnreferenced(releasedUrls);
+        eventPublisher.publishEvent(new AssignmentChangedEvent(assignment.getClassroom().getId()));
     }
 }
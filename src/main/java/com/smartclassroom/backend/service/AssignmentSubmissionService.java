@@ -2,6 +2,7 @@ package com.smartclassroom.backend.service;
 
 import com.smartclassroom.backend.dto.assignment.AssignmentSubmissionRequestDTO;
 import com.smartclassroom.backend.dto.assignment.GradeSubmissionRequestDTO;
+import com.smartclassroom.backend.event.SubmissionChangedEvent;
 import com.smartclassroom.backend.exception.BadRequestException;
 import com.smartclassroom.backend.exception.DuplicateResourceException;
 import com.smartclassroom.backend.exception.ResourceNotFoundException;
@@ -9,8 +10,11 @@ import com.smartclassroom.backend.model.*;
 import com.smartclassroom.backend.repository.AssignmentRepository;
 import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
 import com.smartclassroom.backend.repository.UserRepository;
+import com.smartclassroom.backend.repository.projection.AssignmentScaleView;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,6 +26,7 @@ public class AssignmentSubmissionService {
     private final AssignmentSubmissionRepository submissionRepository;
     private final AssignmentRepository assignmentRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AssignmentSubmission submitAssignment(Long assignmentId, Long studentId, AssignmentSubmissionRequestDTO request) {
         Assignment assignment = assignmentRepository.findById(assignmentId)
@@ -42,7 +47,9 @@ public class AssignmentSubmissionService {
                 .student(student)
                 .contentUrl(request.getContentUrl())
                 .build();
-        return submissionRepository.save(submission);
+        AssignmentSubmission saved = submissionRepository.save(submission);
+        eventPublisher.publishEvent(new SubmissionChangedEvent(assignment.getClassroom().getId(), studentId));
+        return saved;
     }
 
     public List<AssignmentSubmission> getSubmissionsForAssignment(Long assignmentId) {
@@ -50,16 +57,29 @@ public class AssignmentSubmissionService {
     }
 
     public AssignmentSubmission getSubmissionForStudent(Long assignmentId, Long studentId) {
-        return submissionRepository.findByAssignmentIdAndStudentId(assignmentId, studentId)
+        return submissionRepository.findWithStudentByAssignmentIdAndStudentId(assignmentId, studentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Submission not found"));
     }
 
+    @Transactional
     public AssignmentSubmission gradeSubmission(Long submissionId, GradeSubmissionRequestDTO request) {
-        AssignmentSubmission submission = submissionRepository.findById(submissionId)
+        // Locking the row first makes a rescale in flight finish before the scale is read below, and
+        // makes one that starts now wait for this grade and then rescale it too.
+        AssignmentSubmission submission = submissionRepository.findWithStudentByIdForUpdate(submissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Submission not found with id " + submissionId));
 
+        Long assignmentId = submission.getAssignment().getId();
+        AssignmentScaleView scale = assignmentRepository.findScaleById(assignmentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Assignment not found with id " + assignmentId));
+        Integer maxMarks = scale.getMaxMarks();
+        if (request.getMarks() < 0 || (maxMarks != null && request.getMarks() > maxMarks)) {
+            throw new BadRequestException("marks must be between 0 and " + (maxMarks != null ? maxMarks : "the maximum"));
+        }
+
         submission.setMarks(request.getMarks());
         submission.setFeedback(request.getFeedback());
-        return submissionRepository.save(submission);
+        AssignmentSubmission saved = submissionRepository.save(submission);
+        eventPublisher.publishEvent(new SubmissionChangedEvent(scale.getClassroomId(), submission.getStudent().getId()));
+        return saved;
     }
 }
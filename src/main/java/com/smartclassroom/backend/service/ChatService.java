@@ -10,6 +10,7 @@ import com.smartclassroom.backend.repository.ClassroomRepository;
 import com.smartclassroom.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -58,6 +59,7 @@ public class ChatService {
         return chatMessageRepository.save(message);
     }
 
+    @Transactional(readOnly = true)
     public List<ChatMessage> getRecentMessages(Long classroomId, Long userId) {
         // Verify that the user is a member of the classroom (teacher or enrolled member)
         if (!isUserMemberOfClassroom(classroomId, userId)) {
@@ -0,0 +1,223 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Resolves class codes to classroom ids, answering most lookups without a query.
+ * <p>
+ * A {@link BloomFilter} over every code rejects unknown (typically mistyped) codes outright; a
+ * bounded cache maps recently used codes to their classroom. Only a cache miss on a code the filter
+ * may contain goes to the database. The filter is rebuilt from the database at startup and
+ * periodically, which also drops codes of deleted classrooms. In between, a frequent refresh adds the
+ * codes of classrooms created since, including those other instances created. A negative answer of
+ * the filter is only trusted while the last build or refresh is at most
+ * {@code classroom.code-index.max-staleness} old; until the first build, and whenever refreshes
+ * fall behind, every lookup goes to the database.
+ * <p>
+ * The code column uses the database's default collation, which on MySQL ({@code utf8mb4_0900_ai_ci})
+ * ignores case and accents: a student typing {@code abcd1234} joins the classroom with code
+ * {@code ABcd1234}, and the unique key treats the two as the same code. The filter and the cache are
+ * therefore keyed by {@link #normalize(String) normalized} codes, so that they agree with the database
+ * instead of rejecting codes it would match.
+ */
+@Component
+public class ClassCodeIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassCodeIndex.class);
+
+    private static final int CACHE_SIZE = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Room for codes created until the next rebuild.
+    private static final int MIN_CAPACITY = 1024;
+    // How far each refresh reaches back before the previous one, covering clock skew between
+    // instances and classrooms committed some time after their creation timestamp.
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ClassroomRepository classroomRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long maxStalenessNanos;
+
+    private volatile BloomFilter filter;
+    // System.nanoTime() when the database read of the last successful build or refresh began.
+    private volatile long syncedAt;
+    // Wall-clock time of the same moment, compared with creation timestamps by the next refresh.
+    private volatile LocalDateTime refreshedAt;
+    // Codes added while a rebuild is reading the database; null when no rebuild is running.
+    private Set<String> addedDuringRebuild;
+    private final Object filterLock = new Object();
+
+    private final Map<String, Long> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public ClassCodeIndex(ClassroomRepository classroomRepository, PlatformTransactionManager transactionManager,
+                          @Value("${classroom.code-index.max-staleness:PT30S}") Duration maxStaleness) {
+        this.classroomRepository = classroomRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
+    public Optional<Long> findClassroomId(String code) {
+        String key = normalize(code);
+        if (certainlyAbsent(key)) {
+            return Optional.empty();
+        }
+        synchronized (cache) {
+            Long cached = cache.get(key);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<Long> classroomId = classroomRepository.findIdByCode(code);
+        classroomId.ifPresent(id -> {
+            synchronized (cache) {
+                cache.put(key, id);
+            }
+        });
+        return classroomId;
+    }
+
+    /**
+     * True if {@code code} is certainly not in use; a code the filter may contain is checked against
+     * the database.
+     */
+    public boolean isUnused(String code) {
+        return certainlyAbsent(normalize(code)) || !classroomRepository.existsByCode(code);
+    }
+
+    /**
+     * The form in which the database collation compares {@code code}: lower case, without accents.
+     */
+    static String normalize(String code) {
+        String folded = code.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < folded.length(); i++) {
+            if (folded.charAt(i) >= 0x80) {
+                return COMBINING_MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return folded;
+    }
+
+    private boolean certainlyAbsent(String key) {
+        BloomFilter current = filter;
+        return current != null
+                && System.nanoTime() - syncedAt < maxStalenessNanos
+                && !current.mightContain(key);
+    }
+
+    public void add(String code, Long classroomId) {
+        String key = normalize(code);
+        synchronized (filterLock) {
+            BloomFilter current = filter;
+            if (current != null) {
+                current.add(key);
+            }
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(key);
+            }
+        }
+        synchronized (cache) {
+            cache.put(key, classroomId);
+        }
+    }
+
+    // The code stays in the filter until the next rebuild; lookups of it then fall through to the database.
+    public void remove(String code) {
+        synchronized (cache) {
+            cache.remove(normalize(code));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${classroom.code-index.rebuild-interval:PT1H}",
+            initialDelayString = "${classroom.code-index.rebuild-interval:PT1H}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        synchronized (filterLock) {
+            addedDuringRebuild = ConcurrentHashMap.newKeySet();
+        }
+        try {
+            BloomFilter rebuilt = readOnlyTransaction.execute(status -> {
+                long count = classroomRepository.count();
+                BloomFilter next = new BloomFilter(Math.max(MIN_CAPACITY, count * 2), FALSE_POSITIVE_RATE);
+                try (Stream<String> codes = classroomRepository.streamCodes()) {
+                    codes.map(ClassCodeIndex::normalize).forEach(next::add);
+                }
+                return next;
+            });
+            synchronized (filterLock) {
+                addedDuringRebuild.forEach(rebuilt::add);
+                filter = rebuilt;
+                syncedAt = start;
+                refreshedAt = startedAt;
+            }
+            log.debug("Rebuilt class code index in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException ex) {
+            log.warn("Could not rebuild class code index", ex);
+        } finally {
+            synchronized (filterLock) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Adds the codes of classrooms created since the last build or refresh, so that the filter stays
+     * fresh enough for its negative answers to be trusted.
+     */
+    @Scheduled(fixedDelayString = "${classroom.code-index.refresh-interval:PT5S}",
+            initialDelayString = "${classroom.code-index.refresh-interval:PT5S}")
+    public void refresh() {
+        LocalDateTime since = refreshedAt;
+        if (filter == null || since == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<String> codes = readOnlyTransaction.execute(
+                    status -> classroomRepository.findCodesCreatedSince(since.minus(REFRESH_OVERLAP))).stream()
+                    .map(ClassCodeIndex::normalize)
+                    .toList();
+            synchronized (filterLock) {
+                BloomFilter current = filter;
+                codes.forEach(current::add);
+                if (addedDuringRebuild != null) {
+                    addedDuringRebuild.addAll(codes);
+                }
+                syncedAt = start;
+                refreshedAt = startedAt;
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not refresh class code index", ex);
+        }
+    }
+}
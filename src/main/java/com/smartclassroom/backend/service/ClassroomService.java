@@ -2,23 +2,39 @@ package com.smartclassroom.backend.service;
 
 import com.smartclassroom.backend.dto.classroom.ClassroomCreateRequestDTO;
 import com.smartclassroom.backend.dto.classroom.JoinClassroomRequestDTO;
+import com.smartclassroom.backend.dto.classroom.MemberPageDTO;
+import com.smartclassroom.backend.event.MembershipChangedEvent;
 import com.smartclassroom.backend.exception.BadRequestException;
 import com.smartclassroom.backend.exception.DuplicateResourceException;
 import com.smartclassroom.backend.exception.ResourceNotFoundException;
 import com.smartclassroom.backend.model.*;
 import com.smartclassroom.backend.repository.*;
+import com.smartclassroom.backend.repository.projection.ClassroomSummaryView;
+import com.smartclassroom.backend.repository.projection.MemberSummaryView;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Base64;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class ClassroomService {
 
+    private static final Logger log = LoggerFactory.getLogger(ClassroomService.class);
+
     private final ClassroomRepository classroomRepository;
     private final ClassroomMemberRepository classroomMemberRepository;
     private final UserRepository userRepository;
@@ -26,8 +42,17 @@ public class ClassroomService {
     private final AssignmentRepository assignmentRepository;
     private final AnnouncementRepository announcementRepository;
     private final ChatMessageRepository chatMessageRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ClassCodeIndex classCodeIndex;
 
     private static final SecureRandom RANDOM = new SecureRandom();
+    // 48 random bits per code, so a retry is practically never needed; the bound only guards against
+    // a broken random source. Applies both to codes the index reports as taken and to inserts that
+    // hit the unique key on the code.
+    private static final int MAX_CODE_ATTEMPTS = 10;
+
+    private static final Set<String> CLASSROOM_SORT_PROPERTIES = Set.of("id", "name", "code", "createdAt", "teacherName");
+    private static final int MAX_MEMBER_PAGE_SIZE = 500;
 
     public Classroom createClassroom(Long teacherId, ClassroomCreateRequestDTO request) {
         User teacher = userRepository.findById(teacherId)
@@ -36,14 +61,8 @@ public class ClassroomService {
             throw new BadRequestException("Only teachers can create classrooms");
         }
 
-        String code = generateClassCode();
-        Classroom classroom = Classroom.builder()
-                .name(request.getName())
-                .description(request.getDescription())
-                .code(code)
-                .teacher(teacher)
-                .build();
-        Classroom saved = classroomRepository.save(classroom);
+        Classroom saved = saveWithUnusedCode(teacher, request);
+        classCodeIndex.add(saved.getCode(), saved.getId());
 
         ClassroomMember teacherMember = ClassroomMember.builder()
                 .classroom(saved)
@@ -51,15 +70,17 @@ public class ClassroomService {
                 .roleInClass(ClassroomRole.TEACHER)
                 .build();
         classroomMemberRepository.save(teacherMember);
+        eventPublisher.publishEvent(new MembershipChangedEvent(saved.getId(), teacherId));
         return saved;
     }
 
+    @Transactional(readOnly = true)
     public List<Classroom> getClassrooms(Long teacherId, Long studentId) {
         if (teacherId != null) {
             return classroomRepository.findByTeacherId(teacherId);
         }
         if (studentId != null) {
-            return classroomMemberRepository.findByUserId(studentId).stream()
+            return classroomMemberRepository.findWithClassroomByUserId(studentId).stream()
                     .map(ClassroomMember::getClassroom)
                     .distinct()
                     .toList();
@@ -67,13 +88,88 @@ public class ClassroomService {
         return classroomRepository.findAll();
     }
 
+    /**
+     * One page of classrooms, selecting only the listed columns. Filters like {@link #getClassrooms}.
+     */
+    @Transactional(readOnly = true)
+    public Page<ClassroomSummaryView> getClassroomPage(Long teacherId, Long studentId, Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!CLASSROOM_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new BadRequestException("Cannot sort classrooms by " + order.getProperty()
+                        + "; use one of " + CLASSROOM_SORT_PROPERTIES);
+            }
+        }
+        if (teacherId != null) {
+            return classroomRepository.findSummariesByTeacherId(teacherId, pageable);
+        }
+        if (studentId != null) {
+            return classroomMemberRepository.findClassroomSummariesByUserId(studentId, pageable);
+        }
+        return classroomRepository.findSummaries(pageable);
+    }
+
+    /**
+     * One page of a classroom's members in join order, or by name if {@code byName} is set. Pages are
+     * keyset-paginated: {@code cursor} is the {@code nextCursor} of the previous page, or {@code null}
+     * for the first, so every page costs one indexed range query however deep it is.
+     */
+    @Transactional(readOnly = true)
+    public MemberPageDTO getMemberPage(Long classroomId, String cursor, int size, boolean byName) {
+        int limit = Math.max(1, Math.min(size, MAX_MEMBER_PAGE_SIZE));
+        boolean firstPage = cursor == null || cursor.isBlank();
+        long afterId = 0;
+        String afterName = "";
+        if (!firstPage) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                if (byName && separator < 0) {
+                    // A cursor of the join order; it has no name to continue from.
+                    throw new BadRequestException("Invalid cursor");
+                }
+                afterId = Long.parseLong(separator >= 0 ? decoded.substring(0, separator) : decoded);
+                afterName = separator >= 0 ? decoded.substring(separator + 1) : "";
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+
+        List<MemberSummaryView> members;
+        if (!byName) {
+            members = classroomMemberRepository.findMemberPage(classroomId, afterId, Limit.of(limit));
+        } else if (firstPage) {
+            members = classroomMemberRepository.findFirstMemberPageByName(classroomId, Limit.of(limit));
+        } else {
+            members = classroomMemberRepository.findMemberPageByName(classroomId, afterName, afterId, Limit.of(limit));
+        }
+        // An empty first page may just mean there is no such classroom.
+        if (members.isEmpty() && firstPage && !classroomRepository.existsById(classroomId)) {
+            throw new ResourceNotFoundException("Classroom not found with id " + classroomId);
+        }
+
+        String nextCursor = null;
+        if (members.size() == limit) {
+            MemberSummaryView last = members.get(members.size() - 1);
+            String position = byName ? last.getId() + ":" + last.getName() : String.valueOf(last.getId());
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+        return MemberPageDTO.builder()
+                .members(members)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
     public Classroom getClassroomById(Long id) {
-        return classroomRepository.findById(id)
+        return classroomRepository.findWithTeacherById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Classroom not found with id " + id));
     }
 
     public ClassroomMember joinClassroom(Long userId, JoinClassroomRequestDTO request) {
-        Classroom classroom = classroomRepository.findByCode(request.getCode())
+        // Mistyped codes are rejected by the index without a query.
+        Classroom classroom = classCodeIndex.findClassroomId(request.getCode())
+                .flatMap(classroomRepository::findWithTeacherById)
                 .orElseThrow(() -> new ResourceNotFoundException("Classroom not found for code " + request.getCode()));
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id " + userId));
@@ -89,9 +185,12 @@ public class ClassroomService {
                 .roleInClass(roleInClass)
                 .build();
 
-        return classroomMemberRepository.save(member);
+        ClassroomMember saved = classroomMemberRepository.save(member);
+        eventPublisher.publishEvent(new MembershipChangedEvent(classroom.getId(), userId));
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public List<ClassroomMember> getMembers(Long classroomId) {
         classroomRepository.findById(classroomId)
                 .orElseThrow(() -> new ResourceNotFoundException("Classroom not found with id " + classroomId));
@@ -134,6 +233,8 @@ public class ClassroomService {
         
         // 6. Finally, delete the classroom itself
         classroomRepository.delete(classroom);
+        classCodeIndex.remove(classroom.getCode());
+        eventPublisher.publishEvent(new MembershipChangedEvent(classroomId, null));
     }
 
     public void leaveClassroom(Long classroomId, Long userId) {
@@ -150,12 +251,41 @@ public class ClassroomService {
                 .orElseThrow(() -> new ResourceNotFoundException("User is not a member of this classroom"));
         
         classroomMemberRepository.delete(member);
+        eventPublisher.publishEvent(new MembershipChangedEvent(classroomId, userId));
+    }
+
+    // The index can miss a code another instance has just taken, in which case the insert violates the
+    // unique key on the code and is retried with a new one. Runs outside a transaction, so each attempt
+    // commits or rolls back on its own.
+    private Classroom saveWithUnusedCode(User teacher, ClassroomCreateRequestDTO request) {
+        for (int attempt = 1; ; attempt++) {
+            Classroom classroom = Classroom.builder()
+                    .name(request.getName())
+                    .description(request.getDescription())
+                    .code(generateClassCode())
+                    .teacher(teacher)
+                    .build();
+            try {
+                return classroomRepository.save(classroom);
+            } catch (DataIntegrityViolationException ex) {
+                if (attempt >= MAX_CODE_ATTEMPTS) {
+                    throw ex;
+                }
+                log.debug("Class code {} was taken concurrently, retrying with a new one", classroom.getCode());
+            }
+        }
     }
 
     private String generateClassCode() {
-        byte[] buffer = new byte[6];
-        RANDOM.nextBytes(buffer);
-        String code = Base64.getUrlEncoder().withoutPadding().encodeToString(buffer);
-        return code.substring(0, Math.min(8, code.length()));
+        for (int attempt = 0; attempt < MAX_CODE_ATTEMPTS; attempt++) {
+            byte[] buffer = new byte[6];
+            RANDOM.nextBytes(buffer);
+            String code = Base64.getUrlEncoder().withoutPadding().encodeToString(buffer);
+            code = code.substring(0, Math.min(8, code.length()));
+            if (classCodeIndex.isUnused(code)) {
+                return code;
+            }
+        }
+        throw new IllegalStateException("Could not generate an unused class code");
     }
 }
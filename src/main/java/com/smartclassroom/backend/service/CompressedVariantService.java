@@ -0,0 +1,186 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.metrics.CompressionStatsDTO;
+import com.smartclassroom.backend.event.FileStoredEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps gzip copies of text-like uploads so they are compressed once, not on every download.
+ * <p>
+ * A variant is generated in the background after each upload (and lazily for files uploaded before
+ * this existed) at the highest compression level. It is only kept if it saves at least a tenth of
+ * the size. Brotli and zstd are not offered: the JDK has no encoder for either.
+ */
+@Service
+public class CompressedVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressedVariantService.class);
+
+    static final String GZIP_VARIANT = "gzip";
+
+    // Below this, the per-response saving does not pay for the extra file.
+    private static final long MIN_SIZE = 1024;
+    private static final double MAX_RATIO = 0.9;
+
+    private static final Set<String> COMPRESSIBLE_APPLICATION_TYPES = Set.of(
+            "json", "xml", "javascript", "x-javascript", "ecmascript", "x-ndjson", "csv", "rtf", "x-sh",
+            "x-yaml", "yaml", "sql", "graphql", "ld+json", "xhtml+xml");
+
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder variants = new LongAdder();
+    private final LongAdder originalBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder bytesSavedOnResponses = new LongAdder();
+
+    public CompressedVariantService(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1_000), runnable -> {
+                    Thread thread = new Thread(runnable, "gzip-variants");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static boolean isCompressible(MediaType contentType) {
+        if ("text".equals(contentType.getType())) {
+            return true;
+        }
+        String subtype = contentType.getSubtype();
+        if ("image".equals(contentType.getType())) {
+            return subtype.startsWith("svg");
+        }
+        return "application".equals(contentType.getType())
+                && (COMPRESSIBLE_APPLICATION_TYPES.contains(subtype) || subtype.endsWith("+json") || subtype.endsWith("+xml"));
+    }
+
+    @EventListener
+    public void onFileStored(FileStoredEvent event) {
+        schedule(fileStorageService.describe(event.filename()));
+    }
+
+    /**
+     * Returns the gzip variant of {@code file} if it exists; otherwise schedules its generation and
+     * returns empty so the caller serves the original this time.
+     */
+    public Optional<Path> findGzip(FileStorageService.StoredFile file) {
+        Path variant = fileStorageService.variantPath(file.filename(), GZIP_VARIANT);
+        if (Files.exists(variant)) {
+            return Optional.of(variant);
+        }
+        schedule(file);
+        return Optional.empty();
+    }
+
+    public void recordCompressedResponse(long originalSize, long compressedSize) {
+        compressedResponses.increment();
+        bytesSavedOnResponses.add(originalSize - compressedSize);
+    }
+
+    public CompressionStatsDTO getStats() {
+        long original = originalBytes.sum();
+        long compressed = compressedBytes.sum();
+        return CompressionStatsDTO.builder()
+                .variantsGenerated(variants.sum())
+                .originalBytes(original)
+                .compressedBytes(compressed)
+                .compressionRatio(original == 0 ? 0.0 : (double) compressed / original)
+                .compressedResponses(compressedResponses.sum())
+                .bytesSavedOnResponses(bytesSavedOnResponses.sum())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Files that turned out not to compress well get a zero-length ".skip" marker so they are not retried.
+    private void schedule(FileStorageService.StoredFile file) {
+        if (!file.isLocal() || file.size() < MIN_SIZE || !isCompressible(file.contentType())) {
+            return;
+        }
+        if (Files.exists(fileStorageService.variantPath(file.filename(), GZIP_VARIANT + ".skip"))
+                || !pending.add(file.filename())) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(file);
+                } finally {
+                    pending.remove(file.filename());
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Busy; the next request for the file will try again.
+            pending.remove(file.filename());
+        }
+    }
+
+    private void generate(FileStorageService.StoredFile file) {
+        Path target = fileStorageService.variantPath(file.filename(), GZIP_VARIANT);
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), file.filename(), ".part");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                Files.copy(file.path(), out);
+            }
+
+            long size = Files.size(temp);
+            if (size > file.size() * MAX_RATIO) {
+                Files.createFile(fileStorageService.variantPath(file.filename(), GZIP_VARIANT + ".skip"));
+                return;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            variants.increment();
+            originalBytes.add(file.size());
+            compressedBytes.add(size);
+        } catch (NoSuchFileException ex) {
+            // Deleted before we got to it.
+        } catch (IOException ex) {
+            log.warn("Could not compress {}", file.filename(), ex);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    log.debug("Could not delete {}", temp, ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.storage.StorageReportDTO;
+import com.smartclassroom.backend.model.FileBlob;
+import com.smartclassroom.backend.model.LogicalFile;
+import com.smartclassroom.backend.repository.FileBlobRepository;
+import com.smartclassroom.backend.repository.LogicalFileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Deduplicating file store: every unique content is kept once under {@code blobs/ab/cd/<sha-256>}
+ * and logical filenames (the ones in download URLs) point at it with a reference count.
+ * <p>
+ * Uploads are hashed while they are written to a temporary file and then moved into place atomically,
+ * so a blob path only ever shows complete content. Reference count changes lock the blob row, and the
+ * blob file is created and retired while that lock is held; a concurrent upload of the same content
+ * therefore either sees the existing blob or recreates it after the removal has committed.
+ */
+@Component
+public class ContentAddressedStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentAddressedStore.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Path blobRoot;
+    private final Path tempDir;
+    private final FileBlobRepository blobRepository;
+    private final LogicalFileRepository logicalFileRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ContentAddressedStore(@Value("${file.upload-dir:uploads}") String uploadDir,
+                                 FileBlobRepository blobRepository,
+                                 LogicalFileRepository logicalFileRepository,
+                                 PlatformTransactionManager transactionManager) {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.blobRoot = root.resolve("blobs");
+        this.tempDir = root.resolve("tmp");
+        this.blobRepository = blobRepository;
+        this.logicalFileRepository = logicalFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            Files.createDirectories(blobRoot);
+            Files.createDirectories(tempDir);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create blob directories", ex);
+        }
+    }
+
+    /**
+     * Stores {@code content} under the logical name {@code filename}.
+     *
+     * @return the path of the blob now holding the content
+     */
+    public Path store(String filename, InputStream content) throws IOException {
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = content;
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            link(filename, hash, size, temp);
+            return blobPath(hash);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Moves an existing flat file into the store under its current name. Does nothing if the name
+     * is already mapped.
+     *
+     * @return {@code true} if the file was adopted
+     */
+    public boolean adopt(String filename, Path file) throws IOException {
+        if (logicalFileRepository.existsById(filename)) {
+            return false;
+        }
+        // Hashed while it is copied; a copy rather than a move, so the flat file keeps serving downloads
+        // until its mapping has committed.
+        store(filename, Files.newInputStream(file));
+        Files.deleteIfExists(file);
+        return true;
+    }
+
+    public Optional<Path> locate(String filename) {
+        return logicalFileRepository.findBlobHashByFilename(filename).map(this::blobPath);
+    }
+
+    /**
+     * Returns the content hash if {@code path} is a blob of this store.
+     */
+    public Optional<String> hashOf(Path path) {
+        return path.startsWith(blobRoot) ? Optional.of(path.getFileName().toString()) : Optional.empty();
+    }
+
+    /**
+     * Drops the logical name and, with its last reference, the blob itself.
+     *
+     * @return {@code true} if the name was mapped
+     */
+    public boolean release(String filename) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            String hash = logicalFileRepository.findBlobHashByFilename(filename).orElse(null);
+            if (hash == null) {
+                return false;
+            }
+            FileBlob blob = blobRepository.findByHashForUpdate(hash).orElseThrow();
+            if (logicalFileRepository.deleteByFilename(filename) == 0) {
+                // Released concurrently while we waited for the lock.
+                return false;
+            }
+            blob.setRefCount(blob.getRefCount() - 1);
+            if (blob.getRefCount() <= 0) {
+                blobRepository.delete(blob);
+                retire(hash);
+            }
+            return true;
+        }));
+    }
+
+    public StorageReportDTO getReport() {
+        long logicalBytes = logicalFileRepository.sumLogicalSize();
+        long storedBytes = blobRepository.sumSize();
+        return StorageReportDTO.builder()
+                .logicalFiles(logicalFileRepository.count())
+                .blobs(blobRepository.count())
+                .logicalBytes(logicalBytes)
+                .storedBytes(storedBytes)
+                .bytesSaved(logicalBytes - storedBytes)
+                .build();
+    }
+
+    Path blobPath(String hash) {
+        return blobRoot.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    // Maps filename to the blob, creating the blob from source if needed. Two uploads of the same new
+    // content may both try to insert the blob row; the loser retries and finds it.
+    private void link(String filename, String hash, long size, Path source) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    FileBlob blob = blobRepository.findByHashForUpdate(hash)
+                            .orElseGet(() -> blobRepository.saveAndFlush(FileBlob.builder()
+                                    .hash(hash)
+                                    .size(size)
+                                    .refCount(0)
+                                    .build()));
+                    blob.setRefCount(blob.getRefCount() + 1);
+                    materialize(hash, source);
+                    logicalFileRepository.save(LogicalFile.builder().filename(filename).blob(blob).build());
+                });
+                return;
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException ex) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+                log.debug("Retrying link of {} to blob {} after conflict", filename, hash);
+            }
+        }
+    }
+
+    private void materialize(String hash, Path source) {
+        Path target = blobPath(hash);
+        if (Files.exists(target)) {
+            return;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not store blob " + hash, ex);
+        }
+    }
+
+    // Moves the blob aside while the row lock is held; the file is deleted once the removal commits
+    // and put back if it rolls back.
+    private void retire(String hash) {
+        Path blob = blobPath(hash);
+        Path retired = tempDir.resolve(hash + ".retired");
+        try {
+            Files.move(blob, retired, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log.warn("Could not retire blob {}", hash, ex);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        Files.deleteIfExists(retired);
+                    } else {
+                        Files.move(retired, blob, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } catch (IOException ex) {
+                    log.warn("Could not finish retiring blob {}", hash, ex);
+                }
+            }
+        });
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.assignment.StudentAssignmentResponseDTO;
+import com.smartclassroom.backend.dto.metrics.DashboardCacheStatsDTO;
+import com.smartclassroom.backend.event.AssignmentChangedEvent;
+import com.smartclassroom.backend.event.ClassroomEvent;
+import com.smartclassroom.backend.event.MembershipChangedEvent;
+import com.smartclassroom.backend.event.SubmissionChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cache of the "my assignments" dashboards.
+ * <p>
+ * Entries are evicted by {@link ClassroomEvent}s rather than by time: an assignment change evicts every
+ * dashboard that includes the classroom, a submission change evicts the student's dashboard and the
+ * classroom teacher's, and a membership change evicts the user's dashboards. Events are handled both
+ * before and after the writing transaction commits; a load that overlaps an eviction of its own
+ * dashboard or of one of its classrooms is returned to its caller but never stored, so a dashboard
+ * computed from pre-commit data cannot outlive the write. Loads of unrelated dashboards are unaffected.
+ * A long TTL only bounds how long an entry can live if an event is ever missed; expired entries are
+ * purged, and the oldest entries make room once the cache is full.
+ */
+@Component
+public class DashboardCache {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+    private static final int MAX_ENTRIES = 50_000;
+    // Share of the entries dropped, oldest first, when the cache is full of live entries.
+    private static final int EVICT_WHEN_FULL = MAX_ENTRIES / 10;
+    // Eviction stamps are kept per slot; dashboards or classrooms sharing a slot only cost each other a store.
+    private static final int STAMP_SLOTS = 4096;
+
+    public enum View {
+        STUDENT,
+        TEACHER
+    }
+
+    /**
+     * Result of a dashboard computation together with the classrooms it was derived from.
+     */
+    public record Snapshot(List<StudentAssignmentResponseDTO> items, Collection<Long> classroomIds) {
+    }
+
+    private record Key(View view, Long userId) {
+    }
+
+    private record Entry(List<StudentAssignmentResponseDTO> items, Set<Long> classroomIds, long loadedAtMillis) {
+    }
+
+    private final Clock clock;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Key>> studentKeysByClassroom = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Key>> teacherKeysByClassroom = new ConcurrentHashMap<>();
+
+    // Every eviction takes the next sequence number and records it against the dashboards and the
+    // classrooms (per view) it touched. A load only populates the cache if nothing it depends on was
+    // stamped after the load started.
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray keyStamps = new AtomicLongArray(STAMP_SLOTS);
+    private final AtomicLongArray studentClassroomStamps = new AtomicLongArray(STAMP_SLOTS);
+    private final AtomicLongArray teacherClassroomStamps = new AtomicLongArray(STAMP_SLOTS);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public DashboardCache() {
+        this(Clock.systemDefaultZone());
+    }
+
+    DashboardCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    public List<StudentAssignmentResponseDTO> get(View view, Long userId, Supplier<Snapshot> loader) {
+        Key key = new Key(view, userId);
+        Entry entry = entries.get(key);
+        if (entry != null && !expired(entry, clock.millis())) {
+            hits.incrementAndGet();
+            return withCurrentDeadlines(entry.items());
+        }
+
+        misses.incrementAndGet();
+        long loadStartedAt = sequence.get();
+        Snapshot snapshot = loader.get();
+        store(key, snapshot, loadStartedAt);
+        return withCurrentDeadlines(snapshot.items());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onEventBeforeCommit(ClassroomEvent event) {
+        evict(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEvent(ClassroomEvent event) {
+        evict(event);
+    }
+
+    public synchronized void evict(ClassroomEvent event) {
+        long stamp = sequence.incrementAndGet();
+        evictions.incrementAndGet();
+        switch (event) {
+            case AssignmentChangedEvent e -> evictClassroom(e.classroomId(), stamp);
+            case SubmissionChangedEvent e -> {
+                evictKey(new Key(View.STUDENT, e.studentId()), stamp);
+                stamp(teacherClassroomStamps, e.classroomId(), stamp);
+                removeAll(teacherKeysByClassroom.get(e.classroomId()));
+            }
+            case MembershipChangedEvent e -> {
+                if (e.userId() != null) {
+                    evictKey(new Key(View.STUDENT, e.userId()), stamp);
+                    evictKey(new Key(View.TEACHER, e.userId()), stamp);
+                } else {
+                    evictClassroom(e.classroomId(), stamp);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        long stamp = sequence.incrementAndGet();
+        for (int slot = 0; slot < STAMP_SLOTS; slot++) {
+            keyStamps.set(slot, stamp);
+        }
+        entries.clear();
+        studentKeysByClassroom.clear();
+        teacherKeysByClassroom.clear();
+    }
+
+    public DashboardCacheStatsDTO getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        return DashboardCacheStatsDTO.builder()
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                .evictions(evictions.get())
+                .entries(entries.size())
+                .build();
+    }
+
+    private synchronized void store(Key key, Snapshot snapshot, long loadStartedAt) {
+        Set<Long> classroomIds = Set.copyOf(snapshot.classroomIds());
+        if (stampedSince(key, classroomIds, loadStartedAt)) {
+            return;
+        }
+        remove(key);
+        if (entries.size() >= MAX_ENTRIES) {
+            makeRoom();
+        }
+        entries.put(key, new Entry(List.copyOf(snapshot.items()), classroomIds, clock.millis()));
+        Map<Long, Set<Key>> index = key.view() == View.STUDENT ? studentKeysByClassroom : teacherKeysByClassroom;
+        for (Long classroomId : classroomIds) {
+            index.computeIfAbsent(classroomId, id -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private boolean stampedSince(Key key, Set<Long> classroomIds, long loadStartedAt) {
+        if (keyStamps.get(slot(key)) > loadStartedAt) {
+            return true;
+        }
+        AtomicLongArray classroomStamps = key.view() == View.STUDENT ? studentClassroomStamps : teacherClassroomStamps;
+        for (Long classroomId : classroomIds) {
+            if (classroomStamps.get(slot(classroomId)) > loadStartedAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Drops expired entries and, if that is not enough, the oldest ones, so a full cache costs one
+    // pass per EVICT_WHEN_FULL stores rather than one per store.
+    private void makeRoom() {
+        long now = clock.millis();
+        List<Map.Entry<Key, Entry>> live = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+            if (expired(candidate.getValue(), now)) {
+                remove(candidate.getKey());
+            } else {
+                live.add(candidate);
+            }
+        }
+        if (entries.size() < MAX_ENTRIES) {
+            return;
+        }
+        live.sort(Comparator.comparingLong(candidate -> candidate.getValue().loadedAtMillis()));
+        for (Map.Entry<Key, Entry> oldest : live.subList(0, Math.min(EVICT_WHEN_FULL, live.size()))) {
+            remove(oldest.getKey());
+        }
+    }
+
+    private void evictClassroom(Long classroomId, long stamp) {
+        stamp(studentClassroomStamps, classroomId, stamp);
+        stamp(teacherClassroomStamps, classroomId, stamp);
+        removeAll(studentKeysByClassroom.get(classroomId));
+        removeAll(teacherKeysByClassroom.get(classroomId));
+    }
+
+    private void evictKey(Key key, long stamp) {
+        keyStamps.set(slot(key), stamp);
+        remove(key);
+    }
+
+    private static void stamp(AtomicLongArray stamps, Long classroomId, long stamp) {
+        stamps.set(slot(classroomId), stamp);
+    }
+
+    private static int slot(Object id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (STAMP_SLOTS - 1);
+    }
+
+    private static boolean expired(Entry entry, long nowMillis) {
+        return nowMillis - entry.loadedAtMillis() >= MAX_AGE.toMillis();
+    }
+
+    private void removeAll(Set<Key> keys) {
+        if (keys != null) {
+            for (Key key : Set.copyOf(keys)) {
+                remove(key);
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed == null) {
+            return;
+        }
+        Map<Long, Set<Key>> index = key.view() == View.STUDENT ? studentKeysByClassroom : teacherKeysByClassroom;
+        for (Long classroomId : removed.classroomIds()) {
+            Set<Key> keys = index.get(classroomId);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    index.remove(classroomId);
+                }
+            }
+        }
+    }
+
+    // The deadline flag depends on the clock, not on the data, so it is recomputed on every read.
+    private List<StudentAssignmentResponseDTO> withCurrentDeadlines(List<StudentAssignmentResponseDTO> items) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return items.stream()
+                .map(item -> item.toBuilder()
+                        .isPastDeadline(item.getDueDate() != null && now.isAfter(item.getDueDate()))
+                        .build())
+                .toList();
+    }
+}
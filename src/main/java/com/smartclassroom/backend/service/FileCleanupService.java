@@ -0,0 +1,207 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.repository.AnnouncementRepository;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Reclaims uploaded files once the rows that referenced them are gone.
+ * <p>
+ * Callers hand over the URLs they just dropped; after the surrounding transaction commits, a background
+ * worker deletes each file that is no longer referenced by any assignment, announcement, submission or
+ * profile picture. A rolled-back transaction never enqueues anything. The worker takes whatever has
+ * queued up, up to {@link #MAX_BATCH} files, and looks up only those filenames, a few hundred to each
+ * {@code IN} query, rather than querying per file or reading every reference.
+ */
+@Service
+public class FileCleanupService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileCleanupService.class);
+
+    private static final int MAX_BATCH = 10_000;
+    private static final int EXPECTED_REFERENCES = 64 * 1024;
+    // Keeps each IN list well inside what MySQL and the statement cache handle comfortably.
+    private static final int IN_CHUNK = 500;
+
+    private final FileStorageService fileStorageService;
+    private final AssignmentRepository assignmentRepository;
+    private final AnnouncementRepository announcementRepository;
+    private final AssignmentSubmissionRepository submissionRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "file-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FileCleanupService(FileStorageService fileStorageService,
+                              AssignmentRepository assignmentRepository,
+                              AnnouncementRepository announcementRepository,
+                              AssignmentSubmissionRepository submissionRepository,
+                              UserRepository userRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.fileStorageService = fileStorageService;
+        this.assignmentRepository = assignmentRepository;
+        this.announcementRepository = announcementRepository;
+        this.submissionRepository = submissionRepository;
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void deleteWhenUnreferenced(Collection<String> urls) {
+        Set<String> filenames = new LinkedHashSet<>();
+        for (String url : urls) {
+            String filename = FileStorageService.toStoredFilename(url);
+            if (filename != null) {
+                filenames.add(filename);
+            }
+        }
+        if (filenames.isEmpty()) {
+            return;
+        }
+
+        List<String> batch = List.copyOf(filenames);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(batch);
+                }
+            });
+        } else {
+            enqueue(batch);
+        }
+    }
+
+    public void deleteWhenUnreferenced(String url) {
+        if (url != null) {
+            deleteWhenUnreferenced(List.of(url));
+        }
+    }
+
+    /**
+     * Hashes of the stored filenames every assignment, announcement, submission and profile picture
+     * points to, read in one pass over each table. A hash collision can only make an unreferenced file
+     * look referenced.
+     */
+    LongHashSet referencedFiles() {
+        LongHashSet referenced = new LongHashSet(EXPECTED_REFERENCES);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            mark(referenced, assignmentRepository.streamAttachmentUrls());
+            mark(referenced, announcementRepository.streamAttachmentUrls());
+            mark(referenced, submissionRepository.streamAllContentUrls());
+            mark(referenced, userRepository.streamProfileImageUrls());
+        });
+        return referenced;
+    }
+
+    /**
+     * Those of the given stored filenames that an assignment, announcement, submission or profile picture
+     * still points to, found with {@code IN} queries over the filenames rather than a pass over every row.
+     */
+    Set<String> stillReferenced(Collection<String> filenames) {
+        Set<String> referenced = new HashSet<>();
+        List<String> all = List.copyOf(filenames);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (int from = 0; from < all.size(); from += IN_CHUNK) {
+                List<String> chunk = all.subList(from, Math.min(from + IN_CHUNK, all.size()));
+                Set<String> wanted = new HashSet<>(chunk);
+                collect(referenced, wanted, assignmentRepository.findAttachmentUrlsReferencing(chunk));
+                collect(referenced, wanted, announcementRepository.findAttachmentUrlsReferencing(chunk));
+                collect(referenced, wanted, submissionRepository.findContentUrlsReferencing(chunk));
+                collect(referenced, wanted, userRepository.findProfileImageUrlsReferencing(chunk));
+            }
+        });
+        return referenced;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static void mark(LongHashSet referenced, Stream<String> urls) {
+        try (urls) {
+            urls.forEach(url -> {
+                String filename = FileStorageService.toStoredFilename(url);
+                if (filename != null) {
+                    referenced.add(filename);
+                }
+            });
+        }
+    }
+
+    private static void collect(Set<String> referenced, Set<String> wanted, List<String> urls) {
+        for (String url : urls) {
+            String filename = FileStorageService.toStoredFilename(url);
+            if (filename != null && wanted.contains(filename)) {
+                referenced.add(filename);
+            }
+        }
+    }
+
+    private void enqueue(List<String> filenames) {
+        pending.addAll(filenames);
+        executor.execute(this::drain);
+    }
+
+    // Runs once per enqueue; a run that finds the queue already drained by an earlier one does nothing.
+    private void drain() {
+        List<String> batch = new ArrayList<>();
+        String filename;
+        while (batch.size() < MAX_BATCH && (filename = pending.poll()) != null) {
+            batch.add(filename);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!pending.isEmpty()) {
+            executor.execute(this::drain);
+        }
+
+        Set<String> referenced;
+        try {
+            referenced = stillReferenced(batch);
+        } catch (RuntimeException ex) {
+            log.warn("Could not read referenced files; leaving {} released files to the upload GC", batch.size(), ex);
+            return;
+        }
+
+        int deleted = 0;
+        for (String candidate : batch) {
+            try {
+                if (!referenced.contains(candidate) && fileStorageService.deleteFile(candidate)) {
+                    deleted++;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not clean up file {}", candidate, ex);
+            }
+        }
+        log.debug("Cleaned up {} of {} released files", deleted, batch.size());
+    }
+}
@@ -1,60 +1,237 @@
 package com.smartclassroom.backend.service;
 
+import com.smartclassroom.backend.dto.storage.ContentMigrationProgressDTO;
+import com.smartclassroom.backend.dto.storage.ShardMigrationReportDTO;
+import com.smartclassroom.backend.event.FileDeletedEvent;
+import com.smartclassroom.backend.event.FileStoredEvent;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 @Service
 public class FileStorageService {
 
+    private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
+
+    // Download URLs handed out by FileController look like http://host/api/files/{filename}
+    private static final String FILES_PATH = "/api/files/";
+
+    private static final int METADATA_CACHE_SIZE = 10_000;
+
     private final Path storageLocation;
+    private final boolean contentAddressed;
+    private final boolean redirectDownloads;
+    private final Duration redirectValidity;
+    private final LocalStorageBackend localBackend;
+    private final StorageBackend backend;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ContentAddressedStore contentAddressedStore;
+    private final HotFileCache hotFileCache;
+    private final StorageQuotaService storageQuotaService;
 
-    public FileStorageService(@Value("${file.upload-dir:uploads}") String uploadDir) {
-        this.storageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
-        try {
-            Files.createDirectories(this.storageLocation);
-        } catch (IOException ex) {
-            throw new RuntimeException("Could not create upload directory", ex);
+    // Stored files are never rewritten in place (every upload gets a fresh name), so their metadata,
+    // including the sniffed content type, stays valid until the file is deleted or a layout migration
+    // moves it, which removes its entry.
+    private final Map<String, StoredFile> metadataCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredFile> eldest) {
+            return size() > METADATA_CACHE_SIZE;
+        }
+    };
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "content-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The running or last finished content-addressed migration. Guarded by this.
+    private ContentMigration contentMigration;
+
+    // Counts moves by layout migrations; a describe that a move overtook does not cache the old path.
+    // Guarded by metadataCache.
+    private long relocations;
+
+    /**
+     * What a download needs to know about a stored file without opening it. {@code path} is
+     * {@code null} for files kept by a remote backend; read those with {@link #openStream}.
+     */
+    public record StoredFile(String filename, Path path, long size, Instant lastModified, String etag,
+                             MediaType contentType) {
+
+        public boolean isLocal() {
+            return path != null;
         }
     }
 
-    public String storeFile(MultipartFile file) {
-        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-        if (originalFilename == null || originalFilename.isBlank()) {
-            throw new RuntimeException("File name is invalid");
+    public FileStorageService(@Value("${file.backend:local}") String backendName,
+                              @Value("${file.content-addressed:false}") boolean contentAddressed,
+                              @Value("${file.downloads.redirect:false}") boolean redirectDownloads,
+                              @Value("${file.downloads.redirect-validity:5m}") Duration redirectValidity,
+                              List<StorageBackend> backends,
+                              LocalStorageBackend localBackend,
+                              ApplicationEventPublisher eventPublisher,
+                              ContentAddressedStore contentAddressedStore,
+                              HotFileCache hotFileCache,
+                              StorageQuotaService storageQuotaService) {
+        this.backend = backends.stream()
+                .filter(candidate -> candidate.name().equals(backendName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown storage backend '" + backendName + "'"));
+        if (contentAddressed && backend != localBackend) {
+            throw new IllegalStateException("file.content-addressed requires file.backend=" + LocalStorageBackend.NAME);
         }
+        this.storageLocation = localBackend.getStorageLocation();
+        this.contentAddressed = contentAddressed;
+        this.redirectDownloads = redirectDownloads;
+        this.redirectValidity = redirectValidity;
+        this.localBackend = localBackend;
+        this.eventPublisher = eventPublisher;
+        this.contentAddressedStore = contentAddressedStore;
+        this.hotFileCache = hotFileCache;
+        this.storageQuotaService = storageQuotaService;
+    }
 
-        String extension = "";
-        int dotIndex = originalFilename.lastIndexOf('.');
-        if (dotIndex >= 0) {
-            extension = originalFilename.substring(dotIndex);
+    /**
+     * Stores a multipart upload and charges it to {@code userId} and, if given, {@code classroomId}.
+     * The quota check happens before anything is written. Without a user the file is stored uncharged,
+     * like files stored before accounting was introduced; a classroom is only charged together with
+     * the user who uploaded to it.
+     */
+    public String storeFile(MultipartFile file, Long userId, Long classroomId) {
+        if (userId == null) {
+            if (classroomId != null) {
+                throw new BadRequestException("userId is required when uploading to a classroom");
+            }
+            try {
+                return storeStream(file.getInputStream(), file.getOriginalFilename());
+            } catch (IOException ex) {
+                throw new RuntimeException("Could not store file", ex);
+            }
+        }
+        try (StorageQuotaService.Reservation reservation = storageQuotaService.reserve(userId, classroomId, file.getSize())) {
+            String storedFilename = storeStream(file.getInputStream(), file.getOriginalFilename());
+            reservation.commit(storedFilename, file.getSize());
+            return storedFilename;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file", ex);
+        }
+    }
+
+    /**
+     * Writes {@code content} straight to its final location. A partially written file is removed
+     * if reading the stream fails.
+     */
+    public String storeStream(InputStream content, String originalFilename) {
+        String newFilename = newFilename(originalFilename);
+
+        try (InputStream in = content) {
+            Path targetLocation;
+            if (contentAddressed) {
+                targetLocation = contentAddressedStore.store(newFilename, in);
+            } else {
+                backend.store(newFilename, in);
+                targetLocation = backend.localPath(newFilename).orElse(null);
+            }
+            eventPublisher.publishEvent(new FileStoredEvent(newFilename, targetLocation));
+            return newFilename;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file", ex);
         }
+    }
 
-        String newFilename = UUID.randomUUID() + extension;
+    /**
+     * Takes over a fully written file, e.g. an assembled resumable upload. The source must live on
+     * the same file system as the upload directory so it can be moved rather than copied.
+     */
+    public String storeCompletedFile(Path source, String originalFilename) {
+        String newFilename = newFilename(originalFilename);
 
         try {
-            Path targetLocation = this.storageLocation.resolve(newFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            Path targetLocation;
+            if (contentAddressed) {
+                targetLocation = contentAddressedStore.store(newFilename, Files.newInputStream(source));
+                Files.deleteIfExists(source);
+            } else {
+                backend.storeFile(newFilename, source);
+                targetLocation = backend.localPath(newFilename).orElse(null);
+            }
+            eventPublisher.publishEvent(new FileStoredEvent(newFilename, targetLocation));
             return newFilename;
         } catch (IOException ex) {
             throw new RuntimeException("Could not store file", ex);
         }
     }
 
+    public Path getTempDirectory() {
+        return this.storageLocation.resolve("tmp");
+    }
+
+    /**
+     * Top-level entries of the upload directory that hold originals written without content
+     * addressing: the first-level shard directories and the files of the flat layout. Blobs, variants
+     * and temporary files are left out.
+     */
+    public List<Path> listLocalRoots() {
+        Path blobs = storageLocation.resolve("blobs");
+        Path variants = storageLocation.resolve("variants");
+        Path temp = getTempDirectory();
+        try (Stream<Path> entries = Files.list(storageLocation)) {
+            return entries
+                    .filter(path -> !path.equals(blobs) && !path.equals(variants) && !path.equals(temp))
+                    .toList();
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not list upload directory", ex);
+        }
+    }
+
+    /**
+     * Location of a derived variant of a stored file, such as a compressed copy or a thumbnail.
+     * Variants live in their own sharded tree, so listings and migrations of originals never see them,
+     * and are removed together with the original.
+     */
+    public Path variantPath(String filename, String variant) {
+        localBackend.resolveFlatPath(filename); // rejects names that would escape the upload directory
+        return LocalStorageBackend.shardDirectory(storageLocation.resolve("variants"), filename).resolve(filename + "~" + variant);
+    }
+
     public Resource loadFileAsResource(String filename) {
         try {
-            Path filePath = this.storageLocation.resolve(filename).normalize();
+            Path filePath = resolvePath(filename);
             Resource resource = new UrlResource(filePath.toUri());
             if (resource.exists() && resource.isReadable()) {
                 return resource;
@@ -65,4 +242,395 @@ public class FileStorageService {
             throw new RuntimeException("File not found", ex);
         }
     }
+
+    /**
+     * Returns size, modification time, entity tag and content type of a stored file.
+     */
+    public StoredFile describe(String filename) {
+        long relocationsBefore;
+        synchronized (metadataCache) {
+            StoredFile cached = metadataCache.get(filename);
+            if (cached != null) {
+                return cached;
+            }
+            relocationsBefore = relocations;
+        }
+
+        Path path = findLocalFile(filename);
+        if (path == null) {
+            // Files written before switching to a remote backend stay readable from local disk.
+            if (backend != localBackend) {
+                return describeRemote(filename);
+            }
+            throw new ResourceNotFoundException("File not found: " + filename);
+        }
+        StoredFile storedFile;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                throw new ResourceNotFoundException("File not found: " + filename);
+            }
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            storedFile = new StoredFile(
+                    filename,
+                    path,
+                    attributes.size(),
+                    Instant.ofEpochMilli(lastModified),
+                    contentAddressedStore.hashOf(path)
+                            .orElse(Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified)),
+                    detectContentType(filename, path));
+        } catch (NoSuchFileException ex) {
+            throw new ResourceNotFoundException("File not found: " + filename);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not read file " + filename, ex);
+        }
+
+        synchronized (metadataCache) {
+            if (relocations == relocationsBefore) {
+                metadataCache.put(filename, storedFile);
+            }
+        }
+        return storedFile;
+    }
+
+    /**
+     * Opens {@code length} bytes of a stored file from {@code offset}, or the rest of it if
+     * {@code length} is negative, wherever the file is kept.
+     */
+    public InputStream openStream(StoredFile file, long offset, long length) throws IOException {
+        if (file.isLocal()) {
+            try {
+                return LocalStorageBackend.openRange(file.path(), offset, length);
+            } catch (NoSuchFileException ex) {
+                // A layout migration may have moved it since it was described.
+                Path current = findLocalFile(file.filename());
+                if (current == null || current.equals(file.path())) {
+                    throw ex;
+                }
+                return LocalStorageBackend.openRange(current, offset, length);
+            }
+        }
+        return backend.open(file.filename(), offset, length);
+    }
+
+    public InputStream openStream(StoredFile file) throws IOException {
+        return openStream(file, 0, -1);
+    }
+
+    /**
+     * A time-limited URL to fetch a remotely stored file from the backend directly, if redirecting
+     * downloads is enabled and the backend supports it.
+     */
+    public Optional<URI> directDownloadUri(StoredFile file) {
+        if (!redirectDownloads || file.isLocal()) {
+            return Optional.empty();
+        }
+        return backend.directDownloadUri(file.filename(), redirectValidity);
+    }
+
+    /**
+     * Deletes a stored file.
+     *
+     * @return {@code true} if the file existed
+     */
+    public boolean deleteFile(String filename) {
+        synchronized (metadataCache) {
+            metadataCache.remove(filename);
+        }
+        hotFileCache.invalidate(filename);
+        try {
+            deleteVariants(filename);
+            boolean deleted;
+            Optional<Path> localPath = localBackend.localPath(filename);
+            if (localPath.isPresent()) {
+                deleted = Files.deleteIfExists(localPath.get());
+            } else {
+                deleted = (contentAddressed && contentAddressedStore.release(filename))
+                        || (backend != localBackend && backend.delete(filename));
+            }
+            if (deleted) {
+                eventPublisher.publishEvent(new FileDeletedEvent(filename));
+            }
+            return deleted;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not delete file " + filename, ex);
+        }
+    }
+
+    public static String toDownloadPath(String filename) {
+        return FILES_PATH + filename;
+    }
+
+    /**
+     * Extracts the stored filename from a download URL produced by {@code FileController},
+     * or returns {@code null} if the URL does not point at this store.
+     */
+    public static String toStoredFilename(String url) {
+        if (url == null) {
+            return null;
+        }
+        int index = url.lastIndexOf(FILES_PATH);
+        if (index < 0) {
+            return null;
+        }
+        String filename = url.substring(index + FILES_PATH.length());
+        int queryIndex = filename.indexOf('?');
+        if (queryIndex >= 0) {
+            filename = filename.substring(0, queryIndex);
+        }
+        if (filename.isBlank() || filename.contains("/") || filename.contains("..")) {
+            return null;
+        }
+        return filename;
+    }
+
+    // The extension is trusted first since uploads keep the original one; files without a known
+    // extension are identified by their leading bytes.
+    private static MediaType detectContentType(String filename, Path path) throws IOException {
+        MediaType byExtension = MediaTypeFactory.getMediaType(filename).orElse(null);
+        if (byExtension != null) {
+            return byExtension;
+        }
+
+        byte[] header = new byte[8];
+        int read;
+        try (InputStream in = Files.newInputStream(path)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        if (startsWith(header, read, 0x25, 0x50, 0x44, 0x46)) {
+            return MediaType.APPLICATION_PDF;
+        }
+        if (startsWith(header, read, 0x89, 0x50, 0x4E, 0x47)) {
+            return MediaType.IMAGE_PNG;
+        }
+        if (startsWith(header, read, 0xFF, 0xD8, 0xFF)) {
+            return MediaType.IMAGE_JPEG;
+        }
+        if (startsWith(header, read, 0x47, 0x49, 0x46, 0x38)) {
+            return MediaType.IMAGE_GIF;
+        }
+        if (startsWith(header, read, 0x50, 0x4B, 0x03, 0x04)) {
+            return MediaType.parseMediaType("application/zip");
+        }
+
+        String probed = Files.probeContentType(path);
+        return probed != null ? MediaType.parseMediaType(probed) : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts moving every file written without content addressing (flat or sharded) into the
+     * content-addressed store in the background, keeping its name. Only one migration runs at a time;
+     * starting another while it does returns its progress.
+     */
+    public synchronized ContentMigrationProgressDTO startContentAddressedMigration() {
+        if (!contentAddressed) {
+            throw new BadRequestException("Content addressing is off; set file.content-addressed=true before migrating");
+        }
+        if (contentMigration != null && "RUNNING".equals(contentMigration.status)) {
+            return contentMigration.toDto();
+        }
+        ContentMigration migration = new ContentMigration(UUID.randomUUID().toString());
+        contentMigration = migration;
+        migrationExecutor.execute(() -> {
+            try {
+                migrateToContentAddressed(migration);
+                migration.status = "COMPLETED";
+                log.info("Content-addressed migration {} moved {} files", migration.jobId, migration.migratedFiles.get());
+            } catch (RuntimeException ex) {
+                migration.error = ex.getMessage();
+                migration.status = "FAILED";
+                log.warn("Content-addressed migration {} failed", migration.jobId, ex);
+            }
+        });
+        return migration.toDto();
+    }
+
+    public synchronized ContentMigrationProgressDTO getContentAddressedMigration(String jobId) {
+        if (contentMigration == null || !contentMigration.jobId.equals(jobId)) {
+            throw new ResourceNotFoundException("Migration not found with id " + jobId);
+        }
+        return contentMigration.toDto();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        migrationExecutor.shutdown();
+    }
+
+    private void migrateToContentAddressed(ContentMigration migration) {
+        Path blobs = storageLocation.resolve("blobs");
+        Path variants = storageLocation.resolve("variants");
+        Path temp = getTempDirectory();
+        try (Stream<Path> files = Files.walk(storageLocation, 3)) {
+            for (Path path : (Iterable<Path>) files
+                    .filter(path -> !path.startsWith(blobs) && !path.startsWith(variants) && !path.startsWith(temp))
+                    .filter(Files::isRegularFile)::iterator) {
+                String filename = path.getFileName().toString();
+                if (contentAddressedStore.adopt(filename, path)) {
+                    relocated(filename);
+                    migration.migratedFiles.incrementAndGet();
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not migrate upload directory", ex);
+        }
+    }
+
+    /**
+     * Moves files from the flat upload directory into the sharded layout, several at a time. Safe
+     * to run while the application serves traffic: every lookup checks both locations, and each move
+     * is a single atomic rename.
+     */
+    public ShardMigrationReportDTO migrateToShardedLayout(int parallelism) {
+        long start = System.nanoTime();
+        List<Path> flatFiles;
+        try (Stream<Path> files = Files.list(storageLocation)) {
+            flatFiles = files.filter(Files::isRegularFile).toList();
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not list upload directory", ex);
+        }
+
+        LongAdder moved = new LongAdder();
+        LongAdder failed = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, 32)));
+        try {
+            pool.submit(() -> flatFiles.parallelStream().forEach(path -> {
+                String filename = path.getFileName().toString();
+                Path target = localBackend.shardedPath(filename);
+                try {
+                    Files.createDirectories(target.getParent());
+                    Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+                    relocated(filename);
+                    moved.increment();
+                } catch (IOException ex) {
+                    log.warn("Could not move {} into the sharded layout", filename, ex);
+                    failed.increment();
+                }
+            })).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Migration interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Migration failed", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return ShardMigrationReportDTO.builder()
+                .movedFiles(moved.sum())
+                .failedFiles(failed.sum())
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    /**
+     * Returns where a stored file lives on this machine: its shard directory, the flat upload directory
+     * for files written before sharding, or the blob store for content-addressed files.
+     */
+    public Path resolvePath(String filename) {
+        Path localPath = findLocalFile(filename);
+        if (localPath != null) {
+            return localPath;
+        }
+        return localBackend.shardedPath(filename);
+    }
+
+    private void relocated(String filename) {
+        synchronized (metadataCache) {
+            relocations++;
+            metadataCache.remove(filename);
+        }
+    }
+
+    // The blob store is only consulted when content addressing is on; otherwise a miss would cost a
+    // database query for a mapping that cannot exist.
+    private Path findLocalFile(String filename) {
+        Optional<Path> localPath = localBackend.localPath(filename);
+        if (localPath.isPresent() || !contentAddressed) {
+            return localPath.orElse(null);
+        }
+        return contentAddressedStore.locate(filename).orElse(null);
+    }
+
+    private StoredFile describeRemote(String filename) {
+        StorageBackend.ObjectInfo info;
+        try {
+            info = backend.stat(filename)
+                    .orElseThrow(() -> new ResourceNotFoundException("File not found: " + filename));
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not read file " + filename, ex);
+        }
+        StoredFile storedFile = new StoredFile(
+                filename,
+                null,
+                info.size(),
+                info.lastModified(),
+                info.etag(),
+                MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM));
+        synchronized (metadataCache) {
+            metadataCache.put(filename, storedFile);
+        }
+        return storedFile;
+    }
+
+    private void deleteVariants(String filename) throws IOException {
+        Path directory = variantPath(filename, "").getParent();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        String prefix = filename + "~";
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(directory,
+                path -> path.getFileName().toString().startsWith(prefix))) {
+            for (Path variant : variants) {
+                Files.deleteIfExists(variant);
+            }
+        }
+    }
+
+    private static String newFilename(String originalName) {
+        String originalFilename = StringUtils.cleanPath(originalName);
+        if (originalFilename == null || originalFilename.isBlank()) {
+            throw new RuntimeException("File name is invalid");
+        }
+
+        String extension = "";
+        int dotIndex = originalFilename.lastIndexOf('.');
+        if (dotIndex >= 0) {
+            extension = originalFilename.substring(dotIndex);
+        }
+
+        return UUID.randomUUID() + extension;
+    }
+
+    private static final class ContentMigration {
+        private final String jobId;
+        private final AtomicLong migratedFiles = new AtomicLong();
+        private volatile String status = "RUNNING";
+        private volatile String error;
+
+        private ContentMigration(String jobId) {
+            this.jobId = jobId;
+        }
+
+        private ContentMigrationProgressDTO toDto() {
+            return ContentMigrationProgressDTO.builder()
+                    .jobId(jobId)
+                    .status(status)
+                    .migratedFiles(migratedFiles.get())
+                    .error(error)
+                    .build();
+        }
+    }
 }
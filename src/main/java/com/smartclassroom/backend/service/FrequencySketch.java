@@ -0,0 +1,74 @@
+package com.smartclassroom.backend.service;
+
+/**
+ * Approximate popularity counter (a count-min sketch with periodic aging, as used by TinyLFU).
+ * <p>
+ * Each key increments one counter in each of {@link #DEPTH} rows and its estimate is the smallest of
+ * them, so collisions can only overestimate. After {@code 10 * width} increments all counters are
+ * halved, which lets popularity decay and keeps yesterday's hot files from blocking today's.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 255;
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final int[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int width) {
+        int size = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+        this.counters = new int[DEPTH][size];
+        this.mask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * Counts one more occurrence of {@code key}.
+     *
+     * @return the estimated frequency including this occurrence
+     */
+    synchronized int increment(Object key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counters[row][index] < MAX_COUNT) {
+                counters[row][index]++;
+            }
+            estimate = Math.min(estimate, counters[row][index]);
+        }
+        if (++additions >= sampleSize) {
+            halve();
+        }
+        return estimate;
+    }
+
+    synchronized int estimate(Object key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row][index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void halve() {
+        for (int[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        additions /= 2;
+    }
+}
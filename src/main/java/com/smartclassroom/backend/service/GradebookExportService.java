@@ -0,0 +1,282 @@
+package com.smartclassroom.backend.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.model.ClassroomRole;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.ClassroomMemberRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.projection.GradebookCellView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Streams a classroom gradebook (students x assignments) without materializing it.
+ * <p>
+ * Only the assignment columns are held in memory; student rows are pivoted one at a time
+ * from a forward-only cursor and written straight to the response.
+ */
+@Service
+@RequiredArgsConstructor
+public class GradebookExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ClassroomRepository classroomRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final ClassroomMemberRepository classroomMemberRepository;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            try {
+                return Format.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Unsupported export format: " + value);
+            }
+        }
+    }
+
+    public record Column(Long assignmentId, String title, LocalDateTime dueDate) {
+    }
+
+    /**
+     * Resolves the assignment columns up front so that a missing classroom is reported
+     * before the response is committed.
+     */
+    @Transactional(readOnly = true)
+    public List<Column> getColumns(Long classroomId) {
+        if (!classroomRepository.existsById(classroomId)) {
+            throw new ResourceNotFoundException("Classroom not found with id " + classroomId);
+        }
+        return assignmentRepository.findByClassroomIdOrderByIdAsc(classroomId).stream()
+                .map(this::toColumn)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public void export(Long classroomId, List<Column> columns, Format format, OutputStream out) throws IOException {
+        Map<Long, Integer> columnIndex = new HashMap<>(columns.size() * 2);
+        for (int i = 0; i < columns.size(); i++) {
+            columnIndex.put(columns.get(i).assignmentId(), i);
+        }
+
+        try (Stream<GradebookCellView> cells = classroomMemberRepository.streamGradebookCells(classroomId, ClassroomRole.STUDENT)) {
+            RowWriter writer = format == Format.NDJSON
+                    ? new NdjsonRowWriter(out, columns)
+                    : new CsvRowWriter(out, columns);
+            writer.writeHeader();
+
+            StudentRow row = new StudentRow(columns.size());
+            Iterator<GradebookCellView> iterator = cells.iterator();
+            while (iterator.hasNext()) {
+                GradebookCellView cell = iterator.next();
+                if (row.studentId != null && !row.studentId.equals(cell.getStudentId())) {
+                    writer.writeRow(row);
+                    row.reset();
+                }
+                if (row.studentId == null) {
+                    row.studentId = cell.getStudentId();
+                    row.name = cell.getStudentName();
+                    row.email = cell.getStudentEmail();
+                }
+                Integer index = cell.getAssignmentId() != null ? columnIndex.get(cell.getAssignmentId()) : null;
+                if (index != null) {
+                    row.submitted[index] = true;
+                    row.marks[index] = cell.getMarks();
+                    row.submittedAt[index] = cell.getSubmittedAt();
+                }
+            }
+            if (row.studentId != null) {
+                writer.writeRow(row);
+            }
+            writer.finish();
+        }
+    }
+
+    private Column toColumn(Assignment assignment) {
+        return new Column(assignment.getId(), assignment.getTitle(), assignment.getDueDate());
+    }
+
+    private static boolean isLate(LocalDateTime submittedAt, LocalDateTime dueDate) {
+        return submittedAt != null && dueDate != null && submittedAt.isAfter(dueDate);
+    }
+
+    /**
+     * Reusable buffer for the student currently being pivoted.
+     */
+    private static final class StudentRow {
+        private Long studentId;
+        private String name;
+        private String email;
+        private final boolean[] submitted;
+        private final Integer[] marks;
+        private final LocalDateTime[] submittedAt;
+
+        private StudentRow(int columns) {
+            this.submitted = new boolean[columns];
+            this.marks = new Integer[columns];
+            this.submittedAt = new LocalDateTime[columns];
+        }
+
+        private void reset() {
+            studentId = null;
+            name = null;
+            email = null;
+            Arrays.fill(submitted, false);
+            Arrays.fill(marks, null);
+            Arrays.fill(submittedAt, null);
+        }
+    }
+
+    private interface RowWriter {
+        void writeHeader() throws IOException;
+
+        void writeRow(StudentRow row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private final List<Column> columns;
+
+        private CsvRowWriter(OutputStream out, List<Column> columns) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            this.columns = columns;
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write("student_id,student_name,student_email");
+            for (Column column : columns) {
+                String prefix = column.title() + " [" + column.assignmentId() + "]";
+                writer.write(',');
+                writeField(prefix + " marks");
+                writer.write(',');
+                writeField(prefix + " submitted_at");
+                writer.write(',');
+                writeField(prefix + " late");
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void writeRow(StudentRow row) throws IOException {
+            writer.write(String.valueOf(row.studentId));
+            writer.write(',');
+            writeField(row.name);
+            writer.write(',');
+            writeField(row.email);
+            for (int i = 0; i < columns.size(); i++) {
+                writer.write(',');
+                if (row.marks[i] != null) {
+                    writer.write(row.marks[i].toString());
+                }
+                writer.write(',');
+                if (row.submittedAt[i] != null) {
+                    writer.write(row.submittedAt[i].toString());
+                }
+                writer.write(',');
+                if (row.submitted[i]) {
+                    writer.write(isLate(row.submittedAt[i], columns.get(i).dueDate()) ? "true" : "false");
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final List<Column> columns;
+
+        private NdjsonRowWriter(OutputStream out, List<Column> columns) throws IOException {
+            this.generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+            this.columns = columns;
+        }
+
+        @Override
+        public void writeHeader() {
+            // NDJSON rows are self-describing, each grade carries its assignment id.
+        }
+
+        @Override
+        public void writeRow(StudentRow row) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("studentId", row.studentId);
+            generator.writeStringField("studentName", row.name);
+            generator.writeStringField("studentEmail", row.email);
+            generator.writeArrayFieldStart("grades");
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                generator.writeStartObject();
+                generator.writeNumberField("assignmentId", column.assignmentId());
+                generator.writeStringField("assignmentTitle", column.title());
+                generator.writeBooleanField("submitted", row.submitted[i]);
+                if (row.marks[i] != null) {
+                    generator.writeNumberField("marks", row.marks[i]);
+                } else {
+                    generator.writeNullField("marks");
+                }
+                generator.writeStringField("submittedAt", row.submittedAt[i] != null ? row.submittedAt[i].toString() : null);
+                generator.writeBooleanField("late", isLate(row.submittedAt[i], column.dueDate()));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
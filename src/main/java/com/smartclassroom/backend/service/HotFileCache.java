@@ -0,0 +1,278 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.metrics.HotFileCacheStatsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte-budgeted in-memory cache of frequently downloaded files, held in direct (off-heap) buffers.
+ * <p>
+ * Eviction is least-recently-used, but admission is frequency-based (TinyLFU): every lookup is counted
+ * in a {@link FrequencySketch}, a file must have been requested at least {@link #MIN_ADMISSION_FREQUENCY}
+ * times to be considered, and it is only admitted if it is requested more often than every entry it
+ * would push out. A single download of a large recording therefore never displaces the attachment
+ * the whole class is fetching.
+ * <p>
+ * Concurrent misses on the same file share one load. Direct memory is only released once a buffer has
+ * been garbage collected, which for an evicted entry can be well after eviction if downloads still
+ * read it; every buffer the cache has allocated counts against {@code file.hot-cache.max-outstanding-size}
+ * until then, and files that would exceed it are served from disk.
+ */
+@Component
+public class HotFileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HotFileCache.class);
+
+    private static final int MIN_ADMISSION_FREQUENCY = 2;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private record Entry(String etag, ByteBuffer content) {
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long maxOutstandingBytes;
+    private final FrequencySketch sketch = new FrequencySketch(16 * 1024);
+
+    // Access-ordered, so iteration starts at the least recently used entry.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long residentBytes;
+    // Loads in progress, so that concurrent misses on a file wait for one read instead of each making their own.
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    // Capacity of every buffer allocated and not yet garbage collected: resident, loading or evicted.
+    private final AtomicLong outstandingBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public HotFileCache(@Value("${file.hot-cache.max-size:256MB}") DataSize maxSize,
+                        @Value("${file.hot-cache.max-entry-size:32MB}") DataSize maxEntrySize,
+                        @Value("${file.hot-cache.max-outstanding-size:512MB}") DataSize maxOutstandingSize) {
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), Integer.MAX_VALUE);
+        this.maxOutstandingBytes = Math.max(maxOutstandingSize.toBytes(), maxBytes);
+    }
+
+    /**
+     * Returns the cached content of {@code file}, loading it if the file is popular enough.
+     *
+     * @return a read-only view of the content, or {@code null} if the file should be read from disk
+     */
+    public ByteBuffer get(FileStorageService.StoredFile file) {
+        int frequency = sketch.increment(file.filename());
+        synchronized (this) {
+            Entry entry = entries.get(file.filename());
+            if (entry != null && entry.etag().equals(file.etag())) {
+                hits.increment();
+                return entry.content().asReadOnlyBuffer();
+            }
+            if (entry != null) {
+                remove(file.filename());
+            }
+        }
+        misses.increment();
+
+        CompletableFuture<Entry> inFlight = loading.get(file.filename());
+        if (inFlight != null) {
+            return contentOf(inFlight.join(), file);
+        }
+        if (file.size() > maxEntryBytes || file.size() > maxBytes || frequency < MIN_ADMISSION_FREQUENCY) {
+            return null;
+        }
+        synchronized (this) {
+            if (!shouldAdmit(file.size(), frequency)) {
+                rejections.increment();
+                return null;
+            }
+        }
+
+        CompletableFuture<Entry> load = new CompletableFuture<>();
+        inFlight = loading.putIfAbsent(file.filename(), load);
+        if (inFlight != null) {
+            return contentOf(inFlight.join(), file);
+        }
+        Entry loaded = null;
+        try {
+            synchronized (this) {
+                // A load that finished after the lookup above has already cached it.
+                loaded = entries.get(file.filename());
+            }
+            if (loaded == null) {
+                loaded = loadAndAdmit(file, frequency);
+            }
+            return contentOf(loaded, file);
+        } finally {
+            load.complete(loaded);
+            loading.remove(file.filename(), load);
+        }
+    }
+
+    public synchronized void invalidate(String filename) {
+        remove(filename);
+    }
+
+    public HotFileCacheStatsDTO getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        synchronized (this) {
+            return HotFileCacheStatsDTO.builder()
+                    .hits(hitCount)
+                    .misses(missCount)
+                    .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                    .admissions(admissions.sum())
+                    .rejections(rejections.sum())
+                    .evictions(evictions.sum())
+                    .entries(entries.size())
+                    .residentBytes(residentBytes)
+                    .outstandingBytes(outstandingBytes.get())
+                    .maxBytes(maxBytes)
+                    .build();
+        }
+    }
+
+    /**
+     * Streams a buffer returned by {@link #get}.
+     */
+    public static InputStream asInputStream(ByteBuffer buffer) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) {
+                if (!buffer.hasRemaining()) {
+                    return length == 0 ? 0 : -1;
+                }
+                int count = Math.min(length, buffer.remaining());
+                buffer.get(target, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+
+    private Entry loadAndAdmit(FileStorageService.StoredFile file, int frequency) {
+        ByteBuffer content;
+        try {
+            content = load(file);
+        } catch (IOException ex) {
+            log.warn("Could not cache {}", file.filename(), ex);
+            return null;
+        }
+        if (content == null) {
+            return null;
+        }
+        Entry loaded = new Entry(file.etag(), content);
+
+        synchronized (this) {
+            // Re-check: other files may have been admitted while this one was read.
+            if (!entries.containsKey(file.filename()) && shouldAdmit(file.size(), frequency)) {
+                Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+                while (residentBytes + file.size() > maxBytes && eldest.hasNext()) {
+                    residentBytes -= eldest.next().getValue().content().capacity();
+                    eldest.remove();
+                    evictions.increment();
+                }
+                entries.put(file.filename(), loaded);
+                residentBytes += content.capacity();
+                admissions.increment();
+            }
+        }
+        return loaded;
+    }
+
+    // A load of another version of the file is of no use; the caller reads it from disk.
+    private static ByteBuffer contentOf(Entry loaded, FileStorageService.StoredFile file) {
+        return loaded != null && loaded.etag().equals(file.etag()) ? loaded.content().asReadOnlyBuffer() : null;
+    }
+
+    // TinyLFU admission: the candidate must be more popular than every entry it would evict.
+    private boolean shouldAdmit(long size, int frequency) {
+        long needed = residentBytes + size - maxBytes;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (needed > 0 && eldest.hasNext()) {
+            Map.Entry<String, Entry> victim = eldest.next();
+            if (sketch.estimate(victim.getKey()) >= frequency) {
+                return false;
+            }
+            needed -= victim.getValue().content().capacity();
+        }
+        return needed <= 0;
+    }
+
+    private void remove(String filename) {
+        Entry removed = entries.remove(filename);
+        if (removed != null) {
+            residentBytes -= removed.content().capacity();
+        }
+    }
+
+    // Null if the buffer would take outstanding direct memory past its limit, or if the file on disk is
+    // no longer the version the caller described: its bytes must not be cached under the old etag.
+    private ByteBuffer load(FileStorageService.StoredFile file) throws IOException {
+        ByteBuffer content = allocate((int) file.size());
+        if (content == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    throw new IOException("File shrank while caching");
+                }
+            }
+            if (channel.size() != file.size()
+                    || Files.getLastModifiedTime(file.path()).toMillis() != file.lastModified().toEpochMilli()) {
+                log.debug("Not caching {}; it changed since it was described", file.filename());
+                return null;
+            }
+        }
+        return content.flip();
+    }
+
+    private ByteBuffer allocate(int size) {
+        if (outstandingBytes.addAndGet(size) > maxOutstandingBytes) {
+            outstandingBytes.addAndGet(-size);
+            log.debug("Not caching {} bytes; {} bytes of cache buffers are not collected yet", size, outstandingBytes.get());
+            return null;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect(size);
+        } catch (OutOfMemoryError ex) {
+            outstandingBytes.addAndGet(-size);
+            log.warn("Out of direct memory caching {} bytes", size);
+            return null;
+        }
+        // Views returned by get() keep the buffer reachable, so this runs once no download reads it any more.
+        CLEANER.register(buffer, () -> outstandingBytes.addAndGet(-size));
+        return buffer;
+    }
+}
@@ -0,0 +1,202 @@
+package com.smartclassroom.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps uploads in the local upload directory, sharded as {@code uploads/xx/yy/<filename>}. Files
+ * written before sharding was introduced stay readable from the flat directory.
+ */
+@Component
+public class LocalStorageBackend implements StorageBackend {
+
+    public static final String NAME = "local";
+
+    private final Path storageLocation;
+    private final boolean shardedLayout;
+
+    public LocalStorageBackend(@Value("${file.upload-dir:uploads}") String uploadDir,
+                               @Value("${file.sharded-layout:true}") boolean shardedLayout) {
+        this.storageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.shardedLayout = shardedLayout;
+        try {
+            Files.createDirectories(this.storageLocation);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create upload directory", ex);
+        }
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void store(String key, InputStream content) throws IOException {
+        Path target = newTarget(key);
+        try {
+            Files.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(target);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void storeFile(String key, Path source) throws IOException {
+        Files.move(source, newTarget(key), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        Path path = find(key);
+        if (path == null) {
+            return Optional.empty();
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            return Optional.of(new ObjectInfo(attributes.size(), attributes.lastModifiedTime().toInstant(),
+                    Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified)));
+        } catch (NoSuchFileException ex) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        Path path = find(key);
+        if (path == null) {
+            throw new NoSuchFileException(key);
+        }
+        return openRange(path, offset, length);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        Path path = find(key);
+        return path != null && Files.deleteIfExists(path);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.ofNullable(find(key));
+    }
+
+    public Path getStorageLocation() {
+        return storageLocation;
+    }
+
+    // Location of key in the sharded layout, whether or not it is there.
+    Path shardedPath(String key) {
+        Path flat = resolveFlatPath(key);
+        return shardDirectory(storageLocation, key).resolve(flat.getFileName());
+    }
+
+    Path resolveFlatPath(String key) {
+        Path path = storageLocation.resolve(key).normalize();
+        if (!path.startsWith(storageLocation)) {
+            throw new RuntimeException("File not found");
+        }
+        return path;
+    }
+
+    static InputStream openRange(Path path, long offset, long length) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(path);
+        try {
+            channel.position(offset);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        InputStream in = Channels.newInputStream(channel);
+        return length < 0 ? in : new LimitedInputStream(in, length);
+    }
+
+    // Two levels of 256 directories each, picked from a hash of the name: uploads/3f/a2/<filename>.
+    static Path shardDirectory(Path base, String filename) {
+        CRC32 crc = new CRC32();
+        crc.update(filename.getBytes(StandardCharsets.UTF_8));
+        long hash = crc.getValue();
+        return base
+                .resolve(String.format("%02x", (hash >>> 24) & 0xFF))
+                .resolve(String.format("%02x", (hash >>> 16) & 0xFF));
+    }
+
+    // Checks the sharded location again last, in case a concurrent migration moved the file between
+    // the first two checks.
+    private Path find(String key) {
+        Path sharded = shardedPath(key);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path flat = resolveFlatPath(key);
+        if (Files.exists(flat)) {
+            return flat;
+        }
+        return Files.exists(sharded) ? sharded : null;
+    }
+
+    private Path newTarget(String key) {
+        if (!shardedLayout) {
+            return resolveFlatPath(key);
+        }
+        Path target = shardedPath(key);
+        try {
+            Files.createDirectories(target.getParent());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not create shard directory", ex);
+        }
+        return target;
+    }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
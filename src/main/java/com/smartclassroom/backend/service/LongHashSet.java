@@ -0,0 +1,109 @@
+package com.smartclassroom.backend.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Open-addressing set of 64-bit keys in a single {@code long[]}, about 8 to 16 bytes per key instead
+ * of the ~100 a {@code HashSet<String>} needs for a filename.
+ * <p>
+ * Strings are added by their 64-bit hash, so a lookup can report a key that was never added. Callers
+ * must only use it where such a false positive is harmless. Not thread-safe.
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] slots;
+    private int size;
+    private boolean containsEmpty;
+
+    LongHashSet(int expectedSize) {
+        this.slots = new long[tableSizeFor(expectedSize)];
+    }
+
+    static long hash(String value) {
+        // FNV-1a, then the MurmurHash3 finalizer to spread the low bits used for the slot index.
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    void add(String value) {
+        add(hash(value));
+    }
+
+    boolean contains(String value) {
+        return contains(hash(value));
+    }
+
+    void add(long key) {
+        if (key == EMPTY) {
+            if (!containsEmpty) {
+                containsEmpty = true;
+                size++;
+            }
+            return;
+        }
+        if ((size + 1) * 2 > slots.length) {
+            resize();
+        }
+        int mask = slots.length - 1;
+        int index = (int) key & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == key) {
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = key;
+        size++;
+    }
+
+    boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmpty;
+        }
+        int mask = slots.length - 1;
+        int index = (int) key & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int index = (int) key & mask;
+                while (slots[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = key;
+            }
+        }
+    }
+
+    // Power of two with room for expectedSize keys at a load factor of at most one half.
+    private static int tableSizeFor(int expectedSize) {
+        int needed = Math.max(16, expectedSize * 2);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+}
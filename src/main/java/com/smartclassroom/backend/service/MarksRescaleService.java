@@ -0,0 +1,221 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.assignment.RescaleProgressDTO;
+import com.smartclassroom.backend.event.AssignmentChangedEvent;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rescales existing submission marks when an assignment's {@code maxMarks} changes.
+ * <p>
+ * Each assignment is rescaled in its own transaction that holds an exclusive lock on the
+ * assignment row. Graders lock only the submission they grade (see
+ * {@link AssignmentSubmissionService#gradeSubmission}), so they never wait for each other, on any
+ * database: a grade either commits before the rescale's UPDATE reaches its row and is scaled with
+ * the rest, or is validated against the new maximum once the rescale has committed. Inside that
+ * transaction the submissions are updated with set-based UPDATE statements over id ranges, which
+ * clamp marks to the new maximum; a classroom-wide rescale
+ * runs several assignments in parallel. Its progress can be polled until
+ * {@code marks.rescale.job-retention} after it has finished.
+ */
+@Service
+public class MarksRescaleService {
+
+    private static final Logger log = LoggerFactory.getLogger(MarksRescaleService.class);
+
+    private static final long CHUNK_SIZE = 5_000;
+
+    private final AssignmentRepository assignmentRepository;
+    private final AssignmentSubmissionRepository submissionRepository;
+    private final ClassroomRepository classroomRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final long jobRetentionNanos;
+
+    private final Map<String, Progress> jobs = new ConcurrentHashMap<>();
+
+    public MarksRescaleService(AssignmentRepository assignmentRepository,
+                               AssignmentSubmissionRepository submissionRepository,
+                               ClassroomRepository classroomRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${marks.rescale.job-retention:PT1H}") Duration jobRetention) {
+        this.assignmentRepository = assignmentRepository;
+        this.submissionRepository = submissionRepository;
+        this.classroomRepository = classroomRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobRetentionNanos = jobRetention.toNanos();
+        int workers = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "marks-rescale");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Rescales all graded submissions of one assignment to {@code newMaxMarks} and stores the new maximum.
+     *
+     * @return the number of submissions whose marks were rescaled
+     */
+    public long rescaleAssignment(Long assignmentId, Integer newMaxMarks) {
+        validateMaxMarks(newMaxMarks);
+        Long rescaled = transactionTemplate.execute(status -> rescaleLocked(assignmentId, newMaxMarks, null));
+        return rescaled != null ? rescaled : 0L;
+    }
+
+    /**
+     * Starts an asynchronous rescale of every assignment in a classroom to a common maximum.
+     */
+    public RescaleProgressDTO startClassroomRescale(Long classroomId, Integer newMaxMarks) {
+        validateMaxMarks(newMaxMarks);
+        evictFinishedJobs();
+        if (!classroomRepository.existsById(classroomId)) {
+            throw new ResourceNotFoundException("Classroom not found with id " + classroomId);
+        }
+
+        List<Long> assignmentIds = assignmentRepository.findByClassroomId(classroomId).stream()
+                .map(Assignment::getId)
+                .toList();
+        Progress progress = new Progress(UUID.randomUUID().toString(), classroomId, newMaxMarks, assignmentIds.size(),
+                submissionRepository.countGradedByClassroomId(classroomId));
+        jobs.put(progress.jobId, progress);
+
+        CompletableFuture<?>[] tasks = assignmentIds.stream()
+                .map(assignmentId -> CompletableFuture.runAsync(() -> {
+                    transactionTemplate.executeWithoutResult(status -> rescaleLocked(assignmentId, newMaxMarks, progress));
+                    progress.completedAssignments.incrementAndGet();
+                }, executor))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(tasks).whenComplete((ignored, error) -> {
+            if (error != null) {
+                progress.error = error.getCause() != null ? error.getCause().getMessage() : error.getMessage();
+                progress.status = "FAILED";
+                progress.finishedAt = System.nanoTime();
+                log.warn("Rescale job {} for classroom {} failed", progress.jobId, classroomId, error);
+            } else {
+                progress.status = "COMPLETED";
+                progress.finishedAt = System.nanoTime();
+                log.info("Rescale job {} for classroom {} rescaled {} submissions", progress.jobId, classroomId,
+                        progress.processedSubmissions.get());
+            }
+        });
+        return progress.toDto();
+    }
+
+    public RescaleProgressDTO getProgress(String jobId) {
+        Progress progress = jobs.get(jobId);
+        if (progress == null) {
+            throw new ResourceNotFoundException("Rescale job not found with id " + jobId);
+        }
+        return progress.toDto();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private long rescaleLocked(Long assignmentId, Integer newMaxMarks, Progress progress) {
+        Assignment assignment = assignmentRepository.findByIdForUpdate(assignmentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Assignment not found with id " + assignmentId));
+        Integer oldMaxMarks = assignment.getMaxMarks();
+
+        long rescaled = 0;
+        if (oldMaxMarks != null && oldMaxMarks > 0 && !oldMaxMarks.equals(newMaxMarks)) {
+            Long minId = submissionRepository.findMinIdByAssignmentId(assignmentId);
+            Long maxId = submissionRepository.findMaxIdByAssignmentId(assignmentId);
+            if (minId != null) {
+                for (long from = minId; from <= maxId; from += CHUNK_SIZE) {
+                    long to = Math.min(maxId, from + CHUNK_SIZE - 1);
+                    int updated = submissionRepository.rescaleMarksInRange(assignmentId, oldMaxMarks, newMaxMarks, from, to);
+                    rescaled += updated;
+                    if (progress != null) {
+                        progress.processedSubmissions.addAndGet(updated);
+                    }
+                }
+            }
+        }
+
+        assignment.setMaxMarks(newMaxMarks);
+        assignmentRepository.save(assignment);
+        eventPublisher.publishEvent(new AssignmentChangedEvent(assignment.getClassroom().getId()));
+        log.debug("Rescaled {} submissions of assignment {} from {} to {}", rescaled, assignmentId, oldMaxMarks, newMaxMarks);
+        return rescaled;
+    }
+
+    // Jobs are only added when one starts, so evicting then limits the map to running jobs and those
+    // that finished within the retention period.
+    private void evictFinishedJobs() {
+        long now = System.nanoTime();
+        jobs.values().removeIf(progress -> progress.finishedAt != null && now - progress.finishedAt > jobRetentionNanos);
+    }
+
+    private void validateMaxMarks(Integer newMaxMarks) {
+        if (newMaxMarks == null || newMaxMarks <= 0) {
+            throw new BadRequestException("maxMarks must be a positive number to rescale marks");
+        }
+    }
+
+    private static final class Progress {
+        private final String jobId;
+        private final Long classroomId;
+        private final Integer newMaxMarks;
+        private final int totalAssignments;
+        private final long totalSubmissions;
+        private final AtomicInteger completedAssignments = new AtomicInteger();
+        private final AtomicLong processedSubmissions = new AtomicLong();
+        private volatile String status = "RUNNING";
+        private volatile String error;
+        // System.nanoTime() once the job has completed or failed.
+        private volatile Long finishedAt;
+
+        private Progress(String jobId, Long classroomId, Integer newMaxMarks, int totalAssignments, long totalSubmissions) {
+            this.jobId = jobId;
+            this.classroomId = classroomId;
+            this.newMaxMarks = newMaxMarks;
+            this.totalAssignments = totalAssignments;
+            this.totalSubmissions = totalSubmissions;
+        }
+
+        private RescaleProgressDTO toDto() {
+            return RescaleProgressDTO.builder()
+                    .jobId(jobId)
+                    .classroomId(classroomId)
+                    .newMaxMarks(newMaxMarks)
+                    .totalAssignments(totalAssignments)
+                    .completedAssignments(completedAssignments.get())
+                    .totalSubmissions(totalSubmissions)
+                    .processedSubmissions(processedSubmissions.get())
+                    .status(status)
+                    .error(error)
+                    .build();
+        }
+    }
+}
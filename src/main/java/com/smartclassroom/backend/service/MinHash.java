@@ -0,0 +1,136 @@
+package com.smartclassroom.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Word-shingle MinHash signatures.
+ * <p>
+ * A document is tokenized into runs of letters and digits (bytes above 0x7F count as letters so UTF-8
+ * text is kept intact), every window of {@link #SHINGLE_SIZE} consecutive tokens is hashed to 64 bits,
+ * and the signature keeps, for each of {@link #SIGNATURE_LENGTH} independent hash functions, the minimum
+ * over all shingles. The fraction of equal positions in two signatures estimates the Jaccard similarity
+ * of their shingle sets.
+ */
+final class MinHash {
+
+    static final int SIGNATURE_LENGTH = 128;
+    static final int SHINGLE_SIZE = 5;
+
+    // Documents are fingerprinted from their first 32 MB; enough for any text-like submission.
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+
+    private static final long[] SEEDS = new SplittableRandom(0x5EED_CAFEL).longs(SIGNATURE_LENGTH).toArray();
+
+    private MinHash() {
+    }
+
+    /**
+     * @return the signature, or {@code null} if the document contains no tokens
+     */
+    static int[] signature(InputStream input) throws IOException {
+        long[] minimums = new long[SIGNATURE_LENGTH];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+
+        long[] window = new long[SHINGLE_SIZE];
+        int tokens = 0;
+        long tokenHash = FNV_OFFSET;
+        boolean inToken = false;
+
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = MAX_BYTES;
+        try (InputStream in = input) {
+            int read;
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) >= 0) {
+                remaining -= read;
+                for (int i = 0; i < read; i++) {
+                    int b = buffer[i] & 0xFF;
+                    if (isTokenByte(b)) {
+                        tokenHash = (tokenHash ^ toLowerAscii(b)) * FNV_PRIME;
+                        inToken = true;
+                    } else if (inToken) {
+                        window[tokens % SHINGLE_SIZE] = tokenHash;
+                        tokens++;
+                        if (tokens >= SHINGLE_SIZE) {
+                            update(minimums, shingle(window, tokens));
+                        }
+                        tokenHash = FNV_OFFSET;
+                        inToken = false;
+                    }
+                }
+            }
+        }
+        if (inToken) {
+            window[tokens % SHINGLE_SIZE] = tokenHash;
+            tokens++;
+            if (tokens >= SHINGLE_SIZE) {
+                update(minimums, shingle(window, tokens));
+            }
+        }
+        if (tokens == 0) {
+            return null;
+        }
+        if (tokens < SHINGLE_SIZE) {
+            // Too short for a full window: the whole document is a single shingle.
+            update(minimums, shingle(window, tokens));
+        }
+
+        int[] signature = new int[SIGNATURE_LENGTH];
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            signature[i] = (int) (minimums[i] ^ (minimums[i] >>> 32));
+        }
+        return signature;
+    }
+
+    /**
+     * Estimated Jaccard similarity: the fraction of positions at which the signatures agree.
+     */
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_LENGTH;
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static boolean isTokenByte(int b) {
+        return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b >= 0x80;
+    }
+
+    private static int toLowerAscii(int b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    // Combines the last min(tokens, SHINGLE_SIZE) token hashes in document order.
+    private static long shingle(long[] window, int tokens) {
+        int count = Math.min(tokens, SHINGLE_SIZE);
+        long hash = 0;
+        for (int i = tokens - count; i < tokens; i++) {
+            hash = hash * 0x9E3779B97F4A7C15L + window[i % SHINGLE_SIZE];
+        }
+        return hash;
+    }
+
+    private static void update(long[] minimums, long shingle) {
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            long value = mix(shingle ^ SEEDS[i]);
+            if (value < minimums[i]) {
+                minimums[i] = value;
+            }
+        }
+    }
+
+    // SplitMix64 finalizer; a cheap, well-distributed 64-bit permutation.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,83 @@
+package com.smartclassroom.backend.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Store of fixed-length MinHash signatures keyed by stored filename.
+ * <p>
+ * All signatures live in one growable {@code int[]} arena; the map only holds the slot index, so a
+ * signature costs {@code 4 * SIGNATURE_LENGTH} bytes plus one map entry rather than an object per array.
+ * Slots of removed signatures are reused by the next ones put, so the arena never outgrows the largest
+ * number of files held at once.
+ */
+final class MinHashSignatureStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int length;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int[] arena;
+    private int usedSlots;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    MinHashSignatureStore(int length) {
+        this.length = length;
+        this.arena = new int[INITIAL_CAPACITY * length];
+    }
+
+    synchronized void put(String filename, int[] signature) {
+        if (signature.length != length) {
+            throw new IllegalArgumentException("Signature must have " + length + " entries");
+        }
+        Integer slot = slots.get(filename);
+        if (slot == null) {
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else {
+                if ((usedSlots + 1) * length > arena.length) {
+                    arena = Arrays.copyOf(arena, arena.length * 2);
+                }
+                slot = usedSlots++;
+            }
+            slots.put(filename, slot);
+        }
+        System.arraycopy(signature, 0, arena, slot * length, length);
+    }
+
+    /**
+     * @return a copy of the signature, or {@code null} if the file has not been fingerprinted
+     */
+    synchronized int[] get(String filename) {
+        Integer slot = slots.get(filename);
+        if (slot == null) {
+            return null;
+        }
+        return Arrays.copyOfRange(arena, slot * length, (slot + 1) * length);
+    }
+
+    /**
+     * @return whether the file had a signature
+     */
+    synchronized boolean remove(String filename) {
+        Integer slot = slots.remove(filename);
+        if (slot == null) {
+            return false;
+        }
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    synchronized boolean contains(String filename) {
+        return slots.containsKey(filename);
+    }
+
+    synchronized int size() {
+        return slots.size();
+    }
+}
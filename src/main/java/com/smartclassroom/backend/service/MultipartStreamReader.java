@@ -0,0 +1,204 @@
+package com.smartclassroom.backend.service;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a {@code multipart/form-data} body one part at a time, straight from the request stream.
+ * <p>
+ * Each part's content is exposed as an {@link InputStream} that ends at the next boundary, so a file
+ * part can be copied to its destination without being buffered in memory or spooled to disk first.
+ * Moving to the next part discards whatever the caller left unread of the current one.
+ */
+final class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+
+    record Part(String name, String filename, MediaType contentType, InputStream body) {
+    }
+
+    private final InputStream in;
+    // "\r\n--boundary": every boundary but the first is preceded by a line break.
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+    private boolean partEnded;
+    private boolean finished;
+
+    MultipartStreamReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 4)];
+        // Pretend the body starts with a line break so the first boundary looks like all the others
+        // and the preamble can be skipped like the body of a part.
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        this.tail = 2;
+    }
+
+    static String boundaryOf(MediaType contentType) {
+        String boundary = contentType.getParameter("boundary");
+        if (boundary != null && boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return boundary;
+    }
+
+    /**
+     * @return the next part, or {@code null} after the closing boundary
+     */
+    Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        byte[] skip = new byte[8 * 1024];
+        while (readBody(skip, 0, skip.length) >= 0) {
+            // discard the rest of the previous part (or the preamble)
+        }
+        if (!ensure(2)) {
+            throw new IOException("Multipart body ended after a boundary");
+        }
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        readLine();
+        partEnded = false;
+
+        HttpHeaders headers = new HttpHeaders();
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+
+        String disposition = headers.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+        ContentDisposition contentDisposition = disposition != null
+                ? ContentDisposition.parse(disposition)
+                : ContentDisposition.empty();
+        String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        return new Part(
+                contentDisposition.getName(),
+                contentDisposition.getFilename(),
+                contentType != null ? MediaType.parseMediaType(contentType) : MediaType.TEXT_PLAIN,
+                new PartInputStream());
+    }
+
+    private int readBody(byte[] target, int offset, int length) throws IOException {
+        if (partEnded) {
+            return -1;
+        }
+        while (true) {
+            int found = indexOfDelimiter();
+            if (found >= 0) {
+                int count = Math.min(length, found - head);
+                if (count == 0) {
+                    head = found + delimiter.length;
+                    partEnded = true;
+                    return -1;
+                }
+                System.arraycopy(buffer, head, target, offset, count);
+                head += count;
+                return count;
+            }
+            // The last delimiter.length - 1 bytes may be the start of a boundary; keep them.
+            int safe = tail - head - (delimiter.length - 1);
+            if (safe > 0) {
+                int count = Math.min(length, safe);
+                System.arraycopy(buffer, head, target, offset, count);
+                head += count;
+                return count;
+            }
+            if (!fill()) {
+                throw new IOException("Multipart body ended before the closing boundary");
+            }
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; i++) {
+            if (buffer[i] != delimiter[0]) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            if (!ensure(1)) {
+                throw new IOException("Multipart body ended inside part headers");
+            }
+            byte b = buffer[head++];
+            if (b == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            line.write(b);
+            if (line.size() > MAX_HEADER_LINE) {
+                throw new IOException("Multipart header line too long");
+            }
+        }
+    }
+
+    private boolean ensure(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Compacts the unread bytes to the front of the buffer and reads more behind them.
+    private boolean fill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    private final class PartInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            return readBody(target, offset, length);
+        }
+    }
+}
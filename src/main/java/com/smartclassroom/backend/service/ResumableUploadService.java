@@ -0,0 +1,338 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.upload.UploadSessionCreateRequestDTO;
+import com.smartclassroom.backend.dto.upload.UploadSessionDTO;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads: a client creates a session for a file of known size, sends chunks by offset in
+ * any order (or several at once), asks which ranges have arrived after a dropped connection, and
+ * finally completes the upload with the SHA-256 of the whole file.
+ * <p>
+ * Chunks are written with positional writes into a file preallocated to the final size, so no
+ * assembly step is needed. Chunk writes share a session lock and completion takes it exclusively,
+ * so the checksum is never computed while a chunk is still being written.
+ * <p>
+ * Sessions, including which ranges have arrived, live in memory only. After a restart a client's
+ * upload id is unknown (404) and it has to start a new session; the part files left behind are
+ * deleted by the reaper. With several instances, every request of a session must reach the
+ * instance that created it.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final StorageQuotaService storageQuotaService;
+    private final Path sessionDir;
+    private final long maxSize;
+    private final Duration sessionTimeout;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public ResumableUploadService(FileStorageService fileStorageService,
+                                  StorageQuotaService storageQuotaService,
+                                  @Value("${file.resumable.max-size:2GB}") DataSize maxSize,
+                                  @Value("${file.resumable.session-timeout:24h}") Duration sessionTimeout) {
+        this.fileStorageService = fileStorageService;
+        this.storageQuotaService = storageQuotaService;
+        this.sessionDir = fileStorageService.getTempDirectory().resolve("resumable");
+        this.maxSize = maxSize.toBytes();
+        this.sessionTimeout = sessionTimeout;
+        try {
+            Files.createDirectories(sessionDir);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create upload session directory", ex);
+        }
+    }
+
+    public UploadSessionDTO createSession(UploadSessionCreateRequestDTO request) {
+        if (request.getSize() > maxSize) {
+            throw new BadRequestException("File is larger than the maximum of " + maxSize + " bytes");
+        }
+
+        // The quota is held from now on, so a session never runs out of space halfway through.
+        StorageQuotaService.Reservation reservation =
+                storageQuotaService.reserve(request.getUserId(), request.getClassroomId(), request.getSize());
+        String uploadId = UUID.randomUUID().toString();
+        Path part = sessionDir.resolve(uploadId + ".part");
+        try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+            file.setLength(request.getSize());
+        } catch (IOException ex) {
+            reservation.close();
+            throw new RuntimeException("Could not create upload session", ex);
+        }
+
+        UploadSession session = new UploadSession(uploadId, request.getFilename(), request.getSize(), part, reservation);
+        sessions.put(uploadId, session);
+        return session.toDto();
+    }
+
+    public UploadSessionDTO getSession(String uploadId) {
+        return find(uploadId).toDto();
+    }
+
+    /**
+     * Writes the request body at {@code offset}. A chunk may overlap ranges already received.
+     */
+    public UploadSessionDTO writeChunk(String uploadId, long offset, InputStream body) {
+        UploadSession session = find(uploadId);
+        if (offset < 0 || offset >= session.size) {
+            throw new BadRequestException("Offset must be between 0 and " + (session.size - 1));
+        }
+
+        session.lock.readLock().lock();
+        try {
+            if (session.completed) {
+                throw new BadRequestException("Upload " + uploadId + " is already complete");
+            }
+            long position = offset;
+            try (FileChannel channel = FileChannel.open(session.part, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = readBody(body, buffer, uploadId, position)) >= 0) {
+                    if (position + read > session.size) {
+                        throw new BadRequestException("Chunk extends beyond the declared file size");
+                    }
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        position += channel.write(chunk, position);
+                    }
+                }
+            } catch (IOException ex) {
+                // Failing to write our own file is a server error, not a partial upload.
+                throw new RuntimeException("Could not write chunk of upload " + uploadId, ex);
+            } finally {
+                session.markReceived(offset, position);
+            }
+        } finally {
+            session.lock.readLock().unlock();
+        }
+        return session.toDto();
+    }
+
+    // A client that drops the connection or aborts mid-chunk ends the chunk early; [offset, position)
+    // is on disk and counts as received, and the client resumes from there.
+    private static int readBody(InputStream body, byte[] buffer, String uploadId, long position) {
+        try {
+            return body.read(buffer);
+        } catch (IOException ex) {
+            log.debug("Chunk of upload {} interrupted at {}", uploadId, position, ex);
+            return -1;
+        }
+    }
+
+    /**
+     * Verifies that the whole file has arrived and matches {@code sha256}, then hands it to
+     * {@link FileStorageService}.
+     *
+     * @return the stored filename
+     */
+    public String complete(String uploadId, String sha256) {
+        UploadSession session = find(uploadId);
+        if (sha256 == null || sha256.isBlank()) {
+            throw new BadRequestException("sha256 is required");
+        }
+
+        session.lock.writeLock().lock();
+        try {
+            if (session.completed) {
+                throw new BadRequestException("Upload " + uploadId + " is already complete");
+            }
+            if (session.receivedBytes() < session.size) {
+                throw new BadRequestException("Upload " + uploadId + " is missing "
+                        + (session.size - session.receivedBytes()) + " bytes");
+            }
+            String actual = sha256(session.part);
+            if (!actual.equalsIgnoreCase(sha256.trim())) {
+                throw new BadRequestException("Checksum mismatch: the uploaded file has SHA-256 " + actual);
+            }
+
+            String storedFilename = fileStorageService.storeCompletedFile(session.part, session.filename);
+            session.reservation.commit(storedFilename, session.size);
+            session.completed = true;
+            sessions.remove(uploadId);
+            return storedFilename;
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    public void abort(String uploadId) {
+        UploadSession session = find(uploadId);
+        session.lock.writeLock().lock();
+        try {
+            session.completed = true;
+            sessions.remove(uploadId);
+            deletePart(session);
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file.resumable.reaper-interval:PT10M}")
+    public void reapAbandonedSessions() {
+        Instant cutoff = Instant.now().minus(sessionTimeout);
+        int reaped = 0;
+        for (UploadSession session : sessions.values()) {
+            if (session.lastActivity.isBefore(cutoff) && session.lock.writeLock().tryLock()) {
+                try {
+                    if (sessions.remove(session.uploadId, session)) {
+                        deletePart(session);
+                        reaped++;
+                    }
+                } finally {
+                    session.lock.writeLock().unlock();
+                }
+            }
+        }
+
+        // Sessions live in memory; part files left behind by a previous run are orphans.
+        try (Stream<Path> parts = Files.list(sessionDir)) {
+            for (Path part : (Iterable<Path>) parts::iterator) {
+                String uploadId = part.getFileName().toString().replace(".part", "");
+                if (!sessions.containsKey(uploadId)
+                        && Files.getLastModifiedTime(part).toInstant().isBefore(cutoff)
+                        && Files.deleteIfExists(part)) {
+                    reaped++;
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Could not scan {} for orphaned uploads", sessionDir, ex);
+        }
+
+        if (reaped > 0) {
+            log.info("Reaped {} abandoned upload sessions", reaped);
+        }
+    }
+
+    private UploadSession find(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new ResourceNotFoundException("Upload session not found with id " + uploadId);
+        }
+        return session;
+    }
+
+    private static void deletePart(UploadSession session) {
+        session.reservation.close();
+        try {
+            Files.deleteIfExists(session.part);
+        } catch (IOException ex) {
+            log.warn("Could not delete {}", session.part, ex);
+        }
+    }
+
+    private static String sha256(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            throw new RuntimeException("Could not verify upload", ex);
+        }
+    }
+
+    private static final class UploadSession {
+
+        private final String uploadId;
+        private final String filename;
+        private final long size;
+        private final Path part;
+        private final StorageQuotaService.Reservation reservation;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // Disjoint, non-adjacent received ranges: start -> end (exclusive)
+        private final TreeMap<Long, Long> received = new TreeMap<>();
+        private volatile Instant lastActivity = Instant.now();
+        private volatile boolean completed;
+
+        private UploadSession(String uploadId, String filename, long size, Path part,
+                              StorageQuotaService.Reservation reservation) {
+            this.uploadId = uploadId;
+            this.filename = filename;
+            this.size = size;
+            this.part = part;
+            this.reservation = reservation;
+        }
+
+        private synchronized void markReceived(long start, long end) {
+            lastActivity = Instant.now();
+            if (end <= start) {
+                return;
+            }
+            Map.Entry<Long, Long> before = received.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next;
+            while ((next = received.ceilingEntry(start)) != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                received.remove(next.getKey());
+            }
+            received.put(start, end);
+        }
+
+        private synchronized long receivedBytes() {
+            long total = 0;
+            for (Map.Entry<Long, Long> range : received.entrySet()) {
+                total += range.getValue() - range.getKey();
+            }
+            return total;
+        }
+
+        private synchronized UploadSessionDTO toDto() {
+            List<String> ranges = new ArrayList<>(received.size());
+            for (Map.Entry<Long, Long> range : received.entrySet()) {
+                ranges.add(range.getKey() + "-" + (range.getValue() - 1));
+            }
+            long receivedBytes = receivedBytes();
+            return UploadSessionDTO.builder()
+                    .uploadId(uploadId)
+                    .filename(filename)
+                    .size(size)
+                    .receivedBytes(receivedBytes)
+                    .receivedRanges(ranges)
+                    .complete(receivedBytes == size)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.smartclassroom.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps uploads in an S3-compatible bucket, so several backend nodes can share them.
+ * <p>
+ * Talks to the S3 REST API directly over the JDK HTTP client with SigV4-signed requests. Uploads larger
+ * than one part are sent as multipart uploads with several parts in flight at once; memory use is
+ * bounded by {@code (upload-concurrency + 1) * part-size} per upload, whatever the file size. Downloads
+ * stream the response body and support byte ranges, so objects are never held in the heap as a whole.
+ */
+@Component
+@ConditionalOnProperty(name = "file.backend", havingValue = S3StorageBackend.NAME)
+public class S3StorageBackend implements StorageBackend {
+
+    public static final String NAME = "s3";
+
+    // S3 allows at most this many parts per upload.
+    private static final int MAX_PARTS = 10_000;
+    private static final int MAX_ERROR_BODY = 4 * 1024;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    private final URI endpoint;
+    private final String bucket;
+    private final boolean pathStyleAccess;
+    private final int partSize;
+    private final int uploadConcurrency;
+    private final SigV4Signer signer;
+    private final HttpClient httpClient;
+
+    public S3StorageBackend(@Value("${file.s3.endpoint}") String endpoint,
+                            @Value("${file.s3.region:us-east-1}") String region,
+                            @Value("${file.s3.bucket}") String bucket,
+                            @Value("${file.s3.access-key}") String accessKey,
+                            @Value("${file.s3.secret-key}") String secretKey,
+                            @Value("${file.s3.path-style-access:true}") boolean pathStyleAccess,
+                            @Value("${file.s3.part-size:8MB}") DataSize partSize,
+                            @Value("${file.s3.upload-concurrency:4}") int uploadConcurrency) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.pathStyleAccess = pathStyleAccess;
+        this.partSize = (int) Math.min(partSize.toBytes(), Integer.MAX_VALUE - 8);
+        this.uploadConcurrency = Math.max(1, uploadConcurrency);
+        this.signer = new SigV4Signer(accessKey, secretKey, region, "s3");
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void store(String key, InputStream content) throws IOException {
+        byte[] first = content.readNBytes(partSize);
+        if (first.length < partSize) {
+            expectSuccess(send("PUT", objectUri(key, null), first), key);
+            return;
+        }
+
+        String uploadId = createMultipartUpload(key);
+        try {
+            List<CompletableFuture<String>> etags = new ArrayList<>();
+            Semaphore inFlight = new Semaphore(uploadConcurrency);
+            byte[] part = first;
+            while (part.length > 0) {
+                if (etags.size() == MAX_PARTS) {
+                    throw new IOException("File needs more than " + MAX_PARTS + " parts; increase file.s3.part-size");
+                }
+                try {
+                    inFlight.acquire();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Upload interrupted");
+                }
+                failIfAnyFailed(etags);
+                int partNumber = etags.size() + 1;
+                URI uri = objectUri(key, "partNumber=" + partNumber + "&uploadId=" + SigV4Signer.encode(uploadId, true));
+                etags.add(sendAsync("PUT", uri, part)
+                        .thenApply(response -> etagOf(checked(response, key)))
+                        .whenComplete((etag, ex) -> inFlight.release()));
+                // Read the next part while the previous ones are on the wire.
+                part = content.readNBytes(partSize);
+            }
+            completeMultipartUpload(key, uploadId, await(etags));
+        } catch (IOException | RuntimeException ex) {
+            abortMultipartUpload(key, uploadId, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void storeFile(String key, Path source) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            store(key, in);
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        HttpResponse<byte[]> response = send("HEAD", objectUri(key, null), null);
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        expectSuccess(response, key);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        Instant lastModified = response.headers().firstValue("Last-Modified")
+                .map(S3StorageBackend::parseHttpDate)
+                .orElse(Instant.EPOCH);
+        return Optional.of(new ObjectInfo(size, lastModified, etagOf(response)));
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        URI uri = objectUri(key, null);
+        HttpRequest.Builder request = signed("GET", uri, null);
+        if (offset > 0 || length >= 0) {
+            request.header("Range", "bytes=" + offset + "-" + (length >= 0 ? String.valueOf(offset + length - 1) : ""));
+        }
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download interrupted");
+        }
+        if (response.statusCode() / 100 != 2) {
+            String error;
+            try (InputStream body = response.body()) {
+                error = new String(body.readNBytes(MAX_ERROR_BODY), StandardCharsets.UTF_8);
+            }
+            if (response.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("GET " + key + " failed with " + response.statusCode() + ": " + error);
+        }
+        return response.body();
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // S3 answers 204 whether or not the object existed.
+        if (stat(key).isEmpty()) {
+            return false;
+        }
+        expectSuccess(send("DELETE", objectUri(key, null), null), key);
+        return true;
+    }
+
+    @Override
+    public Optional<URI> directDownloadUri(String key, Duration validity) {
+        return Optional.of(signer.presign("GET", objectUri(key, null), validity, Instant.now()));
+    }
+
+    private String createMultipartUpload(String key) throws IOException {
+        HttpResponse<byte[]> response = expectSuccess(send("POST", objectUri(key, "uploads"), null), key);
+        Matcher matcher = UPLOAD_ID.matcher(new String(response.body(), StandardCharsets.UTF_8));
+        if (!matcher.find()) {
+            throw new IOException("No upload id in response to CreateMultipartUpload for " + key);
+        }
+        return matcher.group(1);
+    }
+
+    private void completeMultipartUpload(String key, String uploadId, List<String> etags) throws IOException {
+        StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < etags.size(); i++) {
+            body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>\"")
+                    .append(etags.get(i)).append("\"</ETag></Part>");
+        }
+        body.append("</CompleteMultipartUpload>");
+
+        URI uri = objectUri(key, "uploadId=" + SigV4Signer.encode(uploadId, true));
+        HttpResponse<byte[]> response = expectSuccess(send("POST", uri, body.toString().getBytes(StandardCharsets.UTF_8)), key);
+        // A 200 can still carry an error that happened after the response started.
+        if (new String(response.body(), StandardCharsets.UTF_8).contains("<Error>")) {
+            throw new IOException("CompleteMultipartUpload failed for " + key + ": "
+                    + new String(response.body(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void abortMultipartUpload(String key, String uploadId, Exception cause) {
+        try {
+            send("DELETE", objectUri(key, "uploadId=" + SigV4Signer.encode(uploadId, true)), null);
+        } catch (IOException | RuntimeException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    private static void failIfAnyFailed(List<CompletableFuture<String>> etags) throws IOException {
+        for (CompletableFuture<String> etag : etags) {
+            if (etag.isCompletedExceptionally()) {
+                await(List.of(etag));
+            }
+        }
+    }
+
+    private static List<String> await(List<CompletableFuture<String>> etags) throws IOException {
+        List<String> results = new ArrayList<>(etags.size());
+        try {
+            for (CompletableFuture<String> etag : etags) {
+                results.add(etag.join());
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Part upload failed", ex.getCause());
+        }
+        return results;
+    }
+
+    private URI objectUri(String key, String query) {
+        String encodedKey = SigV4Signer.encode(key, false);
+        String base = pathStyleAccess
+                ? endpoint + "/" + SigV4Signer.encode(bucket, true) + "/" + encodedKey
+                : endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/" + encodedKey;
+        return URI.create(query != null ? base + "?" + query : base);
+    }
+
+    private HttpRequest.Builder signed(String method, URI uri, byte[] body) {
+        Instant now = Instant.now();
+        String payloadHash = SigV4Signer.sha256Hex(body != null ? body : new byte[0]);
+        TreeMap<String, String> headers = new TreeMap<>();
+        headers.put("host", SigV4Signer.hostHeader(uri));
+        headers.put("x-amz-content-sha256", payloadHash);
+        headers.put("x-amz-date", SigV4Signer.timestamp(now));
+
+        return HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("x-amz-content-sha256", payloadHash)
+                .header("x-amz-date", headers.get("x-amz-date"))
+                .header("Authorization", signer.authorization(method, uri, headers, payloadHash, now))
+                .method(method, body != null
+                        ? HttpRequest.BodyPublishers.ofByteArray(body)
+                        : HttpRequest.BodyPublishers.noBody());
+    }
+
+    private HttpResponse<byte[]> send(String method, URI uri, byte[] body) throws IOException {
+        try {
+            return httpClient.send(signed(method, uri, body).build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(method + " " + uri.getPath() + " interrupted");
+        }
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(String method, URI uri, byte[] body) {
+        return httpClient.sendAsync(signed(method, uri, body).build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static HttpResponse<byte[]> expectSuccess(HttpResponse<byte[]> response, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            byte[] body = response.body() != null ? response.body() : new byte[0];
+            throw new IOException(response.request().method() + " " + key + " failed with " + response.statusCode()
+                    + ": " + new String(body, 0, Math.min(body.length, MAX_ERROR_BODY), StandardCharsets.UTF_8));
+        }
+        return response;
+    }
+
+    private static HttpResponse<byte[]> checked(HttpResponse<byte[]> response, String key) {
+        try {
+            return expectSuccess(response, key);
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    private static String etagOf(HttpResponse<?> response) {
+        String etag = response.headers().firstValue("ETag").orElse("");
+        return etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 1
+                ? etag.substring(1, etag.length() - 1)
+                : etag;
+    }
+
+    private static Instant parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException ex) {
+            return Instant.EPOCH;
+        }
+    }
+}
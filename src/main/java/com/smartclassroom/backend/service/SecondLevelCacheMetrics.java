@@ -0,0 +1,69 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.metrics.CacheRegionStatsDTO;
+import com.smartclassroom.backend.dto.metrics.SecondLevelCacheStatsDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hit rates of the Hibernate second-level cache, overall and per entity region. Requires
+ * {@code hibernate.generate_statistics}; without it every counter reads zero.
+ */
+@Component
+public class SecondLevelCacheMetrics {
+
+    private final Statistics statistics;
+
+    public SecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public SecondLevelCacheStatsDTO getStats() {
+        long hits = statistics.getSecondLevelCacheHitCount();
+        long misses = statistics.getSecondLevelCacheMissCount();
+        long total = hits + misses;
+
+        List<CacheRegionStatsDTO> regions = new ArrayList<>();
+        for (String region : Arrays.stream(statistics.getSecondLevelCacheRegionNames()).sorted().toList()) {
+            CacheRegionStatistics regionStatistics = domainDataRegionStatistics(region);
+            if (regionStatistics == null) {
+                continue;
+            }
+            regions.add(CacheRegionStatsDTO.builder()
+                    .region(region)
+                    .hits(regionStatistics.getHitCount())
+                    .misses(regionStatistics.getMissCount())
+                    .puts(regionStatistics.getPutCount())
+                    .entries(regionStatistics.getElementCountInMemory())
+                    .build());
+        }
+
+        return SecondLevelCacheStatsDTO.builder()
+                .hits(hits)
+                .misses(misses)
+                .puts(statistics.getSecondLevelCachePutCount())
+                .hitRatio(total == 0 ? 0.0 : (double) hits / total)
+                .queryCacheHits(statistics.getQueryCacheHitCount())
+                .queryCacheMisses(statistics.getQueryCacheMissCount())
+                .queryCachePuts(statistics.getQueryCachePutCount())
+                .statements(statistics.getPrepareStatementCount())
+                .regions(regions)
+                .build();
+    }
+
+    // Null for the query result and timestamp regions, which the query cache counters cover.
+    private CacheRegionStatistics domainDataRegionStatistics(String region) {
+        try {
+            return statistics.getDomainDataRegionStatistics(region);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
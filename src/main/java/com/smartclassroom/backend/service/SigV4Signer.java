@@ -0,0 +1,201 @@
+package com.smartclassroom.backend.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * AWS Signature Version 4, as accepted by S3 and S3-compatible stores (MinIO, Ceph, R2, ...).
+ * <p>
+ * Request URIs must already be encoded with {@link #encode}, so that their raw path and query are
+ * the canonical forms the signature is computed over.
+ */
+final class SigV4Signer {
+
+    static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+    private final String service;
+
+    SigV4Signer(String accessKey, String secretKey, String region, String service) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+        this.service = service;
+    }
+
+    static String timestamp(Instant time) {
+        return TIMESTAMP.format(time);
+    }
+
+    /**
+     * Value of the {@code Authorization} header. {@code headers} are the headers to sign, by lower-case
+     * name; they must include {@code host}, {@code x-amz-date} (for {@code time}) and
+     * {@code x-amz-content-sha256} (equal to {@code payloadHash}).
+     */
+    String authorization(String method, URI uri, SortedMap<String, String> headers, String payloadHash, Instant time) {
+        String signedHeaders = String.join(";", headers.keySet());
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            canonicalHeaders.append(header.getKey()).append(':').append(header.getValue().trim()).append('\n');
+        }
+        String canonicalRequest = method + '\n'
+                + canonicalPath(uri) + '\n'
+                + canonicalQuery(uri.getRawQuery()) + '\n'
+                + canonicalHeaders + '\n'
+                + signedHeaders + '\n'
+                + payloadHash;
+        return ALGORITHM + " Credential=" + accessKey + "/" + scope(time)
+                + ", SignedHeaders=" + signedHeaders
+                + ", Signature=" + sign(canonicalRequest, time);
+    }
+
+    /**
+     * A URL that performs {@code method} on {@code uri} without further credentials until it expires.
+     */
+    URI presign(String method, URI uri, Duration validity, Instant time) {
+        StringBuilder query = new StringBuilder();
+        if (uri.getRawQuery() != null && !uri.getRawQuery().isEmpty()) {
+            query.append(uri.getRawQuery()).append('&');
+        }
+        query.append("X-Amz-Algorithm=").append(ALGORITHM)
+                .append("&X-Amz-Credential=").append(encode(accessKey + "/" + scope(time), true))
+                .append("&X-Amz-Date=").append(timestamp(time))
+                .append("&X-Amz-Expires=").append(validity.toSeconds())
+                .append("&X-Amz-SignedHeaders=host");
+        URI unsigned = URI.create(uri.getScheme() + "://" + uri.getRawAuthority() + uri.getRawPath() + "?" + query);
+
+        String canonicalRequest = method + '\n'
+                + canonicalPath(unsigned) + '\n'
+                + canonicalQuery(unsigned.getRawQuery()) + '\n'
+                + "host:" + hostHeader(unsigned) + "\n\n"
+                + "host\n"
+                + UNSIGNED_PAYLOAD;
+        return URI.create(unsigned + "&X-Amz-Signature=" + sign(canonicalRequest, time));
+    }
+
+    /**
+     * The {@code Host} header the JDK HTTP client sends for {@code uri}: the port is left out when it
+     * is the scheme's default.
+     */
+    static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1
+                || ("https".equalsIgnoreCase(uri.getScheme()) && port == 443)
+                || ("http".equalsIgnoreCase(uri.getScheme()) && port == 80);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    /**
+     * Percent-encodes everything but the RFC 3986 unreserved characters, and {@code /} unless
+     * {@code encodeSlash} is set.
+     */
+    static String encode(String value, boolean encodeSlash) {
+        StringBuilder encoded = new StringBuilder(value.length() + 16);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    static String sha256Hex(byte[] data, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, offset, length);
+            return HEX.formatHex(digest.digest());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    static String sha256Hex(byte[] data) {
+        return sha256Hex(data, 0, data.length);
+    }
+
+    private String scope(Instant time) {
+        return timestamp(time).substring(0, 8) + "/" + region + "/" + service + "/aws4_request";
+    }
+
+    private String sign(String canonicalRequest, Instant time) {
+        String stringToSign = ALGORITHM + '\n'
+                + timestamp(time) + '\n'
+                + scope(time) + '\n'
+                + sha256Hex(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), timestamp(time).substring(0, 8));
+        key = hmac(key, region);
+        key = hmac(key, service);
+        key = hmac(key, "aws4_request");
+        return HEX.formatHex(hmac(key, stringToSign));
+    }
+
+    private static String canonicalPath(URI uri) {
+        String path = uri.getRawPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    // Parameters sorted by name; a parameter without a value (e.g. "?uploads") has an empty one.
+    private static String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            parameters.add(parameter.contains("=") ? parameter : parameter + "=");
+        }
+        TreeMap<String, List<String>> sorted = new TreeMap<>();
+        for (String parameter : parameters) {
+            int equals = parameter.indexOf('=');
+            sorted.computeIfAbsent(parameter.substring(0, equals), name -> new ArrayList<>())
+                    .add(parameter.substring(equals + 1));
+        }
+        StringBuilder canonical = new StringBuilder();
+        for (Map.Entry<String, List<String>> parameter : sorted.entrySet()) {
+            List<String> values = parameter.getValue();
+            values.sort(null);
+            for (String value : values) {
+                if (!canonical.isEmpty()) {
+                    canonical.append('&');
+                }
+                canonical.append(parameter.getKey()).append('=').append(value);
+            }
+        }
+        return canonical.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 not available", ex);
+        }
+    }
+}
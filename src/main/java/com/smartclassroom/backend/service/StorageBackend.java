@@ -0,0 +1,64 @@
+package com.smartclassroom.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Where uploaded files are kept. {@link FileStorageService} names files and manages their metadata,
+ * variants and caches; a backend only stores, reads and deletes bytes by key.
+ * <p>
+ * The backend in use is picked by its {@link #name()} through {@code file.backend}.
+ */
+public interface StorageBackend {
+
+    record ObjectInfo(long size, Instant lastModified, String etag) {
+    }
+
+    String name();
+
+    /**
+     * Stores {@code content} under {@code key}. Nothing is left behind under the key if reading
+     * {@code content} fails.
+     */
+    void store(String key, InputStream content) throws IOException;
+
+    /**
+     * Takes over a fully written local file; {@code source} no longer exists afterwards.
+     */
+    void storeFile(String key, Path source) throws IOException;
+
+    Optional<ObjectInfo> stat(String key) throws IOException;
+
+    /**
+     * Opens {@code length} bytes of the object starting at {@code offset}, or everything from
+     * {@code offset} on if {@code length} is negative.
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no object under {@code key}
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    /**
+     * @return {@code true} if the object existed
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * The file holding {@code key}, for backends that keep objects on this machine's disk. Downloads
+     * of such files can use sendfile, and variants such as thumbnails can be generated from them.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * A URL clients can download {@code key} from directly for the given time, if the backend supports it.
+     */
+    default Optional<URI> directDownloadUri(String key, Duration validity) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,392 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.storage.StorageReconciliationReportDTO;
+import com.smartclassroom.backend.dto.storage.StorageUsageDTO;
+import com.smartclassroom.backend.event.FileDeletedEvent;
+import com.smartclassroom.backend.exception.PayloadTooLargeException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.model.FileOwnership;
+import com.smartclassroom.backend.model.StorageScope;
+import com.smartclassroom.backend.model.StorageUsage;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.FileOwnershipRepository;
+import com.smartclassroom.backend.repository.StorageUsageRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import com.smartclassroom.backend.repository.projection.StorageTotalView;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Storage accounting and quotas per user and per classroom.
+ * <p>
+ * Usage lives in in-memory counters that are loaded from {@code storage_usage} the first time an
+ * owner is seen, so checking a quota on the upload path costs no database round trip. An upload
+ * reserves its declared size before any byte is written and is charged its actual size once stored.
+ * New charges and the {@link FileOwnership} rows behind them are written behind in batches; deletions
+ * are credited back when {@link FileStorageService} reports them. A reconciliation job recomputes
+ * every counter from the ownership rows, so drift (a crash before a flush, a race between a delete
+ * and a flush) does not accumulate.
+ * <p>
+ * Quotas are soft by the size of concurrently reserved uploads racing the same check. Files stored
+ * before accounting was introduced are not charged to anyone.
+ */
+@Service
+public class StorageQuotaService {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageQuotaService.class);
+
+    private record Key(StorageScope scope, Long ownerId) {
+    }
+
+    private static final class Counter {
+
+        // Charged bytes, including those not yet flushed.
+        private final AtomicLong used;
+        private final AtomicLong reserved = new AtomicLong();
+        private final AtomicLong unflushed = new AtomicLong();
+
+        private Counter(long used) {
+            this.used = new AtomicLong(used);
+        }
+    }
+
+    private final FileOwnershipRepository fileOwnershipRepository;
+    private final StorageUsageRepository storageUsageRepository;
+    private final UserRepository userRepository;
+    private final ClassroomRepository classroomRepository;
+    private final TransactionTemplate transaction;
+    private final long userQuota;
+    private final long classroomQuota;
+
+    private final Map<Key, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, FileOwnership> pendingOwnership = new ConcurrentHashMap<>();
+    private final Set<String> pendingRemovals = ConcurrentHashMap.newKeySet();
+    // Held by flushes and deletions, never by uploads.
+    private final Object flushLock = new Object();
+
+    public StorageQuotaService(FileOwnershipRepository fileOwnershipRepository,
+                               StorageUsageRepository storageUsageRepository,
+                               UserRepository userRepository,
+                               ClassroomRepository classroomRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${file.quota.per-user:2GB}") DataSize userQuota,
+                               @Value("${file.quota.per-classroom:20GB}") DataSize classroomQuota) {
+        this.fileOwnershipRepository = fileOwnershipRepository;
+        this.storageUsageRepository = storageUsageRepository;
+        this.userRepository = userRepository;
+        this.classroomRepository = classroomRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.userQuota = userQuota.toBytes();
+        this.classroomQuota = classroomQuota.toBytes();
+    }
+
+    /**
+     * Holds {@code bytes} against the quotas of the user and, if given, the classroom until the upload
+     * is committed or released.
+     *
+     * @throws PayloadTooLargeException if either quota would be exceeded
+     * @throws ResourceNotFoundException if the user or classroom does not exist
+     */
+    public Reservation reserve(Long userId, Long classroomId, long bytes) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        Counter user = existingCounter(StorageScope.USER, userId);
+        Counter classroom = classroomId != null ? existingCounter(StorageScope.CLASSROOM, classroomId) : null;
+
+        hold(user, userQuota, bytes, "User " + userId);
+        if (classroom != null) {
+            try {
+                hold(classroom, classroomQuota, bytes, "Classroom " + classroomId);
+            } catch (PayloadTooLargeException ex) {
+                user.reserved.addAndGet(-bytes);
+                throw ex;
+            }
+        }
+        return new Reservation(userId, classroomId, user, classroom, bytes);
+    }
+
+    public StorageUsageDTO getUserUsage(Long userId) {
+        return toDto(existingCounter(StorageScope.USER, userId), userQuota);
+    }
+
+    public StorageUsageDTO getClassroomUsage(Long classroomId) {
+        return toDto(existingCounter(StorageScope.CLASSROOM, classroomId), classroomQuota);
+    }
+
+    @EventListener
+    public void onFileDeleted(FileDeletedEvent event) {
+        synchronized (flushLock) {
+            FileOwnership ownership = pendingOwnership.remove(event.filename());
+            if (ownership == null) {
+                ownership = fileOwnershipRepository.findById(event.filename()).orElse(null);
+                if (ownership == null) {
+                    return;
+                }
+                pendingRemovals.add(event.filename());
+            }
+            charge(StorageScope.USER, ownership.getUserId(), -ownership.getSize());
+            if (ownership.getClassroomId() != null) {
+                charge(StorageScope.CLASSROOM, ownership.getClassroomId(), -ownership.getSize());
+            }
+        }
+    }
+
+    /**
+     * Writes pending ownership rows and counter changes in one transaction. On failure everything is
+     * put back for the next attempt.
+     */
+    @Scheduled(fixedDelayString = "${file.quota.flush-interval:PT5S}")
+    public void flush() {
+        synchronized (flushLock) {
+            List<FileOwnership> inserts = new ArrayList<>();
+            for (FileOwnership ownership : pendingOwnership.values()) {
+                if (pendingOwnership.remove(ownership.getFilename(), ownership)) {
+                    inserts.add(ownership);
+                }
+            }
+            List<String> removals = new ArrayList<>(pendingRemovals);
+            pendingRemovals.removeAll(removals);
+            Map<Key, Long> deltas = new HashMap<>();
+            counters.forEach((key, counter) -> {
+                long delta = counter.unflushed.getAndSet(0);
+                if (delta != 0) {
+                    deltas.put(key, delta);
+                }
+            });
+            if (inserts.isEmpty() && removals.isEmpty() && deltas.isEmpty()) {
+                return;
+            }
+
+            try {
+                transaction.executeWithoutResult(status -> {
+                    fileOwnershipRepository.saveAll(inserts);
+                    fileOwnershipRepository.deleteAllByIdInBatch(removals);
+                    applyDeltas(StorageScope.USER, deltas);
+                    applyDeltas(StorageScope.CLASSROOM, deltas);
+                });
+            } catch (RuntimeException ex) {
+                log.warn("Could not flush storage usage ({} new files, {} removed files); will retry",
+                        inserts.size(), removals.size(), ex);
+                for (FileOwnership ownership : inserts) {
+                    pendingOwnership.putIfAbsent(ownership.getFilename(), ownership);
+                }
+                pendingRemovals.addAll(removals);
+                deltas.forEach((key, delta) -> counters.get(key).unflushed.addAndGet(delta));
+            }
+        }
+    }
+
+    @Scheduled(cron = "${file.quota.reconcile-cron:0 30 3 * * *}")
+    public void reconcileOnSchedule() {
+        StorageReconciliationReportDTO report = reconcile();
+        if (report.getCountersCorrected() > 0) {
+            log.warn("Storage reconciliation corrected {} of {} counters ({} bytes of drift)",
+                    report.getCountersCorrected(), report.getCountersChecked(), report.getDriftBytes());
+        }
+    }
+
+    /**
+     * Recomputes every usage counter from the ownership rows and corrects the stored and cached values.
+     */
+    public StorageReconciliationReportDTO reconcile() {
+        long start = System.nanoTime();
+        synchronized (flushLock) {
+            flush();
+            long[] checked = new long[1];
+            long[] corrected = new long[1];
+            long[] drift = new long[1];
+            Map<Key, Long> totals = transaction.execute(status -> {
+                Map<Key, Long> expected = new HashMap<>();
+                for (StorageScope scope : StorageScope.values()) {
+                    Map<Long, Long> sums = new HashMap<>();
+                    List<StorageTotalView> views = scope == StorageScope.USER
+                            ? fileOwnershipRepository.sumSizeByUser()
+                            : fileOwnershipRepository.sumSizeByClassroom();
+                    for (StorageTotalView view : views) {
+                        sums.put(view.getOwnerId(), view.getTotalBytes());
+                    }
+
+                    List<StorageUsage> rows = new ArrayList<>(storageUsageRepository.findByScope(scope));
+                    for (StorageUsage row : rows) {
+                        long total = sums.getOrDefault(row.getOwnerId(), 0L);
+                        if (row.getUsedBytes() != total) {
+                            corrected[0]++;
+                            drift[0] += Math.abs(total - row.getUsedBytes());
+                            row.setUsedBytes(total);
+                        }
+                        sums.remove(row.getOwnerId());
+                        expected.put(new Key(scope, row.getOwnerId()), total);
+                    }
+                    sums.forEach((ownerId, total) -> {
+                        corrected[0]++;
+                        drift[0] += total;
+                        rows.add(StorageUsage.builder().scope(scope).ownerId(ownerId).usedBytes(total).build());
+                        expected.put(new Key(scope, ownerId), total);
+                    });
+                    checked[0] += rows.size();
+                    storageUsageRepository.saveAll(rows);
+                }
+                return expected;
+            });
+
+            // Uploads committed since the flush above are in unflushed, and not yet in the totals.
+            counters.forEach((key, counter) ->
+                    counter.used.set(totals.getOrDefault(key, 0L) + counter.unflushed.get()));
+
+            return StorageReconciliationReportDTO.builder()
+                    .countersChecked(checked[0])
+                    .countersCorrected(corrected[0])
+                    .driftBytes(drift[0])
+                    .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                    .build();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static void hold(Counter counter, long quota, long bytes, String owner) {
+        long reserved = counter.reserved.addAndGet(bytes);
+        long used = counter.used.get();
+        if (quota > 0 && used + reserved > quota) {
+            counter.reserved.addAndGet(-bytes);
+            long available = Math.max(0, quota - used - (reserved - bytes));
+            throw new PayloadTooLargeException(owner + " has " + available
+                    + " bytes of storage left, but the upload needs " + bytes);
+        }
+    }
+
+    private void charge(StorageScope scope, Long ownerId, long bytes) {
+        Counter counter = counters.computeIfAbsent(new Key(scope, ownerId), this::load);
+        counter.used.addAndGet(bytes);
+        counter.unflushed.addAndGet(bytes);
+    }
+
+    // Only a cache miss checks that the owner exists; a deleted user or classroom keeps its counter
+    // until restart, which is harmless since nothing can upload for it.
+    private Counter existingCounter(StorageScope scope, Long ownerId) {
+        Key key = new Key(scope, ownerId);
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        boolean exists = scope == StorageScope.USER
+                ? userRepository.existsById(ownerId)
+                : classroomRepository.existsById(ownerId);
+        if (!exists) {
+            throw new ResourceNotFoundException((scope == StorageScope.USER ? "User" : "Classroom")
+                    + " not found with id " + ownerId);
+        }
+        return counters.computeIfAbsent(key, this::load);
+    }
+
+    private Counter load(Key key) {
+        return new Counter(storageUsageRepository.findByScopeAndOwnerId(key.scope(), key.ownerId())
+                .map(StorageUsage::getUsedBytes)
+                .orElse(0L));
+    }
+
+    private void applyDeltas(StorageScope scope, Map<Key, Long> deltas) {
+        Map<Long, Long> byOwner = new HashMap<>();
+        deltas.forEach((key, delta) -> {
+            if (key.scope() == scope) {
+                byOwner.put(key.ownerId(), delta);
+            }
+        });
+        if (byOwner.isEmpty()) {
+            return;
+        }
+        List<StorageUsage> rows = new ArrayList<>(storageUsageRepository.findByScopeAndOwnerIdIn(scope, byOwner.keySet()));
+        for (StorageUsage row : rows) {
+            row.setUsedBytes(row.getUsedBytes() + byOwner.remove(row.getOwnerId()));
+        }
+        byOwner.forEach((ownerId, delta) ->
+                rows.add(StorageUsage.builder().scope(scope).ownerId(ownerId).usedBytes(delta).build()));
+        storageUsageRepository.saveAll(rows);
+    }
+
+    private static StorageUsageDTO toDto(Counter counter, long quota) {
+        return StorageUsageDTO.builder()
+                .usedBytes(counter.used.get())
+                .reservedBytes(counter.reserved.get())
+                .quotaBytes(Math.max(0, quota))
+                .build();
+    }
+
+    /**
+     * Storage held for one upload. Exactly one of {@link #commit} and {@link #close} takes effect, so
+     * callers commit on success and close in a {@code finally} (or try-with-resources).
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final Long userId;
+        private final Long classroomId;
+        private final Counter user;
+        private final Counter classroom;
+        private final long bytes;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Reservation(Long userId, Long classroomId, Counter user, Counter classroom, long bytes) {
+            this.userId = userId;
+            this.classroomId = classroomId;
+            this.user = user;
+            this.classroom = classroom;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Charges the stored file at its actual size and returns the rest of the reservation.
+         */
+        public void commit(String filename, long size) {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            pendingOwnership.put(filename, FileOwnership.builder()
+                    .filename(filename)
+                    .userId(userId)
+                    .classroomId(classroomId)
+                    .size(size)
+                    .build());
+            settle(user, size);
+            if (classroom != null) {
+                settle(classroom, size);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (settled.compareAndSet(false, true)) {
+                user.reserved.addAndGet(-bytes);
+                if (classroom != null) {
+                    classroom.reserved.addAndGet(-bytes);
+                }
+            }
+        }
+
+        private void settle(Counter counter, long size) {
+            counter.used.addAndGet(size);
+            counter.unflushed.addAndGet(size);
+            counter.reserved.addAndGet(-bytes);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.metrics.UploadMetricsDTO;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.PayloadTooLargeException;
+import com.smartclassroom.backend.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Multipart uploads that are parsed from the request stream and written once, directly to their
+ * final location, instead of being spooled to a temporary file by the servlet container first.
+ * <p>
+ * Limits are checked before the body is read: the declared Content-Length must fit the per-file
+ * limit, and the upload reserves that many bytes against the storage quotas of its user and
+ * classroom and against both a per-user and a global budget of bytes in flight. While streaming,
+ * the actual byte count is enforced again, since Content-Length may be absent or wrong: a body longer
+ * than its declared length is rejected, and so is a file part longer than the per-file limit. Every
+ * reservation is released however the upload ends.
+ */
+@Service
+public class StreamingUploadService {
+
+    // Room for part headers and boundaries on top of the file itself.
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final StorageQuotaService storageQuotaService;
+    private final long maxFileSize;
+    private final long maxInFlightPerUser;
+    private final long maxInFlight;
+
+    private final Map<Long, AtomicLong> inFlightByUser = new ConcurrentHashMap<>();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final LongAdder completedUploads = new LongAdder();
+    private final LongAdder rejectedUploads = new LongAdder();
+    private final LongAdder failedUploads = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder nanosSpent = new LongAdder();
+
+    public StreamingUploadService(FileStorageService fileStorageService,
+                                  StorageQuotaService storageQuotaService,
+                                  @Value("${file.streaming.max-file-size:512MB}") DataSize maxFileSize,
+                                  @Value("${file.streaming.max-in-flight-per-user:1GB}") DataSize maxInFlightPerUser,
+                                  @Value("${file.streaming.max-in-flight:8GB}") DataSize maxInFlight) {
+        this.fileStorageService = fileStorageService;
+        this.storageQuotaService = storageQuotaService;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxInFlightPerUser = maxInFlightPerUser.toBytes();
+        this.maxInFlight = maxInFlight.toBytes();
+    }
+
+    /**
+     * Stores the part named {@code file} of a multipart request body and charges it to
+     * {@code userId} and, if given, {@code classroomId}.
+     *
+     * @param contentLength the declared length of the body, or {@code -1} if unknown
+     * @return the stored filename
+     */
+    public String store(Long userId, Long classroomId, String contentType, long contentLength, InputStream body) {
+        String boundary = boundaryOf(contentType);
+        if (contentLength > maxFileSize + MULTIPART_OVERHEAD) {
+            rejectedUploads.increment();
+            throw new PayloadTooLargeException("File is larger than the maximum of " + maxFileSize + " bytes");
+        }
+
+        long reservation = contentLength >= 0 ? contentLength : maxFileSize;
+        StorageQuotaService.Reservation quota;
+        try {
+            quota = storageQuotaService.reserve(userId, classroomId, reservation);
+        } catch (PayloadTooLargeException ex) {
+            rejectedUploads.increment();
+            throw ex;
+        }
+        AtomicLong userInFlight;
+        try {
+            userInFlight = reserve(userId, reservation);
+        } catch (RuntimeException ex) {
+            quota.close();
+            throw ex;
+        }
+        activeUploads.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            // The reservations above were sized from the declared length, so the body may not exceed it.
+            InputStream declared = contentLength >= 0
+                    ? new CountingInputStream(body, contentLength,
+                            () -> new BadRequestException("Request body is longer than its Content-Length of "
+                                    + contentLength + " bytes"))
+                    : body;
+            MultipartStreamReader reader = new MultipartStreamReader(declared, boundary);
+            MultipartStreamReader.Part part;
+            while ((part = reader.next()) != null) {
+                if ("file".equals(part.name()) && part.filename() != null) {
+                    CountingInputStream content = new CountingInputStream(part.body(), maxFileSize,
+                            () -> new PayloadTooLargeException(
+                                    "File is larger than the maximum of " + maxFileSize + " bytes"));
+                    String storedFilename = fileStorageService.storeStream(content, part.filename());
+                    quota.commit(storedFilename, content.count);
+                    completedUploads.increment();
+                    bytesReceived.add(content.count);
+                    nanosSpent.add(System.nanoTime() - start);
+                    return storedFilename;
+                }
+            }
+            throw new BadRequestException("Request has no file part named 'file'");
+        } catch (IOException ex) {
+            failedUploads.increment();
+            throw new BadRequestException("Malformed or interrupted upload: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            failedUploads.increment();
+            throw ex;
+        } finally {
+            quota.close();
+            activeUploads.decrementAndGet();
+            userInFlight.addAndGet(-reservation);
+            inFlight.addAndGet(-reservation);
+            inFlightByUser.computeIfPresent(userId, (id, bytes) -> bytes.get() == 0 ? null : bytes);
+        }
+    }
+
+    public UploadMetricsDTO getMetrics() {
+        long completed = completedUploads.sum();
+        long bytes = bytesReceived.sum();
+        long nanos = nanosSpent.sum();
+        return UploadMetricsDTO.builder()
+                .completedUploads(completed)
+                .rejectedUploads(rejectedUploads.sum())
+                .failedUploads(failedUploads.sum())
+                .bytesReceived(bytes)
+                .averageMegabytesPerSecond(nanos > 0 ? (bytes / 1_048_576.0) / (nanos / 1_000_000_000.0) : 0.0)
+                .activeUploads(activeUploads.get())
+                .bytesInFlight(inFlight.get())
+                .build();
+    }
+
+    private AtomicLong reserve(Long userId, long bytes) {
+        if (inFlight.addAndGet(bytes) > maxInFlight) {
+            inFlight.addAndGet(-bytes);
+            rejectedUploads.increment();
+            throw new TooManyRequestsException("Server is busy with other uploads, please retry shortly");
+        }
+        AtomicLong userInFlight = inFlightByUser.compute(userId, (id, current) -> {
+            AtomicLong counter = current != null ? current : new AtomicLong();
+            counter.addAndGet(bytes);
+            return counter;
+        });
+        if (userInFlight.get() > maxInFlightPerUser) {
+            userInFlight.addAndGet(-bytes);
+            inFlight.addAndGet(-bytes);
+            rejectedUploads.increment();
+            throw new TooManyRequestsException("Too many concurrent uploads for user " + userId);
+        }
+        return userInFlight;
+    }
+
+    private static String boundaryOf(String contentType) {
+        try {
+            MediaType mediaType = contentType != null ? MediaType.parseMediaType(contentType) : null;
+            String boundary = mediaType != null && MediaType.MULTIPART_FORM_DATA.includes(mediaType)
+                    ? MultipartStreamReader.boundaryOf(mediaType)
+                    : null;
+            if (boundary == null || boundary.isEmpty()) {
+                throw new BadRequestException("Expected a multipart/form-data request with a boundary");
+            }
+            return boundary;
+        } catch (InvalidMediaTypeException ex) {
+            throw new BadRequestException("Invalid Content-Type: " + contentType);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final long limit;
+        private final Supplier<RuntimeException> overLimit;
+        private long count;
+
+        private CountingInputStream(InputStream in, long limit, Supplier<RuntimeException> overLimit) {
+            super(in);
+            this.limit = limit;
+            this.overLimit = overLimit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        private void advance(long bytes) {
+            count += bytes;
+            if (count > limit) {
+                throw overLimit.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.projection.SubmissionFileView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams every submitted file of an assignment as one ZIP archive, named by student.
+ * <p>
+ * Files are read one after the other and written straight to the response; the archive never exists
+ * on disk or in memory. Formats that are already compressed are written at level 0, which the
+ * deflater passes through as stored blocks instead of spending CPU on them for nothing.
+ */
+@Service
+@RequiredArgsConstructor
+public class SubmissionArchiveService {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final String SKIPPED_ENTRY = "not-included.txt";
+
+    private static final Set<String> COMPRESSED_SUBTYPES = Set.of(
+            "pdf", "zip", "gzip", "x-gzip", "x-7z-compressed", "x-rar-compressed", "vnd.rar", "x-bzip2", "x-xz",
+            "epub+zip", "java-archive",
+            "vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "vnd.openxmlformats-officedocument.presentationml.presentation",
+            "vnd.oasis.opendocument.text", "vnd.oasis.opendocument.spreadsheet",
+            "vnd.oasis.opendocument.presentation");
+
+    private final AssignmentRepository assignmentRepository;
+    private final AssignmentSubmissionRepository submissionRepository;
+    private final FileStorageService fileStorageService;
+
+    /**
+     * One submission in the archive. {@code filename} is {@code null} when the submission is a link
+     * rather than an uploaded file.
+     */
+    public record Entry(String name, String filename, Long studentId, String studentName) {
+    }
+
+    /**
+     * Resolves the archive entries up front so that a missing assignment is reported before the
+     * response is committed.
+     */
+    @Transactional(readOnly = true)
+    public List<Entry> getEntries(Long assignmentId) {
+        if (!assignmentRepository.existsById(assignmentId)) {
+            throw new ResourceNotFoundException("Assignment not found with id " + assignmentId);
+        }
+        List<SubmissionFileView> files = submissionRepository.findSubmissionFilesByAssignmentId(assignmentId);
+        List<Entry> entries = new ArrayList<>(files.size());
+        for (SubmissionFileView file : files) {
+            String filename = FileStorageService.toStoredFilename(file.getContentUrl());
+            // The student id keeps two students with the same name apart.
+            String name = filename != null
+                    ? sanitize(file.getStudentName()) + "_" + file.getStudentId() + extensionOf(filename)
+                    : null;
+            entries.add(new Entry(name, filename, file.getStudentId(), file.getStudentName()));
+        }
+        return entries;
+    }
+
+    public void write(List<Entry> entries, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        List<String> skipped = new ArrayList<>();
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), StandardCharsets.UTF_8);
+        for (Entry entry : entries) {
+            if (entry.filename() == null) {
+                skipped.add(entry.studentName() + " (" + entry.studentId() + "): submitted a link, not a file");
+                continue;
+            }
+            FileStorageService.StoredFile file;
+            InputStream in;
+            try {
+                file = fileStorageService.describe(entry.filename());
+                in = fileStorageService.openStream(file);
+            } catch (ResourceNotFoundException | NoSuchFileException ex) {
+                skipped.add(entry.studentName() + " (" + entry.studentId() + "): file no longer exists");
+                continue;
+            }
+
+            try (in) {
+                ZipEntry zipEntry = new ZipEntry(entry.name());
+                zipEntry.setLastModifiedTime(FileTime.from(file.lastModified()));
+                zip.setLevel(isCompressed(file.contentType()) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                zip.putNextEntry(zipEntry);
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    zip.write(buffer, 0, read);
+                }
+                zip.closeEntry();
+            }
+        }
+
+        if (!skipped.isEmpty()) {
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+            zip.putNextEntry(new ZipEntry(SKIPPED_ENTRY));
+            zip.write((String.join("\r\n", skipped) + "\r\n").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private static boolean isCompressed(MediaType contentType) {
+        String type = contentType.getType();
+        if ("video".equals(type) || "audio".equals(type)) {
+            return true;
+        }
+        if ("image".equals(type)) {
+            return !contentType.getSubtype().startsWith("svg") && !contentType.getSubtype().equals("bmp");
+        }
+        return "application".equals(type) && COMPRESSED_SUBTYPES.contains(contentType.getSubtype());
+    }
+
+    private static String sanitize(String studentName) {
+        String name = studentName == null ? "" : studentName.trim().replaceAll("[^\\p{L}\\p{N} ._-]", "_");
+        return name.isEmpty() ? "student" : name;
+    }
+
+    private static String extensionOf(String filename) {
+        int dotIndex = filename.lastIndexOf('.');
+        return dotIndex >= 0 ? filename.substring(dotIndex) : "";
+    }
+}
@@ -0,0 +1,196 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.assignment.SimilarSubmissionPairDTO;
+import com.smartclassroom.backend.event.FileDeletedEvent;
+import com.smartclassroom.backend.event.FileStoredEvent;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Flags near-duplicate submission files within an assignment.
+ * <p>
+ * Every text-like upload is fingerprinted once in the background with a {@link MinHash} signature, which
+ * is dropped again when the file is deleted. To compare an assignment's submissions, signatures are split
+ * into {@link #BANDS} bands of {@link #ROWS} rows and bucketed by band (locality-sensitive hashing); only
+ * submissions sharing a bucket in some band are compared, which keeps the work close to linear in the
+ * number of submissions. With 32 bands of 4 rows
+ * a pair with similarity 0.8 becomes a candidate with probability above 0.99, while pairs below about
+ * 0.4 rarely do.
+ */
+@Service
+public class SubmissionSimilarityService {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionSimilarityService.class);
+
+    private static final int BANDS = 32;
+    private static final int ROWS = MinHash.SIGNATURE_LENGTH / BANDS;
+    private static final double DEFAULT_THRESHOLD = 0.8;
+
+    private final AssignmentSubmissionRepository submissionRepository;
+    private final FileStorageService fileStorageService;
+    private final MinHashSignatureStore signatures = new MinHashSignatureStore(MinHash.SIGNATURE_LENGTH);
+    private final ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+
+    public SubmissionSimilarityService(AssignmentSubmissionRepository submissionRepository,
+                                       FileStorageService fileStorageService) {
+        this.submissionRepository = submissionRepository;
+        this.fileStorageService = fileStorageService;
+    }
+
+    @EventListener
+    public void onFileStored(FileStoredEvent event) {
+        pool.execute(() -> fingerprint(event.filename()));
+    }
+
+    @EventListener
+    public void onFileDeleted(FileDeletedEvent event) {
+        signatures.remove(event.filename());
+    }
+
+    public List<SimilarSubmissionPairDTO> findSimilarSubmissions(Long assignmentId, Double threshold) {
+        double minSimilarity = threshold != null ? threshold : DEFAULT_THRESHOLD;
+        if (minSimilarity <= 0 || minSimilarity > 1) {
+            throw new BadRequestException("threshold must be between 0 and 1");
+        }
+
+        List<AssignmentSubmission> submissions = submissionRepository.findByAssignmentId(assignmentId).stream()
+                .filter(s -> FileStorageService.toStoredFilename(s.getContentUrl()) != null)
+                .toList();
+
+        try {
+            return pool.submit(() -> compare(submissions, minSimilarity)).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Similarity check interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Similarity check failed", ex.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Runs inside the pool so the parallel streams below fork onto it rather than the common pool.
+    private List<SimilarSubmissionPairDTO> compare(List<AssignmentSubmission> submissions, double minSimilarity) {
+        List<int[]> signatureList = submissions.parallelStream()
+                .map(s -> signatureFor(FileStorageService.toStoredFilename(s.getContentUrl())))
+                .toList();
+
+        List<Integer> indexed = new ArrayList<>();
+        for (int i = 0; i < signatureList.size(); i++) {
+            if (signatureList.get(i) != null) {
+                indexed.add(i);
+            }
+        }
+
+        Set<Long> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            for (int index : indexed) {
+                buckets.computeIfAbsent(bandHash(signatureList.get(index), band), key -> new ArrayList<>(2)).add(index);
+            }
+            for (List<Integer> bucket : buckets.values()) {
+                for (int i = 0; i < bucket.size(); i++) {
+                    for (int j = i + 1; j < bucket.size(); j++) {
+                        candidates.add(((long) bucket.get(i) << 32) | bucket.get(j));
+                    }
+                }
+            }
+        }
+
+        return candidates.parallelStream()
+                .map(pair -> {
+                    int first = (int) (pair >>> 32);
+                    int second = (int) (long) pair;
+                    double similarity = MinHash.similarity(signatureList.get(first), signatureList.get(second));
+                    return similarity >= minSimilarity
+                            ? toPair(submissions.get(first), submissions.get(second), similarity)
+                            : null;
+                })
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(SimilarSubmissionPairDTO::getSimilarity).reversed())
+                .toList();
+    }
+
+    private int[] signatureFor(String filename) {
+        int[] signature = signatures.get(filename);
+        if (signature != null) {
+            return signature;
+        }
+        // Files uploaded before this node started (or whose background job was lost) are fingerprinted lazily.
+        return fingerprint(filename);
+    }
+
+    private int[] fingerprint(String filename) {
+        FileStorageService.StoredFile file;
+        try {
+            file = fileStorageService.describe(filename);
+        } catch (ResourceNotFoundException ex) {
+            return null;
+        }
+        // Word shingles of PDFs, images or archives are compressed noise, not the text students wrote.
+        if (!isTextLike(file.contentType())) {
+            return null;
+        }
+        try (InputStream in = fileStorageService.openStream(file)) {
+            int[] signature = MinHash.signature(in);
+            if (signature != null) {
+                signatures.put(filename, signature);
+            }
+            return signature;
+        } catch (ResourceNotFoundException ex) {
+            return null;
+        } catch (IOException ex) {
+            log.warn("Could not fingerprint {}", filename, ex);
+            return null;
+        }
+    }
+
+    private static boolean isTextLike(MediaType contentType) {
+        return contentType != null && CompressedVariantService.isCompressible(contentType)
+                && !"image".equals(contentType.getType());
+    }
+
+    private static long bandHash(int[] signature, int band) {
+        long hash = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = hash * 0x9E3779B97F4A7C15L + signature[row];
+        }
+        return hash;
+    }
+
+    private static SimilarSubmissionPairDTO toPair(AssignmentSubmission first, AssignmentSubmission second, double similarity) {
+        return SimilarSubmissionPairDTO.builder()
+                .firstSubmissionId(first.getId())
+                .firstStudentId(first.getStudent().getId())
+                .firstStudentName(first.getStudent().getName())
+                .secondSubmissionId(second.getId())
+                .secondStudentId(second.getStudent().getId())
+                .secondStudentName(second.getStudent().getName())
+                .similarity(similarity)
+                .build();
+    }
+}
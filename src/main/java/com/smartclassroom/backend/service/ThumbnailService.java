@@ -0,0 +1,245 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.event.FileStoredEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size thumbnails of uploaded images, for member lists, chat avatars and attachment previews.
+ * <p>
+ * Thumbnails are generated in the background after an upload and stored as variants next to the
+ * original. A request for a thumbnail that does not exist yet (or whose background job was dropped
+ * because the queue was full) generates it on the worker pool; concurrent requests for the same
+ * thumbnail share one generation.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    public static final List<Integer> SIZES = List.of(64, 256);
+
+    // Images larger than this are not decoded at all, to keep a crafted upload from exhausting the heap.
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+
+    private static final Set<String> SUPPORTED_SUBTYPES = Set.of("png", "jpeg", "gif", "bmp", "x-png", "pjpeg");
+
+    /**
+     * A generated thumbnail file.
+     */
+    public record Thumbnail(Path path, long size, MediaType contentType) {
+    }
+
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolExecutor executor;
+    private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    public ThumbnailService(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+        int workers = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(500), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnails");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static boolean isSupported(MediaType contentType) {
+        return "image".equals(contentType.getType()) && SUPPORTED_SUBTYPES.contains(contentType.getSubtype());
+    }
+
+    @EventListener
+    public void onFileStored(FileStoredEvent event) {
+        FileStorageService.StoredFile file = fileStorageService.describe(event.filename());
+        if (!file.isLocal() || !isSupported(file.contentType())) {
+            return;
+        }
+        // Queued rather than awaited; when the queue is full the first request generates them instead.
+        try {
+            executor.execute(() -> {
+                for (int size : SIZES) {
+                    try {
+                        // Already on a worker, so generate in this thread instead of queueing again.
+                        generateOnce(file, size, Runnable::run).join();
+                    } catch (CompletionException ex) {
+                        log.debug("Could not create {}px thumbnail of {}", size, file.filename(), ex.getCause());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.debug("Thumbnail queue full, deferring {}", file.filename());
+        }
+    }
+
+    /**
+     * Returns the thumbnail of {@code file} fitting in a {@code size} x {@code size} square, generating
+     * it if needed.
+     *
+     * @return the thumbnail, or {@code null} if the file is not an image that can be scaled, or is
+     * not kept on this machine
+     */
+    public Thumbnail getThumbnail(FileStorageService.StoredFile file, int size) {
+        if (!file.isLocal() || !isSupported(file.contentType())) {
+            return null;
+        }
+        try {
+            Path path = generateOnce(file, size, executor).join();
+            return new Thumbnail(path, Files.size(path), outputType(file.contentType()));
+        } catch (CompletionException | IOException ex) {
+            log.debug("Could not create {}px thumbnail of {}", size, file.filename(), ex);
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private CompletableFuture<Path> generateOnce(FileStorageService.StoredFile file, int size, Executor runner) {
+        Path target = fileStorageService.variantPath(file.filename(), variantName(file.contentType(), size));
+        if (Files.exists(target)) {
+            return CompletableFuture.completedFuture(target);
+        }
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(target, created);
+        if (existing != null) {
+            return existing;
+        }
+        // Re-check now that we own the slot: another generation may have finished in between.
+        if (Files.exists(target)) {
+            inFlight.remove(target, created);
+            created.complete(target);
+            return created;
+        }
+        try {
+            // A full pool rejects the task here, which fails the future instead of leaving it pending.
+            CompletableFuture.runAsync(() -> {
+                try {
+                    write(file, size, target);
+                    created.complete(target);
+                } catch (Throwable ex) {
+                    created.completeExceptionally(ex);
+                } finally {
+                    inFlight.remove(target, created);
+                }
+            }, runner);
+        } catch (RuntimeException ex) {
+            inFlight.remove(target, created);
+            created.completeExceptionally(ex);
+        }
+        return created;
+    }
+
+    private void write(FileStorageService.StoredFile file, int size, Path target) throws IOException {
+        BufferedImage source = read(file.path());
+        if (source == null) {
+            throw new IOException("Unreadable image " + file.filename());
+        }
+        BufferedImage thumbnail = scale(source, size, hasAlpha(file.contentType()));
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), file.filename(), ".part");
+        try {
+            String format = hasAlpha(file.contentType()) ? "png" : "jpg";
+            if (!ImageIO.write(thumbnail, format, temp.toFile())) {
+                throw new IOException("No " + format + " writer available");
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static BufferedImage read(Path path) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image too large to thumbnail");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves the image repeatedly before the final step; a single bilinear step from a large photo
+    // to 64px would skip most source pixels and alias badly.
+    private static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        double factor = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static boolean hasAlpha(MediaType contentType) {
+        String subtype = contentType.getSubtype();
+        return subtype.contains("png") || subtype.equals("gif");
+    }
+
+    private static MediaType outputType(MediaType contentType) {
+        return hasAlpha(contentType) ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+    }
+
+    private static String variantName(MediaType contentType, int size) {
+        return "thumb" + size + (hasAlpha(contentType) ? ".png" : ".jpg");
+    }
+}
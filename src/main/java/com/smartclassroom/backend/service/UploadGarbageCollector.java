@@ -0,0 +1,243 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.storage.GcReportDTO;
+import com.smartclassroom.backend.exception.TooManyRequestsException;
+import com.smartclassroom.backend.repository.LogicalFileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Mark-and-sweep collection of uploaded files that nothing references any more.
+ * <p>
+ * The mark phase streams every attachment, submission and profile picture URL from the database into a
+ * {@link LongHashSet} of filename hashes, so memory stays small however many rows there are. The sweep
+ * walks the upload directory in parallel (and lists content-addressed files) and reports every file that
+ * is not in the set and was last written before the grace period; uploads younger than that may belong
+ * to a form that has not been submitted yet. A hash collision can only keep a file alive, never delete one.
+ * <p>
+ * Unless it is a dry run, orphans are then deleted at a bounded rate. Since a file may have been
+ * referenced after the mark phase, each run of {@link #RECHECK_CHUNK} orphans is looked up again just
+ * before it is deleted, with queries for those filenames only.
+ */
+@Service
+public class UploadGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadGarbageCollector.class);
+
+    private static final int SAMPLE_SIZE = 100;
+    // About 20 seconds of deletions at the default rate.
+    private static final int RECHECK_CHUNK = 1_000;
+
+    private record Orphan(String filename, long size) {
+    }
+
+    private final FileStorageService fileStorageService;
+    private final FileCleanupService fileCleanupService;
+    private final LogicalFileRepository logicalFileRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration gracePeriod;
+    private final int maxDeletesPerSecond;
+    private final int parallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public UploadGarbageCollector(FileStorageService fileStorageService,
+                                  FileCleanupService fileCleanupService,
+                                  LogicalFileRepository logicalFileRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${file.gc.grace-period:24h}") Duration gracePeriod,
+                                  @Value("${file.gc.max-deletes-per-second:50}") int maxDeletesPerSecond,
+                                  @Value("${file.gc.parallelism:4}") int parallelism) {
+        this.fileStorageService = fileStorageService;
+        this.fileCleanupService = fileCleanupService;
+        this.logicalFileRepository = logicalFileRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.gracePeriod = gracePeriod;
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+        this.parallelism = Math.max(1, Math.min(parallelism, 32));
+    }
+
+    @Scheduled(cron = "${file.gc.cron:-}")
+    public void collectOnSchedule() {
+        try {
+            GcReportDTO report = collect(false);
+            log.info("Upload GC deleted {} of {} orphaned files ({} scanned) in {} ms",
+                    report.getDeletedFiles(), report.getOrphanedFiles(), report.getScannedFiles(),
+                    report.getElapsedMillis());
+        } catch (TooManyRequestsException ex) {
+            log.info("Skipping scheduled upload GC: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Finds unreferenced uploads older than the grace period and, unless {@code dryRun} is set,
+     * deletes them.
+     */
+    public GcReportDTO collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new TooManyRequestsException("Upload garbage collection is already running");
+        }
+        try {
+            return run(dryRun);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private GcReportDTO run(boolean dryRun) {
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now().minus(gracePeriod);
+
+        LongHashSet live = fileCleanupService.referencedFiles();
+        LongAdder scanned = new LongAdder();
+        List<Orphan> orphans = new ArrayList<>(sweepLocalFiles(live, cutoff, scanned));
+        orphans.addAll(sweepContentAddressedFiles(live, cutoff, scanned));
+
+        long deleted = 0;
+        long failed = 0;
+        if (!dryRun) {
+            long[] counts = deleteThrottled(orphans);
+            deleted = counts[0];
+            failed = counts[1];
+        }
+
+        return GcReportDTO.builder()
+                .dryRun(dryRun)
+                .liveReferences((long) live.size())
+                .scannedFiles(scanned.sum())
+                .orphanedFiles((long) orphans.size())
+                .orphanedBytes(orphans.stream().mapToLong(Orphan::size).sum())
+                .deletedFiles(deleted)
+                .failedFiles(failed)
+                .sampleOrphans(orphans.stream().limit(SAMPLE_SIZE).map(Orphan::filename).toList())
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    // Each shard directory (and each file of the flat layout) is one unit of work for the pool.
+    private Queue<Orphan> sweepLocalFiles(LongHashSet live, Instant cutoff, LongAdder scanned) {
+        List<Path> roots = fileStorageService.listLocalRoots();
+        Queue<Orphan> orphans = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> roots.parallelStream().forEach(root -> {
+                try (Stream<Path> files = Files.walk(root, 2)) {
+                    files.forEach(path -> {
+                        Orphan orphan = inspect(path, live, cutoff, scanned);
+                        if (orphan != null) {
+                            orphans.add(orphan);
+                        }
+                    });
+                } catch (IOException | RuntimeException ex) {
+                    log.warn("Could not scan {} for orphaned uploads", root, ex);
+                }
+            })).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Upload GC interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Upload GC failed", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return orphans;
+    }
+
+    private static Orphan inspect(Path path, LongHashSet live, Instant cutoff, LongAdder scanned) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            scanned.increment();
+            String filename = path.getFileName().toString();
+            if (attributes.lastModifiedTime().toInstant().isBefore(cutoff) && !live.contains(filename)) {
+                return new Orphan(filename, attributes.size());
+            }
+        } catch (NoSuchFileException ex) {
+            // Deleted or moved into a shard while we were walking.
+        } catch (IOException ex) {
+            log.debug("Could not read attributes of {}", path, ex);
+        }
+        return null;
+    }
+
+    private List<Orphan> sweepContentAddressedFiles(LongHashSet live, Instant cutoff, LongAdder scanned) {
+        LocalDateTime createdBefore = LocalDateTime.now().minus(gracePeriod);
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<String> filenames = logicalFileRepository.streamFilenamesCreatedBefore(createdBefore)) {
+                return filenames
+                        .peek(filename -> scanned.increment())
+                        .filter(filename -> !live.contains(filename))
+                        .map(filename -> new Orphan(filename, 0))
+                        .toList();
+            }
+        });
+    }
+
+    /**
+     * @return the number of deleted and of failed files
+     */
+    private long[] deleteThrottled(List<Orphan> orphans) {
+        long interval = maxDeletesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond : 0;
+        long next = System.nanoTime();
+        long deleted = 0;
+        long failed = 0;
+        Set<String> referenced = Set.of();
+        for (int i = 0; i < orphans.size(); i++) {
+            Orphan orphan = orphans.get(i);
+            if (i % RECHECK_CHUNK == 0) {
+                List<String> chunk = orphans.subList(i, Math.min(i + RECHECK_CHUNK, orphans.size())).stream()
+                        .map(Orphan::filename)
+                        .toList();
+                referenced = fileCleanupService.stillReferenced(chunk);
+            }
+            try {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            next = Math.max(next, System.nanoTime() - interval) + interval;
+
+            try {
+                if (!referenced.contains(orphan.filename()) && fileStorageService.deleteFile(orphan.filename())) {
+                    deleted++;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not delete orphaned upload {}", orphan.filename(), ex);
+                failed++;
+            }
+        }
+        return new long[]{deleted, failed};
+    }
+}
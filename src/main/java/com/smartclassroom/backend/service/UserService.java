@@ -10,6 +10,7 @@ import com.smartclassroom.backend.model.User;
 import com.smartclassroom.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -18,6 +19,7 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final FileCleanupService fileCleanupService;
 
     public User registerUser(RegisterRequestDTO request) {
         userRepository.findByEmail(request.getEmail())
@@ -36,6 +38,7 @@ public class UserService {
         return userRepository.save(user);
     }
 
+    @Transactional(readOnly = true)
     public User authenticateUser(LoginRequestDTO request) {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new BadRequestException("Invalid email or password"));
@@ -46,11 +49,13 @@ public class UserService {
         return user;
     }
 
+    @Transactional(readOnly = true)
     public User getUserById(Long id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id " + id));
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -73,11 +78,16 @@ public class UserService {
             user.setDateOfBirth(request.getDateOfBirth());
         }
         
+        String previousProfileImageUrl = user.getProfileImageUrl();
         if (request.getProfileImageUrl() != null) {
             String url = request.getProfileImageUrl().trim();
             user.setProfileImageUrl(url.isEmpty() ? null : url);
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        if (previousProfileImageUrl != null && !previousProfileImageUrl.equals(saved.getProfileImageUrl())) {
+            fileCleanupService.deleteWhenUnreferenced(previousProfileImageUrl);
+        }
+        return saved;
     }
 }
@@ -0,0 +1,107 @@
+-- The schema as ddl-auto=update created it for the original entities, before migrations were introduced.
+-- Existing databases are baselined at this version instead of running it. Written to run on MySQL and on H2.
+
+CREATE TABLE users (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(255),
+    date_of_birth DATE,
+    profile_image_url VARCHAR(255),
+    role VARCHAR(32) NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE classrooms (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    code VARCHAR(16) NOT NULL,
+    teacher_id BIGINT NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_classrooms_code UNIQUE (code),
+    CONSTRAINT fk_classrooms_teacher FOREIGN KEY (teacher_id) REFERENCES users (id)
+);
+
+CREATE TABLE classroom_members (
+    id BIGINT NOT NULL,
+    classroom_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    role_in_class VARCHAR(32) NOT NULL,
+    joined_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_classroom_members_classroom_user UNIQUE (classroom_id, user_id),
+    CONSTRAINT fk_classroom_members_classroom FOREIGN KEY (classroom_id) REFERENCES classrooms (id),
+    CONSTRAINT fk_classroom_members_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE assignments (
+    id BIGINT NOT NULL,
+    classroom_id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    due_date DATETIME(6),
+    max_marks INT,
+    attachment_url TEXT,
+    closed BOOLEAN NOT NULL,
+    created_at DATETIME(6),
+    created_by BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_assignments_classroom FOREIGN KEY (classroom_id) REFERENCES classrooms (id),
+    CONSTRAINT fk_assignments_created_by FOREIGN KEY (created_by) REFERENCES users (id)
+);
+
+CREATE TABLE assignment_submissions (
+    id BIGINT NOT NULL,
+    assignment_id BIGINT NOT NULL,
+    student_id BIGINT NOT NULL,
+    content_url TEXT,
+    submitted_at DATETIME(6),
+    marks INT,
+    feedback TEXT,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_assignment_submissions_assignment_student UNIQUE (assignment_id, student_id),
+    CONSTRAINT fk_assignment_submissions_assignment FOREIGN KEY (assignment_id) REFERENCES assignments (id),
+    CONSTRAINT fk_assignment_submissions_student FOREIGN KEY (student_id) REFERENCES users (id)
+);
+
+CREATE TABLE announcements (
+    id BIGINT NOT NULL,
+    classroom_id BIGINT NOT NULL,
+    author_id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    content TEXT NOT NULL,
+    attachment_url TEXT,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_announcements_classroom FOREIGN KEY (classroom_id) REFERENCES classrooms (id),
+    CONSTRAINT fk_announcements_author FOREIGN KEY (author_id) REFERENCES users (id)
+);
+
+CREATE TABLE chat_messages (
+    id BIGINT NOT NULL,
+    classroom_id BIGINT NOT NULL,
+    sender_id BIGINT NOT NULL,
+    content TEXT NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_chat_messages_classroom FOREIGN KEY (classroom_id) REFERENCES classrooms (id),
+    CONSTRAINT fk_chat_messages_sender FOREIGN KEY (sender_id) REFERENCES users (id)
+);
+
+CREATE TABLE audit_logs (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    action VARCHAR(255) NOT NULL,
+    resource_type VARCHAR(255) NOT NULL,
+    resource_id VARCHAR(255) NOT NULL,
+    reason TEXT,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_audit_logs_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
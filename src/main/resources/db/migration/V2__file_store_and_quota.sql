@@ -0,0 +1,40 @@
+-- Tables of the deduplicating file store and the storage quotas. Databases baselined at version 1
+-- predate them; those that ran with ddl-auto=update after they were added already have the tables.
+
+CREATE TABLE IF NOT EXISTS file_blobs (
+    hash VARCHAR(64) NOT NULL,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (hash)
+);
+
+CREATE TABLE IF NOT EXISTS logical_files (
+    filename VARCHAR(255) NOT NULL,
+    blob_hash VARCHAR(64) NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (filename),
+    CONSTRAINT fk_logical_files_blob FOREIGN KEY (blob_hash) REFERENCES file_blobs (hash)
+);
+
+CREATE TABLE IF NOT EXISTS file_ownership (
+    filename VARCHAR(255) NOT NULL,
+    user_id BIGINT NOT NULL,
+    classroom_id BIGINT,
+    size BIGINT NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (filename)
+);
+
+CREATE INDEX idx_file_ownership_user ON file_ownership (user_id);
+CREATE INDEX idx_file_ownership_classroom ON file_ownership (classroom_id);
+
+CREATE TABLE IF NOT EXISTS storage_usage (
+    id BIGINT NOT NULL,
+    scope VARCHAR(16) NOT NULL,
+    owner_id BIGINT NOT NULL,
+    used_bytes BIGINT NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_storage_usage_scope_owner UNIQUE (scope, owner_id)
+);
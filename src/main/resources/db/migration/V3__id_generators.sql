@@ -0,0 +1,8 @@
+-- Rows of the table-based id generators (see IdGenerators). Databases that ran with ddl-auto=update
+-- after the switch from AUTO_INCREMENT keys already have this table. IdGeneratorInitializer moves
+-- each generator past the ids in use when the application starts.
+CREATE TABLE IF NOT EXISTS id_generators (
+    name VARCHAR(255) NOT NULL,
+    next_val BIGINT,
+    PRIMARY KEY (name)
+);
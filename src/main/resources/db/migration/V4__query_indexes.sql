@@ -0,0 +1,20 @@
+-- Indexes for the hot read paths. MySQL already indexes each foreign key column on its own; these
+-- add the column each query filters or orders on next, so rows come out of the index in the order
+-- the query wants instead of being sorted or filtered afterwards.
+
+-- Chat history of a classroom in time order (ChatMessageRepository.findTop50ByClassroom_IdOrderByCreatedAtAsc).
+CREATE INDEX idx_chat_messages_classroom_created ON chat_messages (classroom_id, created_at);
+
+-- Announcements of a classroom, newest first (AnnouncementRepository.findByClassroomIdOrderByCreatedAtDesc).
+CREATE INDEX idx_announcements_classroom_created ON announcements (classroom_id, created_at);
+
+-- Dashboard assignments of a set of classrooms by due date (AssignmentRepository.findByClassroomIdIn).
+CREATE INDEX idx_assignments_classroom_due ON assignments (classroom_id, due_date);
+
+-- Graded submission counts per assignment (AssignmentSubmissionRepository.countGradedByAssignmentId).
+CREATE INDEX idx_assignment_submissions_assignment_marks ON assignment_submissions (assignment_id, marks);
+
+-- A user's classrooms (ClassroomMemberRepository.findByUserId and findClassroomSummariesByUserId). The
+-- unique key on (classroom_id, user_id) cannot serve lookups by user; until now they relied on the
+-- index MySQL creates implicitly for the foreign key, which it drops again once this one exists.
+CREATE INDEX idx_classroom_members_user ON classroom_members (user_id);
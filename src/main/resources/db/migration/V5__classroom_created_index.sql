@@ -0,0 +1,3 @@
+-- Classrooms created since a point in time (ClassroomRepository.findCodesCreatedSince), read every few
+-- seconds by each instance's class code index. The code is included so the index alone answers it.
+CREATE INDEX idx_classrooms_created_code ON classrooms (created_at, code);
@@ -0,0 +1,137 @@
+package com.smartclassroom.backend.config;
+
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.UserRepository;
+import com.smartclassroom.backend.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routing between two in-memory databases standing in for the primary and the replica. Each test
+ * gives a user a different name on each side, so the name a request returns shows where it read.
+ * The second-level cache starts out empty, as on an instance that has not read the user yet.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTests.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "datasource.replica.jdbc-url=" + ReplicaRoutingTests.REPLICA_URL,
+        "datasource.replica.username=sa",
+        "datasource.replica.password=",
+        "datasource.replica.read-your-writes-window=1m",
+        "spring.jpa.show-sql=false",
+        // Regions of their own, as other test contexts share the cache manager.
+        "spring.jpa.properties.hibernate.cache.region_prefix=replica-routing"
+})
+public class ReplicaRoutingTests {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ReadYourWritesFilter readYourWritesFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private MockMvc mockMvc;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(readYourWritesFilter).build();
+
+        // Outside a request, so this goes to the primary.
+        user = userRepository.save(User.builder()
+                .name("Primary copy")
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(UserRole.STUDENT)
+                .build());
+
+        DriverManagerDataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(replica).load().migrate();
+        new JdbcTemplate(replica).update(
+                "INSERT INTO users (id, name, email, password, role) VALUES (?, ?, ?, ?, ?)",
+                user.getId(), "Replica copy", user.getEmail(), "secret", UserRole.STUDENT.name());
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void readOnlyTransactionsOfGetRequestsUseTheReplica() throws Exception {
+        mockMvc.perform(get("/api/users/{id}", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Replica copy"));
+    }
+
+    @Test
+    void readsOutsideRequestsUseThePrimary() {
+        Assertions.assertEquals("Primary copy", userService.getUserById(user.getId()).getName());
+    }
+
+    @Test
+    void clientsReadTheirOwnWritesFromThePrimary() throws Exception {
+        MvcResult write = mockMvc.perform(put("/api/users/{id}", user.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed"))
+                .andReturn();
+        Cookie cookie = write.getResponse().getCookie(ReadYourWritesFilter.COOKIE);
+        Assertions.assertNotNull(cookie);
+
+        mockMvc.perform(get("/api/users/{id}", user.getId()).cookie(cookie))
+                .andExpect(jsonPath("$.name").value("Renamed"));
+        // Other clients keep reading the replica, which has not caught up, once the cached row the write
+        // left behind is gone, as on another instance.
+        entityManagerFactory.getCache().evictAll();
+        mockMvc.perform(get("/api/users/{id}", user.getId()))
+                .andExpect(jsonPath("$.name").value("Replica copy"));
+    }
+
+    @Test
+    void rowsReadFromTheReplicaAreNotCached() throws Exception {
+        mockMvc.perform(get("/api/users/{id}", user.getId()))
+                .andExpect(jsonPath("$.name").value("Replica copy"));
+        // Had the replica's row been cached, this primary read would return it.
+        Assertions.assertEquals("Primary copy", userService.getUserById(user.getId()).getName());
+    }
+
+    @Test
+    void expiredWriteMarkersReadTheReplica() throws Exception {
+        Cookie expired = new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(System.currentTimeMillis() - 1));
+        mockMvc.perform(get("/api/users/{id}", user.getId()).cookie(expired))
+                .andExpect(jsonPath("$.name").value("Replica copy"));
+    }
+}
@@ -0,0 +1,307 @@
+package com.smartclassroom.backend.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.UserRepository;
+import com.smartclassroom.backend.service.FileStorageService;
+import com.smartclassroom.backend.service.StorageQuotaService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uploads and downloads through the file endpoints, against an in-memory database and an upload
+ * directory of its own.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:file-controller;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=file-controller"
+})
+public class FileControllerTests {
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) throws IOException {
+        String uploadDir = Files.createTempDirectory("file-controller-tests").toString();
+        registry.add("file.upload-dir", () -> uploadDir);
+    }
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private static final String LECTURE = "Newton's laws of motion relate forces to acceleration. ".repeat(100);
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    // What the web app's fileApi.upload sends.
+    @Test
+    void uploadsWithoutAUserAreStoredUncharged() throws Exception {
+        String url = upload(textFile("notes.txt", "Lecture notes"));
+
+        Assertions.assertTrue(url.contains("/api/files/"), url);
+    }
+
+    @Test
+    void uploadsWithAUserAreCharged() throws Exception {
+        User user = userRepository.save(User.builder()
+                .name("Uploader")
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(UserRole.STUDENT)
+                .build());
+
+        mockMvc.perform(multipart("/api/files/upload")
+                        .file(textFile("notes.txt", "Lecture notes"))
+                        .param("userId", user.getId().toString()))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals((long) "Lecture notes".length(),
+                storageQuotaService.getUserUsage(user.getId()).getUsedBytes());
+    }
+
+    @Test
+    void classroomUploadsNeedAUser() throws Exception {
+        mockMvc.perform(multipart("/api/files/upload")
+                        .file(textFile("notes.txt", "Lecture notes"))
+                        .param("classroomId", "1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void aSingleRangeIsServedAsPartialContent() throws Exception {
+        String path = download(upload(textFile("alphabet.txt", ALPHABET)));
+
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/26"))
+                .andExpect(content().string("cdef"));
+    }
+
+    @Test
+    void severalRangesAreServedAsByteranges() throws Exception {
+        String path = download(upload(textFile("alphabet.txt", ALPHABET)));
+
+        MockHttpServletResponse response = mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=0-1,24-25"))
+                .andExpect(status().isPartialContent())
+                .andReturn().getResponse();
+
+        Assertions.assertTrue(response.getContentType().startsWith("multipart/byteranges"), response.getContentType());
+        String body = response.getContentAsString();
+        Assertions.assertTrue(body.contains("Content-Range: bytes 0-1/26"), body);
+        Assertions.assertTrue(body.contains("Content-Range: bytes 24-25/26"), body);
+        Assertions.assertTrue(body.contains("ab") && body.contains("yz"), body);
+    }
+
+    @Test
+    void aStaleIfRangeGetsTheWholeFile() throws Exception {
+        String path = download(upload(textFile("alphabet.txt", ALPHABET)));
+        MockHttpServletResponse first = mockMvc.perform(get(path)).andReturn().getResponse();
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        long lastModified = first.getDateHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=2-5").header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent());
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=2-5").header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(ALPHABET));
+
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=2-5").header(HttpHeaders.IF_RANGE, httpDate(lastModified)))
+                .andExpect(status().isPartialContent());
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, httpDate(lastModified - 3_600_000)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(ALPHABET));
+    }
+
+    @Test
+    void aMatchingIfNoneMatchIsNotModified() throws Exception {
+        String path = download(upload(textFile("alphabet.txt", ALPHABET)));
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void onlyTypesThatCannotRunScriptAreShownInline() throws Exception {
+        Assertions.assertTrue(disposition(textFile("notes.txt", "Lecture notes")).startsWith("inline"));
+        Assertions.assertTrue(disposition(file("diagram.png", "image/png", PNG_SIGNATURE)).startsWith("inline"));
+        Assertions.assertTrue(disposition(file("page.html", "text/html",
+                "<script>alert(1)</script>".getBytes(StandardCharsets.UTF_8))).startsWith("attachment"));
+        Assertions.assertTrue(disposition(file("logo.svg", "image/svg+xml",
+                "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.UTF_8))).startsWith("attachment"));
+    }
+
+    @Test
+    void gzipIsServedOnlyToClientsThatAcceptIt() throws Exception {
+        String path = download(compressedUpload());
+
+        for (String accepted : List.of("gzip", "deflate, gzip;q=0.5", "x-gzip", "*", "br;q=1.0, *;q=0.1")) {
+            MockHttpServletResponse response = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, accepted))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                    .andReturn().getResponse();
+            Assertions.assertTrue(response.getHeader(HttpHeaders.ETAG).endsWith("-gzip\""), accepted);
+            Assertions.assertEquals(LECTURE, gunzip(response.getContentAsByteArray()), accepted);
+        }
+        for (String refused : List.of("gzip;q=0", "gzip; q=0.0, *", "*;q=0", "br, deflate", "identity")) {
+            MockHttpServletResponse response = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, refused))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                    .andExpect(content().string(LECTURE))
+                    .andReturn().getResponse();
+            Assertions.assertFalse(response.getHeader(HttpHeaders.ETAG).endsWith("-gzip\""), refused);
+        }
+    }
+
+    @Test
+    void theGzipRepresentationHasItsOwnEtag() throws Exception {
+        String path = download(compressedUpload());
+        String gzipEtag = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String identityEtag = mockMvc.perform(get(path))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Assertions.assertEquals(identityEtag.substring(0, identityEtag.length() - 1) + "-gzip\"", gzipEtag);
+        mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, identityEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void rangesAndIncompressibleFilesAreServedUncompressed() throws Exception {
+        String path = download(compressedUpload());
+        mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.RANGE, "bytes=0-6"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string(LECTURE.substring(0, 7)));
+
+        String image = download(upload(file("diagram.png", "image/png", PNG_SIGNATURE)));
+        mockMvc.perform(get(image).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().doesNotExist(HttpHeaders.VARY));
+    }
+
+    @Test
+    void thumbnailsOfFilesThatAreNotImagesAreTheOriginal() throws Exception {
+        String path = download(upload(textFile("notes.txt", "Lecture notes")));
+
+        mockMvc.perform(get(path).param("size", "64"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/plain"))
+                .andExpect(content().string("Lecture notes"));
+        mockMvc.perform(get(path).param("size", "100"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Uploads a text file and waits for its gzip variant, which is generated in the background.
+    private String compressedUpload() throws Exception {
+        String url = upload(textFile("lecture.txt", LECTURE));
+        Path variant = fileStorageService.variantPath(FileStorageService.toStoredFilename(url), "gzip");
+        for (int i = 0; i < 100 && !Files.exists(variant); i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(Files.exists(variant), "no gzip variant was generated");
+        return url;
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String disposition(MockMultipartFile file) throws Exception {
+        return mockMvc.perform(get(download(upload(file))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andReturn().getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION);
+    }
+
+    private static String download(String url) {
+        return FileStorageService.toDownloadPath(FileStorageService.toStoredFilename(url));
+    }
+
+    private static String httpDate(long epochMillis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC));
+    }
+
+    private String upload(MockMultipartFile file) throws Exception {
+        String body = mockMvc.perform(multipart("/api/files/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.url").exists())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.url");
+    }
+
+    private static MockMultipartFile textFile(String name, String content) {
+        return file(name, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockMultipartFile file(String name, String contentType, byte[] content) {
+        return new MockMultipartFile("file", name, contentType, content);
+    }
+}
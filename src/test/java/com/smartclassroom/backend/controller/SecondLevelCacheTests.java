@@ -0,0 +1,218 @@
+package com.smartclassroom.backend.controller;
+
+import com.smartclassroom.backend.model.*;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.ClassroomMemberRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.StatementCounter;
+import com.smartclassroom.backend.repository.UserRepository;
+import com.smartclassroom.backend.service.SecondLevelCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statements per request with an empty and with a warm second-level cache, and reads after writes
+ * that must not be answered from stale cache entries. Counts come from {@link StatementCounter}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:second-level-cache;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.open-in-view=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.smartclassroom.backend.repository.StatementCounter",
+        // Regions of their own, as other test contexts share the cache manager.
+        "spring.jpa.properties.hibernate.cache.region_prefix=second-level-cache"
+})
+public class SecondLevelCacheTests {
+
+    private record Counts(long cold, long warm) {
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private ClassroomMemberRepository classroomMemberRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private SecondLevelCacheMetrics secondLevelCacheMetrics;
+
+    private MockMvc mockMvc;
+
+    private User teacher;
+    private User student;
+    private Classroom classroom;
+    private Assignment labReport;
+    private Assignment problemSet;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        teacher = user("Teacher", UserRole.TEACHER);
+        student = user("Student", UserRole.STUDENT);
+        classroom = classroomRepository.save(Classroom.builder()
+                .name("Physics")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+        member(teacher, ClassroomRole.TEACHER);
+        member(student, ClassroomRole.STUDENT);
+        labReport = assignmentRepository.save(Assignment.builder()
+                .classroom(classroom).title("Lab report").maxMarks(10).createdBy(teacher).build());
+        problemSet = assignmentRepository.save(Assignment.builder()
+                .classroom(classroom).title("Problem set").maxMarks(20).createdBy(teacher).build());
+
+        evictAll();
+    }
+
+    @Test
+    void warmCacheSavesStatementsOnTheMainEndpoints() throws Exception {
+        // Each pair runs against an empty cache first, then repeats with the users, classroom and
+        // memberships the first request loaded still cached.
+        List<Counts> counts = List.of(
+                measure("POST chat message", chatMessage("Question about the lab"), chatMessage("Another question")),
+                measure("GET chat messages", chatMessages(), chatMessages()),
+                measure("POST assignment", assignment("Essay"), assignment("Quiz")),
+                measure("POST announcement", announcement("Exam"), announcement("Field trip")),
+                // The second submission is for another assignment; only the student is cached.
+                measure("POST submission", submission(labReport), submission(problemSet)),
+                measure("GET user", get("/api/users/{id}", student.getId()), get("/api/users/{id}", student.getId())));
+
+        System.out.printf("second-level cache: %d statements cold, %d warm across the endpoints above%n",
+                counts.stream().mapToLong(Counts::cold).sum(), counts.stream().mapToLong(Counts::warm).sum());
+        mockMvc.perform(get("/api/metrics/second-level-cache")).andExpect(status().isOk());
+        Assertions.assertTrue(secondLevelCacheMetrics.getStats().getHits() > 0);
+    }
+
+    @Test
+    void updatedUsersAreNotServedStale() throws Exception {
+        mockMvc.perform(get("/api/users/{id}", student.getId())).andExpect(jsonPath("$.name").value("Student"));
+        mockMvc.perform(put("/api/users/{id}", student.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/{id}", student.getId())).andExpect(jsonPath("$.name").value("Renamed"));
+    }
+
+    @Test
+    void leavingAClassroomInvalidatesMembershipChecks() throws Exception {
+        mockMvc.perform(chatMessages()).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/classrooms/{id}/leave", classroom.getId())
+                        .param("userId", student.getId().toString()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(chatMessages()).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void deletedClassroomsAreNotServedFromTheCache() throws Exception {
+        mockMvc.perform(chatMessages()).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/classrooms/{id}", classroom.getId())
+                        .param("teacherId", teacher.getId().toString()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(chatMessages()).andExpect(status().isNotFound());
+    }
+
+    private Counts measure(String endpoint, MockHttpServletRequestBuilder cold, MockHttpServletRequestBuilder warm)
+            throws Exception {
+        evictAll();
+        Counts counts = new Counts(statementsFor(cold), statementsFor(warm));
+        System.out.printf("%-20s cold %d, warm %d statements%n", endpoint, counts.cold(), counts.warm());
+        Assertions.assertTrue(counts.warm() < counts.cold(), endpoint + ": " + counts);
+        return counts;
+    }
+
+    private void evictAll() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+        StatementCounter.reset();
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+        return StatementCounter.count();
+    }
+
+    private MockHttpServletRequestBuilder chatMessage(String content) {
+        return post("/api/classrooms/{id}/chat/messages", classroom.getId())
+                .param("senderId", student.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"content\":\"" + content + "\"}");
+    }
+
+    private MockHttpServletRequestBuilder chatMessages() {
+        return get("/api/classrooms/{id}/chat/messages", classroom.getId())
+                .param("userId", student.getId().toString());
+    }
+
+    private MockHttpServletRequestBuilder assignment(String title) {
+        return post("/api/classrooms/{id}/assignments", classroom.getId())
+                .param("teacherId", teacher.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"classroomId\":" + classroom.getId() + ",\"title\":\"" + title + "\",\"maxMarks\":10}");
+    }
+
+    private MockHttpServletRequestBuilder announcement(String title) {
+        return post("/api/classrooms/{id}/announcements", classroom.getId())
+                .param("authorId", teacher.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"" + title + "\",\"content\":\"Details to follow\"}");
+    }
+
+    private MockHttpServletRequestBuilder submission(Assignment assignment) {
+        return post("/api/assignments/{assignmentId}/submissions", assignment.getId())
+                .param("studentId", student.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"contentUrl\":\"/api/files/report.pdf\"}");
+    }
+
+    private User user(String name, UserRole role) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .build());
+    }
+
+    private void member(User user, ClassroomRole roleInClass) {
+        classroomMemberRepository.save(ClassroomMember.builder()
+                .classroom(classroom)
+                .user(user)
+                .roleInClass(roleInClass)
+                .build());
+    }
+}
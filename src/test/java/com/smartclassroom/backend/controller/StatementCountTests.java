@@ -0,0 +1,272 @@
+package com.smartclassroom.backend.controller;
+
+import com.smartclassroom.backend.model.*;
+import com.smartclassroom.backend.repository.AnnouncementRepository;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.ChatMessageRepository;
+import com.smartclassroom.backend.repository.ClassroomMemberRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.StatementCounter;
+import com.smartclassroom.backend.repository.UserRepository;
+import com.smartclassroom.backend.service.ClassCodeIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements each endpoint issues against an in-memory database, so that an
+ * association touched outside its fetch plan shows up as a failing count rather than as a slow page.
+ * Requests run with the entity manager open for the whole request, as in production. The
+ * second-level cache is off so that the counts pin the fetch plans; {@link SecondLevelCacheTests}
+ * measures what the cache saves on top.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement-counts;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.open-in-view=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.smartclassroom.backend.repository.StatementCounter"
+})
+public class StatementCountTests {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private ClassroomMemberRepository classroomMemberRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Autowired
+    private AnnouncementRepository announcementRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ClassCodeIndex classCodeIndex;
+
+    private MockMvc mockMvc;
+
+    private User teacher;
+    private User student;
+    private User outsider;
+    private Classroom classroom;
+    private ClassroomMember studentMember;
+    private Assignment assignment;
+    private AssignmentSubmission submission;
+    private Announcement announcement;
+
+    // A fresh classroom per test: a teacher, two students, two assignments (one submitted), two
+    // announcements and two chat messages. Users are new each time, so dashboards are never cached.
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        teacher = user("Teacher", UserRole.TEACHER);
+        student = user("Student", UserRole.STUDENT);
+        User otherStudent = user("Other student", UserRole.STUDENT);
+        outsider = user("Outsider", UserRole.STUDENT);
+
+        classroom = classroomRepository.save(Classroom.builder()
+                .name("Physics")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+        member(teacher, ClassroomRole.TEACHER);
+        studentMember = member(student, ClassroomRole.STUDENT);
+        member(otherStudent, ClassroomRole.STUDENT);
+
+        assignment = assignmentRepository.save(Assignment.builder()
+                .classroom(classroom).title("Lab report").maxMarks(10).createdBy(teacher).build());
+        assignmentRepository.save(Assignment.builder()
+                .classroom(classroom).title("Problem set").maxMarks(20).createdBy(teacher).build());
+        submission = submissionRepository.save(AssignmentSubmission.builder()
+                .assignment(assignment).student(student).contentUrl("/api/files/report.pdf").build());
+
+        announcement = announcementRepository.save(Announcement.builder()
+                .classroom(classroom).author(teacher).title("Welcome").content("Hello").build());
+        announcementRepository.save(Announcement.builder()
+                .classroom(classroom).author(teacher).title("Lab").content("Bring goggles").build());
+
+        chatMessageRepository.save(ChatMessage.builder().classroom(classroom).sender(teacher).content("Hi").build());
+        chatMessageRepository.save(ChatMessage.builder().classroom(classroom).sender(student).content("Hello").build());
+
+        classCodeIndex.rebuild();
+    }
+
+    @Test
+    void userEndpoints() throws Exception {
+        Assertions.assertEquals(1, statementsFor(get("/api/users/{id}", student.getId())));
+        Assertions.assertEquals(1, statementsFor(get("/api/users/me").param("userId", student.getId().toString())));
+        Assertions.assertEquals(1, statementsFor(get("/api/users")));
+    }
+
+    @Test
+    void authEndpoints() throws Exception {
+        Assertions.assertEquals(1, statementsFor(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + student.getEmail() + "\",\"password\":\"secret\"}")));
+        // Lookup of the email, insert.
+        Assertions.assertEquals(2, statementsFor(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"New\",\"email\":\"" + UUID.randomUUID() + "@example.com\","
+                        + "\"password\":\"secret\",\"role\":\"STUDENT\"}")));
+    }
+
+    @Test
+    void classroomListsFetchTeachersInTheSameQuery() throws Exception {
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms").param("teacherId", teacher.getId().toString())));
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms").param("studentId", student.getId().toString())));
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms")));
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms/{id}", classroom.getId())));
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms/summaries").param("teacherId", teacher.getId().toString())));
+    }
+
+    @Test
+    void memberLists() throws Exception {
+        // Existence check of the classroom, members with their users.
+        Assertions.assertEquals(2, statementsFor(get("/api/classrooms/{id}/members", classroom.getId())));
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms/{id}/members/page", classroom.getId())));
+    }
+
+    @Test
+    void createAndJoinClassroom() throws Exception {
+        // Teacher, classroom insert, teacher membership insert.
+        Assertions.assertEquals(3, statementsFor(post("/api/classrooms")
+                .param("teacherId", teacher.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Chemistry\"}")));
+        // Code lookup, classroom with teacher, user, existing membership check, insert.
+        Assertions.assertEquals(5, statementsFor(post("/api/classrooms/join")
+                .param("userId", outsider.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"code\":\"" + classroom.getCode() + "\"}")));
+    }
+
+    @Test
+    void announcementEndpoints() throws Exception {
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms/{id}/announcements", classroom.getId())));
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms/{id}/announcements/{announcementId}",
+                classroom.getId(), announcement.getId())));
+        // Classroom, author, insert.
+        Assertions.assertEquals(3, statementsFor(post("/api/classrooms/{id}/announcements", classroom.getId())
+                .param("authorId", teacher.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Exam\",\"content\":\"Friday\"}")));
+    }
+
+    @Test
+    void chatEndpoints() throws Exception {
+        // Classroom, membership check, messages with their senders.
+        Assertions.assertEquals(3, statementsFor(get("/api/classrooms/{id}/chat/messages", classroom.getId())
+                .param("userId", student.getId().toString())));
+        // Classroom, sender, membership check (the classroom is already loaded), insert.
+        Assertions.assertEquals(4, statementsFor(post("/api/classrooms/{id}/chat/messages", classroom.getId())
+                .param("senderId", student.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"content\":\"Question about the lab\"}")));
+    }
+
+    @Test
+    void assignmentEndpoints() throws Exception {
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms/{id}/assignments", classroom.getId())));
+        Assertions.assertEquals(1, statementsFor(get("/api/classrooms/{id}/assignments/{assignmentId}",
+                classroom.getId(), assignment.getId())));
+        Assertions.assertEquals(1, statementsFor(get("/api/assignments/{assignmentId}", assignment.getId())));
+        // Assignment, three counts.
+        Assertions.assertEquals(4, statementsFor(get("/api/classrooms/{id}/assignments/{assignmentId}/statistics",
+                classroom.getId(), assignment.getId())));
+        // Assignment, students, submissions.
+        Assertions.assertEquals(3, statementsFor(get("/api/classrooms/{id}/assignments/{assignmentId}/non-submitted-students",
+                classroom.getId(), assignment.getId())));
+    }
+
+    @Test
+    void dashboards() throws Exception {
+        // User, memberships, assignments with their classrooms, then one submission lookup per assignment.
+        Assertions.assertEquals(5, statementsFor(get("/api/assignments/my").param("userId", student.getId().toString())));
+        // User, classrooms, assignments with their classrooms, then one submission count per assignment.
+        Assertions.assertEquals(5, statementsFor(get("/api/assignments/my")
+                .param("userId", teacher.getId().toString())
+                .param("role", "TEACHER")));
+    }
+
+    @Test
+    void submissionEndpoints() throws Exception {
+        Assertions.assertEquals(1, statementsFor(get("/api/assignments/{assignmentId}/submissions", assignment.getId())));
+        Assertions.assertEquals(1, statementsFor(get("/api/assignments/{assignmentId}/submissions/my", assignment.getId())
+                .param("studentId", student.getId().toString())));
+        // Submission with its student under a row lock, the assignment's scale, update.
+        Assertions.assertEquals(3, statementsFor(put("/api/assignments/{assignmentId}/submissions/{submissionId}/grade",
+                assignment.getId(), submission.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"marks\":8,\"feedback\":\"Good\"}")));
+    }
+
+    @Test
+    void toStringAndEqualsDoNotLoadAssociations() {
+        StatementCounter.reset();
+        // Loaded outside any request, so the session is closed and the associations are uninitialized proxies.
+        ClassroomMember member = classroomMemberRepository.findById(studentMember.getId()).orElseThrow();
+
+        Assertions.assertDoesNotThrow(() -> {
+            member.toString();
+            member.hashCode();
+            member.equals(studentMember);
+        });
+        Assertions.assertEquals(1, StatementCounter.count());
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+        StatementCounter.reset();
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+        return StatementCounter.count();
+    }
+
+    private User user(String name, UserRole role) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .build());
+    }
+
+    private ClassroomMember member(User user, ClassroomRole roleInClass) {
+        return classroomMemberRepository.save(ClassroomMember.builder()
+                .classroom(classroom)
+                .user(user)
+                .roleInClass(roleInClass)
+                .build());
+    }
+}
@@ -0,0 +1,182 @@
+package com.smartclassroom.backend.repository;
+
+import com.smartclassroom.backend.model.ChatMessage;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Bulk insert rates of chat messages with {@code IDENTITY} keys, as before the table generators,
+ * and with pooled table-generated keys unbatched and batched. Round trips are counted as the JDBC
+ * executions Hibernate performs (single statements plus batches), not as statements prepared: a
+ * batch prepares its insert once and executes it once per {@code hibernate.jdbc.batch_size} rows.
+ * H2 runs in-process, so the time saved here understates what the saved round trips are worth
+ * against a networked MySQL.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk-inserts;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false"
+})
+public class BulkInsertBenchmarkTests {
+
+    private static final int ROWS = 5_000;
+
+    /**
+     * Chat messages keyed the way every table was before the table generators.
+     */
+    @Entity
+    @Table(name = "identity_chat_messages")
+    public static class IdentityChatMessage {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        @Column(name = "classroom_id", nullable = false)
+        private Long classroomId;
+
+        @Column(name = "sender_id", nullable = false)
+        private Long senderId;
+
+        @Column(nullable = false)
+        private String content;
+
+        protected IdentityChatMessage() {
+        }
+
+        IdentityChatMessage(Long classroomId, Long senderId, String content) {
+            this.classroomId = classroomId;
+            this.senderId = senderId;
+            this.content = content;
+        }
+    }
+
+    private record Run(long nanos, long statementExecutions, long batchExecutions) {
+
+        long roundTrips() {
+            return statementExecutions + batchExecutions;
+        }
+    }
+
+    private static final class ExecutionCounter implements SessionEventListener {
+
+        private long statements;
+        private long batches;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            statements++;
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            batches++;
+        }
+    }
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void chatMessageInsertRate() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS identity_chat_messages ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, classroom_id BIGINT NOT NULL, "
+                + "sender_id BIGINT NOT NULL, content VARCHAR(255) NOT NULL)");
+        User sender = userRepository.save(User.builder()
+                .name("Teacher")
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(UserRole.TEACHER)
+                .build());
+        Classroom classroom = classroomRepository.save(Classroom.builder()
+                .name("Physics")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(sender)
+                .build());
+
+        BiConsumer<EntityManager, Integer> identity = (entityManager, i) ->
+                entityManager.persist(new IdentityChatMessage(classroom.getId(), sender.getId(), "Message " + i));
+        BiConsumer<EntityManager, Integer> tableGenerated = (entityManager, i) ->
+                entityManager.persist(ChatMessage.builder()
+                        .classroom(entityManager.getReference(Classroom.class, classroom.getId()))
+                        .sender(entityManager.getReference(User.class, sender.getId()))
+                        .content("Message " + i)
+                        .build());
+
+        // Warm up every path before measuring.
+        insert(500, null, identity);
+        insert(500, 1, tableGenerated);
+        insert(500, null, tableGenerated);
+
+        Run identityKeys = insert(ROWS, null, identity);
+        Run unbatched = insert(ROWS, 1, tableGenerated);
+        Run batched = insert(ROWS, null, tableGenerated);
+
+        System.out.printf("bulk insert of %,d chat messages:%n", ROWS);
+        report("IDENTITY keys", identityKeys);
+        report("table keys, unbatched", unbatched);
+        report("table keys, batched", batched);
+
+        // IDENTITY needs each row's key back before the next insert, so Hibernate never batches them.
+        Assertions.assertEquals(0, identityKeys.batchExecutions());
+        Assertions.assertTrue(identityKeys.statementExecutions() >= ROWS, "IDENTITY: " + identityKeys);
+        Assertions.assertTrue(unbatched.roundTrips() >= ROWS, "unbatched: " + unbatched);
+        Assertions.assertTrue(batched.batchExecutions() > 0, "batched: " + batched);
+        Assertions.assertTrue(batched.roundTrips() < ROWS / 10, "batched: " + batched);
+    }
+
+    // A null batch size uses the configured one.
+    private Run insert(int rows, Integer batchSize, BiConsumer<EntityManager, Integer> persist) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            Session session = entityManager.unwrap(Session.class);
+            session.setJdbcBatchSize(batchSize);
+            ExecutionCounter counter = new ExecutionCounter();
+            session.addEventListeners(counter);
+            long start = System.nanoTime();
+            entityManager.getTransaction().begin();
+            for (int i = 0; i < rows; i++) {
+                persist.accept(entityManager, i);
+            }
+            entityManager.getTransaction().commit();
+            return new Run(System.nanoTime() - start, counter.statements, counter.batches);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static void report(String label, Run run) {
+        System.out.printf("  %-22s %,9.0f rows/s, %,d statement executions, %,d batch executions%n",
+                label, ROWS / (run.nanos() / 1e9), run.statementExecutions(), run.batchExecutions());
+    }
+}
@@ -0,0 +1,90 @@
+package com.smartclassroom.backend.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.CoreMigrationType;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the migrations the way the application does ({@code baseline-on-migrate} at version 1), both
+ * on a database that ddl-auto=update created for the original entities and on an empty one. Either
+ * way every table the entities map to has to exist afterwards, since nothing else creates them.
+ */
+public class MigrationTests {
+
+    private static final List<String> TABLES_ADDED_SINCE_BASELINE =
+            List.of("file_blobs", "logical_files", "file_ownership", "storage_usage", "id_generators");
+
+    @Test
+    void existingDatabasesAreBaselinedAndGetTheNewTables() {
+        DataSource dataSource = dataSource("migration-existing");
+        new ResourceDatabasePopulator(new ClassPathResource("db/pre-series-schema.sql")).execute(dataSource);
+
+        migrate(dataSource);
+
+        // The baseline marker stands in for V1, whose script never ran against the existing tables.
+        MigrationInfo baseline = Arrays.stream(flyway(dataSource).info().applied())
+                .filter(migration -> migration.getType() == CoreMigrationType.BASELINE)
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertEquals("1", baseline.getVersion().getVersion());
+        assertNewTablesUsable(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Assertions.assertEquals("Existing classroom",
+                jdbcTemplate.queryForObject("SELECT name FROM classrooms WHERE code = 'EXISTING'", String.class));
+    }
+
+    @Test
+    void emptyDatabasesGetTheWholeSchema() {
+        DataSource dataSource = dataSource("migration-empty");
+
+        migrate(dataSource);
+
+        assertNewTablesUsable(dataSource);
+        new JdbcTemplate(dataSource).update(
+                "INSERT INTO users (id, name, email, password, role) VALUES (1, 'Teacher', 'teacher@example.com', 'secret', 'TEACHER')");
+    }
+
+    private void migrate(DataSource dataSource) {
+        MigrateResult result = flyway(dataSource).migrate();
+        Assertions.assertTrue(result.success);
+        Assertions.assertEquals(0, flyway(dataSource).info().pending().length);
+    }
+
+    // The columns the file store, quota and id generator entities write on upload.
+    private void assertNewTablesUsable(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String table : TABLES_ADDED_SINCE_BASELINE) {
+            Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.tables WHERE LOWER(table_name) = ?", Integer.class, table),
+                    table);
+        }
+        jdbcTemplate.update("INSERT INTO file_blobs (hash, size, ref_count) VALUES ('abc', 10, 1)");
+        jdbcTemplate.update("INSERT INTO logical_files (filename, blob_hash) VALUES ('report.pdf', 'abc')");
+        jdbcTemplate.update("INSERT INTO file_ownership (filename, user_id, size) VALUES ('report.pdf', 1, 10)");
+        jdbcTemplate.update("INSERT INTO storage_usage (id, scope, owner_id, used_bytes) VALUES (1, 'USER', 1, 10)");
+        jdbcTemplate.update("INSERT INTO id_generators (name, next_val) VALUES ('storage_usage', 2)");
+    }
+
+    private static Flyway flyway(DataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    private static DataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,123 @@
+package com.smartclassroom.backend.repository;
+
+import com.smartclassroom.backend.model.ClassroomRole;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs each hot repository query against the migrated schema and checks its {@code EXPLAIN} plan, so
+ * that a dropped index or a rewritten query that falls back to a full scan of its table fails here.
+ * H2 plans are not MySQL plans, but both pick up the same indexes for these equality and range lookups.
+ * The second-level cache is off, since a query answered from it issues no statement to explain.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-plans;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.smartclassroom.backend.repository.StatementCounter"
+})
+public class QueryPlanTests {
+
+    private static final PreparedStatementCallback<String> EXPLAIN = statement -> {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private ClassroomMemberRepository classroomMemberRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Autowired
+    private AnnouncementRepository announcementRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Test
+    void chatQueriesUseIndexes() {
+        assertNoScanOf("chat_messages", () -> chatMessageRepository.findTop50ByClassroom_IdOrderByCreatedAtAsc(1L));
+        assertNoScanOf("chat_messages", () -> chatMessageRepository.findByClassroom_Id(1L));
+    }
+
+    @Test
+    void announcementQueriesUseIndexes() {
+        assertNoScanOf("announcements", () -> announcementRepository.findByClassroomIdOrderByCreatedAtDesc(1L));
+    }
+
+    @Test
+    void assignmentQueriesUseIndexes() {
+        assertNoScanOf("assignments", () -> assignmentRepository.findByClassroomId(1L));
+        assertNoScanOf("assignments", () -> assignmentRepository.findByClassroomIdIn(List.of(1L, 2L)));
+    }
+
+    @Test
+    void submissionQueriesUseIndexes() {
+        assertNoScanOf("assignment_submissions", () -> submissionRepository.countByAssignmentId(1L));
+        assertNoScanOf("assignment_submissions", () -> submissionRepository.countGradedByAssignmentId(1L));
+        assertNoScanOf("assignment_submissions", () -> submissionRepository.findByAssignmentId(1L));
+        assertNoScanOf("assignment_submissions", () -> submissionRepository.findByAssignmentIdAndStudentId(1L, 1L));
+    }
+
+    @Test
+    void memberQueriesUseIndexes() {
+        assertNoScanOf("classroom_members", () -> classroomMemberRepository.findByUserId(1L));
+        assertNoScanOf("classroom_members", () -> classroomMemberRepository.findByClassroomId(1L));
+        assertNoScanOf("classroom_members", () -> classroomMemberRepository.findByClassroomIdAndUserId(1L, 1L));
+        assertNoScanOf("classroom_members",
+                () -> classroomMemberRepository.countByClassroomIdAndRole(1L, ClassroomRole.STUDENT));
+        assertNoScanOf("classroom_members", () -> classroomMemberRepository.findMemberPage(1L, 0L, Limit.of(20)));
+    }
+
+    @Test
+    void classroomAndUserQueriesUseIndexes() {
+        assertNoScanOf("classrooms", () -> classroomRepository.findByTeacherId(1L));
+        assertNoScanOf("classrooms", () -> classroomRepository.findIdByCode("ABCDEFGH"));
+        assertNoScanOf("classrooms", () -> classroomRepository.findCodesCreatedSince(LocalDateTime.now()));
+        assertNoScanOf("users", () -> userRepository.findByEmail("someone@example.com"));
+    }
+
+    // Captures the statement the query issues and explains it with its parameters left unbound, which
+    // H2 accepts for EXPLAIN.
+    private void assertNoScanOf(String table, Runnable query) {
+        StatementCounter.reset();
+        query.run();
+        List<String> statements = StatementCounter.statements();
+        Assertions.assertFalse(statements.isEmpty(), "no statement captured for " + table);
+        for (String sql : statements) {
+            String plan = jdbcTemplate.execute("EXPLAIN " + sql, EXPLAIN);
+            Assertions.assertNotNull(plan);
+            Assertions.assertFalse(plan.toLowerCase(Locale.ROOT).contains("public." + table + ".tablescan"),
+                    "full scan of " + table + ":\n" + plan);
+        }
+    }
+}
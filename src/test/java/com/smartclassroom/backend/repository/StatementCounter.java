@@ -0,0 +1,45 @@
+package com.smartclassroom.backend.repository;
+
+import com.smartclassroom.backend.model.IdGenerators;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts and records the SQL statements Hibernate prepares. Id allocations are left out: they happen
+ * once per {@link IdGenerators#ALLOCATION_SIZE} inserts, so whether a request needs one depends on
+ * what ran before it. Registered with {@code hibernate.session_factory.statement_inspector}.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final List<String> statements = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        if (!sql.contains(IdGenerators.TABLE)) {
+            synchronized (statements) {
+                statements.add(sql);
+            }
+        }
+        return sql;
+    }
+
+    public static void reset() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    public static long count() {
+        synchronized (statements) {
+            return statements.size();
+        }
+    }
+
+    public static List<String> statements() {
+        synchronized (statements) {
+            return List.copyOf(statements);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.StatementCounter;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Deletes assignments through the service and checks the statements it issues and which uploads the
+ * cleanup reclaims afterwards.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:assignment-deletion;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=assignment-deletion",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.smartclassroom.backend.repository.StatementCounter"
+})
+public class AssignmentDeletionTests {
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) throws IOException {
+        String uploadDir = Files.createTempDirectory("assignment-deletion-tests").toString();
+        registry.add("file.upload-dir", () -> uploadDir);
+    }
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    private User teacher;
+    private Classroom classroom;
+
+    @BeforeEach
+    void setUp() {
+        teacher = user("Teacher", UserRole.TEACHER, null);
+        classroom = classroomRepository.save(Classroom.builder()
+                .name("Physics")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+    }
+
+    @Test
+    void submissionsAndTheAssignmentGoInOneBulkDeleteEach() {
+        Assignment few = assignment(null);
+        submit(few, 3, null);
+        Assignment many = assignment(null);
+        submit(many, 60, null);
+
+        long forFew = statementsToDelete(few);
+        List<String> statements = StatementCounter.statements();
+        long forMany = statementsToDelete(many);
+
+        Assertions.assertEquals(forFew, forMany, "statements must not grow with the submissions");
+        Assertions.assertEquals(1, count(statements, "delete from assignment_submissions"), statements.toString());
+        Assertions.assertEquals(1, count(statements, "delete from assignments"), statements.toString());
+        Assertions.assertEquals(0L, submissionRepository.countByAssignmentId(many.getId()));
+        Assertions.assertFalse(assignmentRepository.existsById(many.getId()));
+    }
+
+    @Test
+    void releasedUploadsAreDeletedUnlessStillReferenced() throws InterruptedException {
+        String attachment = store("brief.pdf");
+        String released = store("answer.pdf");
+        String shared = store("shared.pdf");
+        Assignment assignment = assignment(url(attachment));
+        submit(assignment, 1, url(released));
+        submit(assignment, 1, url(shared));
+        user("Keeper", UserRole.STUDENT, url(shared) + "?size=large");
+
+        StatementCounter.reset();
+        assignmentService.deleteAssignment(assignment.getId());
+
+        awaitDeleted(released);
+        Assertions.assertFalse(Files.exists(fileStorageService.resolvePath(attachment)));
+        Assertions.assertTrue(Files.exists(fileStorageService.resolvePath(shared)));
+        // The cleanup looks the released files up instead of reading every reference.
+        Assertions.assertEquals(0, count(StatementCounter.statements(), "profile_image_url is not null"));
+    }
+
+    // Without uploads to release, so the cleanup adds no statements of its own.
+    private long statementsToDelete(Assignment assignment) {
+        StatementCounter.reset();
+        assignmentService.deleteAssignment(assignment.getId());
+        return StatementCounter.count();
+    }
+
+    private static long count(List<String> statements, String fragment) {
+        return statements.stream().filter(sql -> sql.toLowerCase(Locale.ROOT).contains(fragment)).count();
+    }
+
+    private void awaitDeleted(String filename) throws InterruptedException {
+        Path path = fileStorageService.resolvePath(filename);
+        for (int i = 0; i < 100 && Files.exists(path); i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertFalse(Files.exists(path), filename + " was not cleaned up");
+    }
+
+    private Assignment assignment(String attachmentUrl) {
+        return assignmentRepository.save(Assignment.builder()
+                .classroom(classroom)
+                .title("Lab")
+                .maxMarks(10)
+                .closed(false)
+                .attachmentUrl(attachmentUrl)
+                .createdBy(teacher)
+                .build());
+    }
+
+    private void submit(Assignment assignment, int students, String contentUrl) {
+        List<AssignmentSubmission> submissions = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            submissions.add(AssignmentSubmission.builder()
+                    .assignment(assignment)
+                    .student(user("Student " + i, UserRole.STUDENT, null))
+                    .contentUrl(contentUrl)
+                    .build());
+        }
+        submissionRepository.saveAll(submissions);
+    }
+
+    private String store(String name) {
+        return fileStorageService.storeStream(
+                new ByteArrayInputStream(("Content of " + name).getBytes(StandardCharsets.UTF_8)), name);
+    }
+
+    private static String url(String filename) {
+        return "http://localhost:8080" + FileStorageService.toDownloadPath(filename);
+    }
+
+    private User user(String name, UserRole role, String profileImageUrl) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .profileImageUrl(profileImageUrl)
+                .build());
+    }
+}
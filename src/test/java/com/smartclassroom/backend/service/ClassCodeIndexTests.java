@@ -0,0 +1,228 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class code lookups against a repository that counts its queries and, like MySQL's default
+ * collation, matches codes regardless of case. The last test replays join-by-code lookups with the
+ * mix of codes seen at semester start and reports their throughput.
+ */
+public class ClassCodeIndexTests {
+
+    private static final int CLASSROOMS = 5_000;
+
+    private final Map<String, Long> codes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    // Codes created since the last rebuild, as another instance would have.
+    private final List<String> createdElsewhere = new ArrayList<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private ClassroomRepository repository;
+    private ClassCodeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        for (long id = 1; id <= CLASSROOMS; id++) {
+            codes.put(randomCode(random), id);
+        }
+
+        repository = Mockito.mock(ClassroomRepository.class, Mockito.withSettings().stubOnly());
+        Mockito.when(repository.count()).thenAnswer(inv -> (long) codes.size());
+        Mockito.when(repository.streamCodes()).thenAnswer(inv -> new ArrayList<>(codes.keySet()).stream());
+        Mockito.when(repository.findCodesCreatedSince(Mockito.any(LocalDateTime.class)))
+                .thenAnswer(inv -> new ArrayList<>(createdElsewhere));
+        Mockito.when(repository.findIdByCode(Mockito.anyString())).thenAnswer(inv -> {
+            queries.incrementAndGet();
+            return Optional.ofNullable(codes.get(inv.<String>getArgument(0)));
+        });
+        Mockito.when(repository.existsByCode(Mockito.anyString())).thenAnswer(inv -> {
+            queries.incrementAndGet();
+            return codes.containsKey(inv.<String>getArgument(0));
+        });
+
+        index = index(Duration.ofMinutes(1));
+    }
+
+    private ClassCodeIndex index(Duration maxStaleness) {
+        ClassCodeIndex built = new ClassCodeIndex(repository, Mockito.mock(PlatformTransactionManager.class), maxStaleness);
+        built.rebuild();
+        return built;
+    }
+
+    @Test
+    void unknownCodesAreMostlyRejectedWithoutAQuery() {
+        Random random = new Random(7);
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            Assertions.assertTrue(index.findClassroomId("x" + randomCode(random)).isEmpty());
+        }
+        // Sized for a 1% false positive rate; allow some slack.
+        Assertions.assertTrue(queries.get() < lookups * 0.02, "queries: " + queries.get());
+    }
+
+    @Test
+    void everyExistingCodeIsFound() {
+        for (Map.Entry<String, Long> entry : codes.entrySet()) {
+            Assertions.assertEquals(Optional.of(entry.getValue()), index.findClassroomId(entry.getKey()));
+        }
+        int firstPass = queries.get();
+        for (String code : codes.keySet()) {
+            index.findClassroomId(code);
+        }
+        Assertions.assertEquals(firstPass, queries.get(), "second pass should be served from the cache");
+    }
+
+    @Test
+    void createdAndDeletedCodesAreTracked() {
+        codes.put("NEWCODE1", 9_999L);
+        index.add("NEWCODE1", 9_999L);
+        Assertions.assertEquals(Optional.of(9_999L), index.findClassroomId("NEWCODE1"));
+        Assertions.assertEquals(0, queries.get());
+        Assertions.assertFalse(index.isUnused("NEWCODE1"));
+
+        codes.remove("NEWCODE1");
+        index.remove("NEWCODE1");
+        Assertions.assertTrue(index.findClassroomId("NEWCODE1").isEmpty());
+        Assertions.assertTrue(index.isUnused("NEWCODE1"));
+    }
+
+    @Test
+    void codesCreatedOnOtherInstancesAreFoundAfterARefresh() {
+        codes.put("ELSEWHER", 9_999L);
+        createdElsewhere.add("ELSEWHER");
+
+        index.refresh();
+
+        Assertions.assertEquals(Optional.of(9_999L), index.findClassroomId("ELSEWHER"));
+        Assertions.assertFalse(index.isUnused("ELSEWHER"));
+    }
+
+    @Test
+    void staleFiltersAreNotTrustedWithNegatives() {
+        ClassCodeIndex stale = index(Duration.ZERO);
+        codes.put("ELSEWHER", 9_999L);
+
+        Assertions.assertEquals(Optional.of(9_999L), stale.findClassroomId("ELSEWHER"));
+        Assertions.assertFalse(stale.isUnused("ELSEWHER"));
+        Assertions.assertEquals(2, queries.get());
+    }
+
+    @Test
+    void codesAreMatchedRegardlessOfCaseAsTheDatabaseDoes() {
+        String code = "AbCd-123";
+        codes.put(code, 9_999L);
+        index.add(code, 9_999L);
+
+        Assertions.assertEquals(Optional.of(9_999L), index.findClassroomId("abcd-123"));
+        Assertions.assertEquals(Optional.of(9_999L), index.findClassroomId("ABCD-123"));
+        Assertions.assertEquals(0, queries.get(), "case variants should be served from the cache");
+        Assertions.assertFalse(index.isUnused("aBcD-123"), "the unique key would reject this code");
+
+        ClassCodeIndex rebuilt = index(Duration.ofMinutes(1));
+        Assertions.assertEquals(Optional.of(9_999L), rebuilt.findClassroomId("ABCD-123"));
+        Assertions.assertEquals("cafe", ClassCodeIndex.normalize("CAF\u00C9"));
+    }
+
+    @Test
+    void joinByCodeThroughput() throws Exception {
+        List<String> valid = new ArrayList<>(codes.keySet());
+        Random random = new Random(11);
+        int lookups = 1_000_000;
+        String[] workload = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            // Nine mistyped codes for every valid one, typed in whatever case.
+            workload[i] = random.nextInt(10) == 0
+                    ? mixCase(valid.get(random.nextInt(valid.size())), random)
+                    : randomCode(random);
+        }
+
+        int expected = 0;
+        for (String code : workload) {
+            if (codes.containsKey(code)) {
+                expected++;
+            }
+        }
+        // Warm up, and fill the cache as the first minutes of a semester would.
+        lookUp(workload, 0, lookups);
+        queries.set(0);
+
+        long start = System.nanoTime();
+        int found = lookUp(workload, 0, lookups);
+        long singleThread = System.nanoTime() - start;
+        Assertions.assertEquals(expected, found);
+        int queriesPerPass = queries.get();
+
+        int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int slice = lookups / threads;
+            start = System.nanoTime();
+            List<Future<Integer>> parts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int from = t * slice;
+                int to = t == threads - 1 ? lookups : from + slice;
+                parts.add(pool.submit(() -> lookUp(workload, from, to)));
+            }
+            int concurrentFound = 0;
+            for (Future<Integer> part : parts) {
+                concurrentFound += part.get();
+            }
+            long concurrent = System.nanoTime() - start;
+            Assertions.assertEquals(expected, concurrentFound);
+
+            System.out.printf("join by code, %,d lookups (10%% valid) over %,d classrooms:%n", lookups, CLASSROOMS);
+            System.out.printf("  1 thread   %,12.0f lookups/s%n", lookups / (singleThread / 1e9));
+            System.out.printf("  %d threads  %,12.0f lookups/s%n", threads, lookups / (concurrent / 1e9));
+            System.out.printf("  %,d queries per pass (%.2f%% of lookups)%n", queriesPerPass, 100.0 * queriesPerPass / lookups);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Once the cache holds the valid codes, only the filter's false positives reach the database.
+        Assertions.assertTrue(queriesPerPass < lookups * 0.02, "queries: " + queriesPerPass);
+    }
+
+    private int lookUp(String[] workload, int from, int to) {
+        int found = 0;
+        for (int i = from; i < to; i++) {
+            if (index.findClassroomId(workload[i]).isPresent()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static String mixCase(String code, Random random) {
+        StringBuilder typed = new StringBuilder(code.length());
+        for (char c : code.toCharArray()) {
+            typed.append(random.nextBoolean() ? Character.toUpperCase(c) : Character.toLowerCase(c));
+        }
+        return typed.toString();
+    }
+
+    private static String randomCode(Random random) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        StringBuilder code = new StringBuilder(8);
+        for (int i = 0; i < 8; i++) {
+            code.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return code.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.smartclassroom.backend.service;
+
+import com.jayway.jsonpath.JsonPath;
+import com.smartclassroom.backend.dto.storage.StorageReportDTO;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Stores, adopts and releases files with content addressing on, against an in-memory database and an
+ * upload directory of its own.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:content-addressed;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=content-addressed",
+        "file.content-addressed=true"
+})
+public class ContentAddressedStoreTests {
+
+    private static Path uploadDir;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) throws IOException {
+        uploadDir = Files.createTempDirectory("content-addressed-tests");
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Test
+    void identicalUploadsShareOneBlobUntilTheLastIsDeleted() throws IOException {
+        String content = "Shared handout " + UUID.randomUUID();
+        StorageReportDTO before = contentAddressedStore.getReport();
+
+        String first = store("handout.txt", content);
+        String second = store("handout-copy.txt", content);
+
+        FileStorageService.StoredFile firstFile = fileStorageService.describe(first);
+        FileStorageService.StoredFile secondFile = fileStorageService.describe(second);
+        Assertions.assertEquals(firstFile.path(), secondFile.path());
+        Assertions.assertEquals(sha256(content), firstFile.etag());
+        StorageReportDTO after = contentAddressedStore.getReport();
+        Assertions.assertEquals(before.getLogicalFiles() + 2, after.getLogicalFiles());
+        Assertions.assertEquals(before.getBlobs() + 1, after.getBlobs());
+
+        Assertions.assertTrue(fileStorageService.deleteFile(first));
+        Assertions.assertTrue(Files.exists(secondFile.path()));
+        Assertions.assertEquals(content, read(fileStorageService.describe(second)));
+
+        Assertions.assertTrue(fileStorageService.deleteFile(second));
+        Assertions.assertFalse(Files.exists(secondFile.path()));
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> fileStorageService.describe(second));
+    }
+
+    @Test
+    void adoptedFilesAreHashedAsTheyAreCopied() throws IOException {
+        String content = "Written before content addressing " + UUID.randomUUID();
+        String filename = flat("legacy.txt", content);
+        Path flatPath = uploadDir.resolve(filename);
+
+        Assertions.assertTrue(contentAddressedStore.adopt(filename, flatPath));
+
+        Assertions.assertFalse(Files.exists(flatPath));
+        Path blob = contentAddressedStore.locate(filename).orElseThrow();
+        Assertions.assertEquals(sha256(content), blob.getFileName().toString());
+        Assertions.assertEquals(content, Files.readString(blob));
+        Assertions.assertFalse(contentAddressedStore.adopt(filename, flatPath), "already mapped");
+    }
+
+    @Test
+    void theMigrationRunsInTheBackgroundAndCanBePolled() throws Exception {
+        String syllabus = flat("syllabus.txt", "Week 1 " + UUID.randomUUID());
+        String notes = flat("notes.txt", "Week 2 " + UUID.randomUUID());
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        String started = mockMvc.perform(post("/api/storage/migrate"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        String jobId = JsonPath.read(started, "$.jobId");
+
+        String progress = started;
+        for (int i = 0; i < 100 && "RUNNING".equals(JsonPath.read(progress, "$.status")); i++) {
+            Thread.sleep(50);
+            progress = mockMvc.perform(get("/api/storage/migrate/" + jobId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+        }
+        Assertions.assertEquals("COMPLETED", JsonPath.read(progress, "$.status"), progress);
+        Assertions.assertEquals(2, (int) JsonPath.read(progress, "$.migratedFiles"));
+        for (String filename : List.of(syllabus, notes)) {
+            FileStorageService.StoredFile file = fileStorageService.describe(filename);
+            Assertions.assertEquals(contentAddressedStore.locate(filename).orElseThrow(), file.path());
+            Assertions.assertEquals(sha256(read(file)), file.etag());
+        }
+        mockMvc.perform(get("/api/storage/migrate/" + UUID.randomUUID())).andExpect(status().isNotFound());
+    }
+
+    // With the flag off nothing can be mapped, so lookups and deletes must not query the store.
+    @Test
+    void theStoreIsNotConsultedWhenContentAddressingIsOff() throws IOException {
+        Path root = Files.createTempDirectory("content-addressed-off");
+        LocalStorageBackend localBackend = new LocalStorageBackend(root.toString(), true);
+        ContentAddressedStore store = Mockito.mock(ContentAddressedStore.class);
+        FileStorageService storage = new FileStorageService(LocalStorageBackend.NAME, false, false, Duration.ofMinutes(5),
+                List.of(localBackend), localBackend, Mockito.mock(ApplicationEventPublisher.class), store,
+                new HotFileCache(DataSize.ofMegabytes(1), DataSize.ofMegabytes(1), DataSize.ofMegabytes(1)),
+                Mockito.mock(StorageQuotaService.class));
+        try {
+            Assertions.assertThrows(ResourceNotFoundException.class, () -> storage.describe("missing.txt"));
+            Assertions.assertEquals(localBackend.shardedPath("missing.txt"), storage.resolvePath("missing.txt"));
+            Assertions.assertFalse(storage.deleteFile("missing.txt"));
+
+            Mockito.verify(store, Mockito.never()).locate(Mockito.anyString());
+            Mockito.verify(store, Mockito.never()).release(Mockito.anyString());
+        } finally {
+            storage.shutdown();
+        }
+    }
+
+    private String store(String name, String content) {
+        return fileStorageService.storeStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), name);
+    }
+
+    // Written the way uploads were stored before content addressing.
+    private static String flat(String name, String content) throws IOException {
+        String filename = UUID.randomUUID() + "_" + name;
+        Files.writeString(uploadDir.resolve(filename), content);
+        return filename;
+    }
+
+    private String read(FileStorageService.StoredFile file) throws IOException {
+        try (InputStream in = fileStorageService.openStream(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.assignment.StudentAssignmentResponseDTO;
+import com.smartclassroom.backend.event.AssignmentChangedEvent;
+import com.smartclassroom.backend.event.MembershipChangedEvent;
+import com.smartclassroom.backend.event.SubmissionChangedEvent;
+import com.smartclassroom.backend.model.*;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.ClassroomMemberRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Mutates the data behind the student dashboard and checks that every read after the
+ * corresponding domain event reflects the mutation.
+ */
+@ExtendWith(MockitoExtension.class)
+public class DashboardCacheTests {
+
+    private static final Long STUDENT_ID = 1L;
+    private static final Long CLASSROOM_ID = 10L;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AssignmentRepository assignmentRepository;
+
+    @Mock
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Mock
+    private ClassroomMemberRepository classroomMemberRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final MutableClock clock = new MutableClock();
+
+    @Spy
+    private DashboardCache dashboardCache = new DashboardCache(clock);
+
+    @InjectMocks
+    private AssignmentService assignmentService;
+
+    private Classroom classroom;
+    private final List<Assignment> assignments = new ArrayList<>();
+    private final List<ClassroomMember> memberships = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User student = User.builder().id(STUDENT_ID).name("Student").role(UserRole.STUDENT).build();
+        classroom = Classroom.builder().id(CLASSROOM_ID).name("Math").build();
+        memberships.add(ClassroomMember.builder().classroom(classroom).user(student).roleInClass(ClassroomRole.STUDENT).build());
+        assignments.add(assignment(100L, "HW 1"));
+
+        Mockito.lenient().when(userRepository.findById(STUDENT_ID)).thenReturn(Optional.of(student));
+        Mockito.lenient().when(classroomMemberRepository.findByUserId(STUDENT_ID)).thenAnswer(inv -> List.copyOf(memberships));
+        Mockito.lenient().when(assignmentRepository.findByClassroomIdIn(Mockito.anyList())).thenAnswer(inv -> List.copyOf(assignments));
+        Mockito.lenient().when(submissionRepository.findByAssignmentIdAndStudentId(Mockito.anyLong(), Mockito.eq(STUDENT_ID)))
+                .thenReturn(Optional.empty());
+    }
+
+    @Test
+    void secondReadIsServedFromCache() {
+        assignmentService.getStudentAssignments(STUDENT_ID);
+        assignmentService.getStudentAssignments(STUDENT_ID);
+
+        Mockito.verify(assignmentRepository, Mockito.times(1)).findByClassroomIdIn(Mockito.anyList());
+        Assertions.assertEquals(1L, dashboardCache.getStats().getHits());
+        Assertions.assertEquals(1L, dashboardCache.getStats().getMisses());
+    }
+
+    @Test
+    void gradingEvictsStudentDashboard() {
+        Assertions.assertNull(assignmentService.getStudentAssignments(STUDENT_ID).get(0).getMarks());
+
+        AssignmentSubmission graded = AssignmentSubmission.builder().id(7L).marks(9).build();
+        Mockito.when(submissionRepository.findByAssignmentIdAndStudentId(100L, STUDENT_ID)).thenReturn(Optional.of(graded));
+        dashboardCache.onEvent(new SubmissionChangedEvent(CLASSROOM_ID, STUDENT_ID));
+
+        StudentAssignmentResponseDTO item = assignmentService.getStudentAssignments(STUDENT_ID).get(0);
+        Assertions.assertTrue(item.getIsSubmitted());
+        Assertions.assertEquals(9, item.getMarks());
+    }
+
+    @Test
+    void newAssignmentInClassroomEvictsMembersDashboards() {
+        Assertions.assertEquals(1, assignmentService.getStudentAssignments(STUDENT_ID).size());
+
+        assignments.add(assignment(101L, "HW 2"));
+        dashboardCache.onEvent(new AssignmentChangedEvent(CLASSROOM_ID));
+
+        Assertions.assertEquals(2, assignmentService.getStudentAssignments(STUDENT_ID).size());
+    }
+
+    @Test
+    void leavingClassroomEvictsDashboard() {
+        Assertions.assertEquals(1, assignmentService.getStudentAssignments(STUDENT_ID).size());
+
+        memberships.clear();
+        dashboardCache.onEvent(new MembershipChangedEvent(CLASSROOM_ID, STUDENT_ID));
+
+        Assertions.assertTrue(assignmentService.getStudentAssignments(STUDENT_ID).isEmpty());
+    }
+
+    @Test
+    void loadOverlappingAnEvictionIsNotCached() {
+        // The first load reads the old assignment list, then a new assignment commits before it finishes.
+        Mockito.when(assignmentRepository.findByClassroomIdIn(Mockito.anyList())).thenAnswer(inv -> {
+            List<Assignment> snapshot = List.copyOf(assignments);
+            assignments.add(assignment(101L, "HW 2"));
+            dashboardCache.onEvent(new AssignmentChangedEvent(CLASSROOM_ID));
+            return snapshot;
+        }).thenAnswer(inv -> List.copyOf(assignments));
+
+        Assertions.assertEquals(1, assignmentService.getStudentAssignments(STUDENT_ID).size());
+        Assertions.assertEquals(2, assignmentService.getStudentAssignments(STUDENT_ID).size());
+    }
+
+    @Test
+    void deadlineFlagIsRecomputedOnHit() {
+        assignments.clear();
+        Assignment dueSoon = assignment(100L, "HW 1");
+        dueSoon.setDueDate(LocalDateTime.now(clock).plusMinutes(1));
+        assignments.add(dueSoon);
+
+        Assertions.assertFalse(assignmentService.getStudentAssignments(STUDENT_ID).get(0).getIsPastDeadline());
+        clock.advance(Duration.ofMinutes(2));
+        Assertions.assertTrue(assignmentService.getStudentAssignments(STUDENT_ID).get(0).getIsPastDeadline());
+        Assertions.assertEquals(1L, dashboardCache.getStats().getHits());
+    }
+
+    @Test
+    void entriesExpireAfterTheMaximumAge() {
+        assignmentService.getStudentAssignments(STUDENT_ID);
+        clock.advance(Duration.ofMinutes(29));
+        assignmentService.getStudentAssignments(STUDENT_ID);
+        clock.advance(Duration.ofMinutes(2));
+        assignmentService.getStudentAssignments(STUDENT_ID);
+
+        Mockito.verify(assignmentRepository, Mockito.times(2)).findByClassroomIdIn(Mockito.anyList());
+    }
+
+    @Test
+    void loadOverlappingAnUnrelatedEvictionIsCached() {
+        // Another classroom and another student change while this dashboard loads.
+        Mockito.when(assignmentRepository.findByClassroomIdIn(Mockito.anyList())).thenAnswer(inv -> {
+            dashboardCache.onEvent(new AssignmentChangedEvent(CLASSROOM_ID + 1));
+            dashboardCache.onEvent(new SubmissionChangedEvent(CLASSROOM_ID + 1, STUDENT_ID + 1));
+            return List.copyOf(assignments);
+        });
+
+        assignmentService.getStudentAssignments(STUDENT_ID);
+        assignmentService.getStudentAssignments(STUDENT_ID);
+
+        Mockito.verify(assignmentRepository, Mockito.times(1)).findByClassroomIdIn(Mockito.anyList());
+    }
+
+    @Test
+    void loadOverlappingAnEvictionOfTheSameStudentIsNotCached() {
+        Mockito.when(assignmentRepository.findByClassroomIdIn(Mockito.anyList())).thenAnswer(inv -> {
+            dashboardCache.onEvent(new SubmissionChangedEvent(CLASSROOM_ID, STUDENT_ID));
+            return List.copyOf(assignments);
+        });
+
+        assignmentService.getStudentAssignments(STUDENT_ID);
+        assignmentService.getStudentAssignments(STUDENT_ID);
+
+        Mockito.verify(assignmentRepository, Mockito.times(2)).findByClassroomIdIn(Mockito.anyList());
+    }
+
+    private Assignment assignment(Long id, String title) {
+        return Assignment.builder().id(id).classroom(classroom).title(title).maxMarks(10).build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-05T09:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.assignment.AssignmentCreateRequestDTO;
+import com.smartclassroom.backend.dto.assignment.AssignmentSubmissionRequestDTO;
+import com.smartclassroom.backend.dto.assignment.GradeSubmissionRequestDTO;
+import com.smartclassroom.backend.dto.assignment.StudentAssignmentResponseDTO;
+import com.smartclassroom.backend.dto.classroom.ClassroomCreateRequestDTO;
+import com.smartclassroom.backend.dto.classroom.JoinClassroomRequestDTO;
+import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Drives the writes through the services, with their transactions and event listeners as in
+ * production, and checks that the next dashboard read reflects each one. A service that stops
+ * publishing its event leaves a stale cached dashboard and fails here.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:dashboard-invalidation;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=dashboard-invalidation"
+})
+public class DashboardInvalidationTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomService classroomService;
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    @Autowired
+    private AssignmentSubmissionService submissionService;
+
+    @Autowired
+    private MarksRescaleService marksRescaleService;
+
+    private User teacher;
+    private User student;
+    private Classroom classroom;
+
+    @BeforeEach
+    void setUp() {
+        teacher = user("Teacher", UserRole.TEACHER);
+        student = user("Student", UserRole.STUDENT);
+        ClassroomCreateRequestDTO create = new ClassroomCreateRequestDTO();
+        create.setName("Physics");
+        classroom = classroomService.createClassroom(teacher.getId(), create);
+    }
+
+    @Test
+    void joiningAndLeavingUpdateTheStudentsDashboard() {
+        Assignment assignment = createAssignment("Lab 1");
+        Assertions.assertTrue(assignmentService.getStudentAssignments(student.getId()).isEmpty());
+
+        join();
+        Assertions.assertEquals(List.of(assignment.getId()), assignmentIds(student.getId()));
+
+        classroomService.leaveClassroom(classroom.getId(), student.getId());
+        Assertions.assertTrue(assignmentService.getStudentAssignments(student.getId()).isEmpty());
+    }
+
+    @Test
+    void newAssignmentsReachEveryDashboardOfTheClassroom() {
+        join();
+        createAssignment("Lab 1");
+        Assertions.assertEquals(1, assignmentService.getStudentAssignments(student.getId()).size());
+        Assertions.assertEquals(1, assignmentService.getTeacherAssignments(teacher.getId()).size());
+
+        createAssignment("Lab 2");
+
+        Assertions.assertEquals(2, assignmentService.getStudentAssignments(student.getId()).size());
+        Assertions.assertEquals(2, assignmentService.getTeacherAssignments(teacher.getId()).size());
+    }
+
+    @Test
+    void submittingGradingAndRescalingUpdateTheDashboards() {
+        join();
+        Assignment assignment = createAssignment("Lab 1");
+        Assertions.assertFalse(assignmentService.getStudentAssignments(student.getId()).get(0).getIsSubmitted());
+        assignmentService.getTeacherAssignments(teacher.getId());
+
+        AssignmentSubmissionRequestDTO submit = new AssignmentSubmissionRequestDTO();
+        submit.setAssignmentId(assignment.getId());
+        submit.setContentUrl("https://example.com/lab1.pdf");
+        AssignmentSubmission submission = submissionService.submitAssignment(assignment.getId(), student.getId(), submit);
+        Assertions.assertTrue(assignmentService.getStudentAssignments(student.getId()).get(0).getIsSubmitted());
+
+        GradeSubmissionRequestDTO grade = new GradeSubmissionRequestDTO();
+        grade.setMarks(8);
+        submissionService.gradeSubmission(submission.getId(), grade);
+        Assertions.assertEquals(8, assignmentService.getStudentAssignments(student.getId()).get(0).getMarks());
+
+        marksRescaleService.rescaleAssignment(assignment.getId(), 20);
+        StudentAssignmentResponseDTO rescaled = assignmentService.getStudentAssignments(student.getId()).get(0);
+        Assertions.assertEquals(16, rescaled.getMarks());
+        Assertions.assertEquals(20, rescaled.getMaxMarks());
+    }
+
+    @Test
+    void deletedAssignmentsLeaveTheDashboards() {
+        join();
+        Assignment assignment = createAssignment("Lab 1");
+        Assertions.assertEquals(1, assignmentService.getStudentAssignments(student.getId()).size());
+
+        assignmentService.deleteAssignment(assignment.getId());
+
+        Assertions.assertTrue(assignmentService.getStudentAssignments(student.getId()).isEmpty());
+    }
+
+    private void join() {
+        JoinClassroomRequestDTO join = new JoinClassroomRequestDTO();
+        join.setCode(classroom.getCode());
+        classroomService.joinClassroom(student.getId(), join);
+    }
+
+    private Assignment createAssignment(String title) {
+        AssignmentCreateRequestDTO request = new AssignmentCreateRequestDTO();
+        request.setClassroomId(classroom.getId());
+        request.setTitle(title);
+        request.setMaxMarks(10);
+        request.setDueDate(LocalDateTime.now().plusDays(7));
+        return assignmentService.createAssignment(classroom.getId(), teacher.getId(), request);
+    }
+
+    private List<Long> assignmentIds(Long studentId) {
+        return assignmentService.getStudentAssignments(studentId).stream()
+                .map(StudentAssignmentResponseDTO::getId)
+                .toList();
+    }
+
+    private User user(String name, UserRole role) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .build());
+    }
+}
@@ -0,0 +1,236 @@
+package com.smartclassroom.backend.service;
+
+import com.jayway.jsonpath.JsonPath;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.ClassroomMember;
+import com.smartclassroom.backend.model.ClassroomRole;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.ClassroomMemberRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Exports the gradebook of a classroom in an in-memory database and reads the pivoted rows back:
+ * students without submissions, submissions without marks and assignments nobody submitted.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:gradebook-export;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=gradebook-export"
+})
+public class GradebookExportServiceTests {
+
+    @Autowired
+    private GradebookExportService exportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private ClassroomMemberRepository classroomMemberRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    private Classroom classroom;
+    private Assignment overdue;
+    private Assignment ungraded;
+    private Assignment unsubmitted;
+    private User graded;
+    private User absent;
+    private User quoted;
+
+    // Three students: one who submitted twice, one who never submitted and one whose name needs
+    // quoting in CSV. The teacher and a submission to another classroom must not show up.
+    @BeforeEach
+    void setUp() {
+        User teacher = user("Teacher", UserRole.TEACHER);
+        classroom = classroom(teacher);
+        member(teacher, ClassroomRole.TEACHER);
+        overdue = assignment(classroom, teacher, "Essay", LocalDateTime.now().minusDays(1));
+        ungraded = assignment(classroom, teacher, "Lab, part 1", null);
+        unsubmitted = assignment(classroom, teacher, "Quiz", LocalDateTime.now().plusDays(7));
+
+        graded = member(user("Ana", UserRole.STUDENT), ClassroomRole.STUDENT);
+        absent = member(user("Ben", UserRole.STUDENT), ClassroomRole.STUDENT);
+        quoted = member(user("Cy \"The Quiet\", Jr", UserRole.STUDENT), ClassroomRole.STUDENT);
+        submit(overdue, graded, 7);
+        submit(ungraded, graded, null);
+        submit(ungraded, quoted, null);
+
+        Assignment elsewhere = assignment(classroom(teacher), teacher, "Elsewhere", null);
+        submit(elsewhere, absent, 10);
+    }
+
+    @Test
+    void csvHasThreeColumnsPerAssignmentAndARowPerStudent() throws IOException {
+        List<String> lines = export(GradebookExportService.Format.CSV).lines().toList();
+
+        Assertions.assertEquals(4, lines.size(), lines.toString());
+        Assertions.assertEquals("student_id,student_name,student_email"
+                + ",Essay [" + overdue.getId() + "] marks,Essay [" + overdue.getId() + "] submitted_at"
+                + ",Essay [" + overdue.getId() + "] late"
+                + ",\"Lab, part 1 [" + ungraded.getId() + "] marks\",\"Lab, part 1 [" + ungraded.getId() + "] submitted_at\""
+                + ",\"Lab, part 1 [" + ungraded.getId() + "] late\""
+                + ",Quiz [" + unsubmitted.getId() + "] marks,Quiz [" + unsubmitted.getId() + "] submitted_at"
+                + ",Quiz [" + unsubmitted.getId() + "] late", lines.get(0));
+
+        String[] ana = lines.get(1).split(",", -1);
+        Assertions.assertEquals(List.of(graded.getId().toString(), "Ana", graded.getEmail()), List.of(ana).subList(0, 3));
+        assertCell(ana, 3, "7", true, "true");
+        assertCell(ana, 6, "", true, "false");
+        assertCell(ana, 9, "", false, "");
+
+        // No submission at all: every cell is empty, including "late".
+        Assertions.assertEquals(absent.getId() + ",Ben," + absent.getEmail() + ",,,,,,,,,", lines.get(2));
+
+        String prefix = quoted.getId() + ",\"Cy \"\"The Quiet\"\", Jr\"," + quoted.getEmail() + ",";
+        Assertions.assertTrue(lines.get(3).startsWith(prefix), lines.get(3));
+        String[] cy = lines.get(3).substring(prefix.length() - 1).split(",", -1);
+        assertCell(cy, 1, "", false, "");
+        assertCell(cy, 4, "", true, "false");
+        assertCell(cy, 7, "", false, "");
+    }
+
+    @Test
+    void ndjsonHasAGradeForEveryAssignmentOnEveryLine() throws IOException {
+        List<String> lines = export(GradebookExportService.Format.NDJSON).lines().toList();
+
+        Assertions.assertEquals(3, lines.size(), lines.toString());
+        List<Long> assignments = List.of(overdue.getId(), ungraded.getId(), unsubmitted.getId());
+        for (String line : lines) {
+            List<Number> ids = JsonPath.read(line, "$.grades[*].assignmentId");
+            Assertions.assertEquals(assignments, ids.stream().map(Number::longValue).toList());
+        }
+
+        String ana = lines.get(0);
+        Assertions.assertEquals(graded.getId().intValue(), (int) JsonPath.read(ana, "$.studentId"));
+        Assertions.assertEquals("Ana", JsonPath.read(ana, "$.studentName"));
+        Assertions.assertEquals(List.of(true, true, false), JsonPath.read(ana, "$.grades[*].submitted"));
+        Assertions.assertEquals(7, (int) JsonPath.read(ana, "$.grades[0].marks"));
+        Assertions.assertTrue((boolean) JsonPath.read(ana, "$.grades[0].late"));
+        Assertions.assertNotNull(JsonPath.read(ana, "$.grades[1].submittedAt"));
+        Assertions.assertFalse((boolean) JsonPath.read(ana, "$.grades[1].late"));
+        // Present but null, so every line has the same shape.
+        Assertions.assertEquals(Arrays.asList(7, null, null), JsonPath.read(ana, "$.grades[*].marks"));
+        Assertions.assertNull(JsonPath.read(ana, "$.grades[2].submittedAt"));
+
+        String ben = lines.get(1);
+        Assertions.assertEquals("Ben", JsonPath.read(ben, "$.studentName"));
+        Assertions.assertEquals(List.of(false, false, false), JsonPath.read(ben, "$.grades[*].submitted"));
+        Assertions.assertEquals(List.of(false, false, false), JsonPath.read(ben, "$.grades[*].late"));
+        Assertions.assertEquals(Arrays.asList(null, null, null), JsonPath.read(ben, "$.grades[*].marks"));
+
+        String cy = lines.get(2);
+        Assertions.assertEquals("Cy \"The Quiet\", Jr", JsonPath.read(cy, "$.studentName"));
+        Assertions.assertEquals(List.of(false, true, false), JsonPath.read(cy, "$.grades[*].submitted"));
+    }
+
+    @Test
+    void classroomsWithoutAssignmentsStillListTheirStudents() throws IOException {
+        User teacher = user("Teacher", UserRole.TEACHER);
+        classroom = classroom(teacher);
+        User student = member(user("Dee", UserRole.STUDENT), ClassroomRole.STUDENT);
+
+        Assertions.assertEquals("student_id,student_name,student_email\r\n"
+                + student.getId() + ",Dee," + student.getEmail() + "\r\n", export(GradebookExportService.Format.CSV));
+        String line = export(GradebookExportService.Format.NDJSON);
+        Assertions.assertEquals(List.of(), JsonPath.read(line, "$.grades"));
+    }
+
+    @Test
+    void unknownClassroomsAndFormatsAreRejected() {
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> exportService.getColumns(-1L));
+        Assertions.assertThrows(BadRequestException.class, () -> GradebookExportService.Format.parse("xlsx"));
+        Assertions.assertEquals(GradebookExportService.Format.CSV, GradebookExportService.Format.parse(null));
+        Assertions.assertEquals(GradebookExportService.Format.NDJSON, GradebookExportService.Format.parse(" ndjson "));
+    }
+
+    private String export(GradebookExportService.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(classroom.getId(), exportService.getColumns(classroom.getId()), format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // Checks the marks, submitted_at and late cells of one assignment starting at the given field.
+    private static void assertCell(String[] fields, int start, String marks, boolean submitted, String late) {
+        Assertions.assertEquals(marks, fields[start], Arrays.toString(fields));
+        Assertions.assertEquals(submitted, !fields[start + 1].isEmpty(), Arrays.toString(fields));
+        Assertions.assertEquals(late, fields[start + 2], Arrays.toString(fields));
+    }
+
+    private void submit(Assignment assignment, User student, Integer marks) {
+        submissionRepository.save(AssignmentSubmission.builder()
+                .assignment(assignment)
+                .student(student)
+                .contentUrl("https://docs.example.com/" + UUID.randomUUID())
+                .marks(marks)
+                .build());
+    }
+
+    private Assignment assignment(Classroom classroom, User teacher, String title, LocalDateTime dueDate) {
+        return assignmentRepository.save(Assignment.builder()
+                .classroom(classroom)
+                .title(title)
+                .dueDate(dueDate)
+                .maxMarks(10)
+                .closed(false)
+                .createdBy(teacher)
+                .build());
+    }
+
+    private User member(User user, ClassroomRole role) {
+        classroomMemberRepository.save(ClassroomMember.builder()
+                .classroom(classroom)
+                .user(user)
+                .roleInClass(role)
+                .build());
+        return user;
+    }
+
+    private Classroom classroom(User teacher) {
+        return classroomRepository.save(Classroom.builder()
+                .name("Literature")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+    }
+
+    private User user(String name, UserRole role) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .build());
+    }
+}
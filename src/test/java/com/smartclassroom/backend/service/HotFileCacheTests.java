@@ -0,0 +1,182 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.metrics.HotFileCacheStatsDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission, invalidation and the two byte budgets of the hot file cache, over real files. Tests that
+ * check outstanding bytes keep the buffers they were handed, so none of them can be collected midway.
+ */
+public class HotFileCacheTests {
+
+    @TempDir
+    Path dir;
+
+    private long modified = System.currentTimeMillis();
+
+    @Test
+    void aOneOffLargeFileDoesNotEvictAHotOne() throws IOException {
+        HotFileCache cache = cache(1_000, 1_000, 4_000);
+        FileStorageService.StoredFile hot = file("hot.pdf", 600, "v1");
+        FileStorageService.StoredFile recording = file("recording.mp4", 900, "v1");
+        for (int i = 0; i < 5; i++) {
+            cache.get(hot);
+        }
+
+        Assertions.assertNull(cache.get(recording), "a single request is never admitted");
+        Assertions.assertNull(cache.get(recording), "less popular than the entry it would evict");
+
+        assertContent(hot, cache.get(hot));
+        HotFileCacheStatsDTO stats = cache.getStats();
+        Assertions.assertEquals(1, stats.getEntries());
+        Assertions.assertEquals(1L, stats.getRejections());
+        Assertions.assertEquals(0L, stats.getEvictions());
+    }
+
+    @Test
+    void aFileMorePopularThanTheEldestEntriesEvictsThem() throws IOException {
+        HotFileCache cache = cache(1_000, 1_000, 4_000);
+        FileStorageService.StoredFile first = file("first.pdf", 400, "v1");
+        FileStorageService.StoredFile second = file("second.pdf", 400, "v1");
+        FileStorageService.StoredFile popular = file("popular.pdf", 400, "v1");
+        request(cache, first, 2);
+        request(cache, second, 3);
+
+        List<ByteBuffer> reads = request(cache, popular, 4);
+
+        assertContent(popular, reads.get(reads.size() - 1));
+        HotFileCacheStatsDTO stats = cache.getStats();
+        Assertions.assertEquals(2, stats.getEntries());
+        Assertions.assertEquals(1L, stats.getEvictions());
+        Assertions.assertTrue(stats.getResidentBytes() <= stats.getMaxBytes(), stats.toString());
+        Assertions.assertEquals(800L, stats.getResidentBytes());
+    }
+
+    @Test
+    void aNewEtagReplacesTheCachedContent() throws IOException {
+        HotFileCache cache = cache(1_000, 1_000, 4_000);
+        FileStorageService.StoredFile original = file("notes.txt", 300, "v1");
+        request(cache, original, 3);
+        Assertions.assertEquals(1, cache.getStats().getEntries());
+
+        FileStorageService.StoredFile replaced = file("notes.txt", 300, "v2");
+        assertContent(replaced, cache.get(replaced));
+        assertContent(replaced, cache.get(replaced));
+
+        // A download that described the file before it was replaced must not cache the new bytes under
+        // the old etag.
+        Assertions.assertNull(cache.get(original));
+        assertContent(replaced, cache.get(replaced));
+        HotFileCacheStatsDTO stats = cache.getStats();
+        Assertions.assertEquals(300L, stats.getResidentBytes());
+
+        cache.invalidate("notes.txt");
+        Assertions.assertEquals(0, cache.getStats().getEntries());
+        Assertions.assertEquals(0L, cache.getStats().getResidentBytes());
+    }
+
+    @Test
+    void buffersStillBeingReadCountAgainstTheOutstandingBudget() throws IOException {
+        HotFileCache cache = cache(1_000, 1_000, 1_000);
+        FileStorageService.StoredFile first = file("first.pdf", 600, "v1");
+        FileStorageService.StoredFile second = file("second.pdf", 600, "v1");
+        List<ByteBuffer> downloads = request(cache, first, 2);
+
+        cache.invalidate("first.pdf");
+        List<ByteBuffer> refused = request(cache, second, 3);
+
+        // The download of the evicted file still holds its buffer, so the second file is read from disk.
+        Assertions.assertNotNull(downloads.get(1));
+        Assertions.assertTrue(refused.stream().allMatch(buffer -> buffer == null));
+        HotFileCacheStatsDTO stats = cache.getStats();
+        Assertions.assertEquals(0, stats.getEntries());
+        Assertions.assertEquals(600L, stats.getOutstandingBytes());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        HotFileCache cache = cache(64 << 20, 64 << 20, 512 << 20);
+        FileStorageService.StoredFile lecture = file("lecture.pdf", 16 << 20, "v1");
+        Assertions.assertNull(cache.get(lecture));
+
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<ByteBuffer>> reads = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                reads.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get(lecture);
+                }));
+            }
+            start.countDown();
+
+            List<ByteBuffer> buffers = new ArrayList<>();
+            for (Future<ByteBuffer> read : reads) {
+                buffers.add(read.get(30, TimeUnit.SECONDS));
+            }
+            for (ByteBuffer buffer : buffers) {
+                assertContent(lecture, buffer);
+            }
+            // Every caller holds its view, so a second load would still count here.
+            HotFileCacheStatsDTO stats = cache.getStats();
+            Assertions.assertEquals(16L << 20, stats.getOutstandingBytes());
+            Assertions.assertEquals(1L, stats.getAdmissions());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static HotFileCache cache(long maxBytes, long maxEntryBytes, long maxOutstandingBytes) {
+        return new HotFileCache(DataSize.ofBytes(maxBytes), DataSize.ofBytes(maxEntryBytes),
+                DataSize.ofBytes(maxOutstandingBytes));
+    }
+
+    private static List<ByteBuffer> request(HotFileCache cache, FileStorageService.StoredFile file, int times) {
+        List<ByteBuffer> reads = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            reads.add(cache.get(file));
+        }
+        return reads;
+    }
+
+    // The etag seeds the content, so two versions of a file differ.
+    private FileStorageService.StoredFile file(String filename, int size, String etag) throws IOException {
+        byte[] content = new byte[size];
+        new Random(filename.hashCode() * 31L + etag.hashCode()).nextBytes(content);
+        Path path = dir.resolve(filename);
+        Files.write(path, content);
+        // A second apart, so every version of a file has its own modification time.
+        Instant lastModified = Instant.ofEpochMilli(modified += 1_000);
+        Files.setLastModifiedTime(path, FileTime.from(lastModified));
+        return new FileStorageService.StoredFile(filename, path, size, lastModified, "\"" + etag + "\"",
+                MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private static void assertContent(FileStorageService.StoredFile file, ByteBuffer buffer) throws IOException {
+        Assertions.assertNotNull(buffer, file.filename() + " should be served from the cache");
+        byte[] cached = new byte[buffer.remaining()];
+        buffer.duplicate().get(cached);
+        Assertions.assertArrayEquals(Files.readAllBytes(file.path()), cached);
+    }
+}
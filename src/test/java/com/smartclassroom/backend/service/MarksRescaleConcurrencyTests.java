@@ -0,0 +1,224 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.assignment.GradeSubmissionRequestDTO;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grades and rescales the same assignment from several threads at once and checks that no grade is
+ * lost or scaled twice, and that graders do not queue behind each other: H2 turns shared locks into
+ * exclusive ones, so a design that relied on them would serialize graders here.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:marks-rescale;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=marks-rescale"
+})
+public class MarksRescaleConcurrencyTests {
+
+    @Autowired
+    private AssignmentSubmissionService submissionService;
+
+    @Autowired
+    private MarksRescaleService marksRescaleService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User teacher;
+    private Classroom classroom;
+
+    @BeforeEach
+    void setUp() {
+        teacher = user(UserRole.TEACHER);
+        classroom = classroomRepository.save(Classroom.builder()
+                .name("Physics")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+    }
+
+    @Test
+    void gradesWrittenDuringARescaleAreNeitherLostNorScaledTwice() throws Exception {
+        Assignment assignment = assignment(10);
+        List<AssignmentSubmission> graded = submissions(assignment, 40, 4);
+        List<AssignmentSubmission> untouched = submissions(assignment, 20, 3);
+
+        ExecutorService graders = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            CompletableFuture<Long> rescale = CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    // Lets the first graders in before the rescale, and the rest after.
+                    Thread.sleep(20);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return marksRescaleService.rescaleAssignment(assignment.getId(), 20);
+            });
+            List<Future<?>> grades = new ArrayList<>();
+            for (AssignmentSubmission submission : graded) {
+                grades.add(graders.submit(() -> {
+                    start.await();
+                    return submissionService.gradeSubmission(submission.getId(), grade(10));
+                }));
+            }
+            start.countDown();
+            for (Future<?> grade : grades) {
+                grade.get(30, TimeUnit.SECONDS);
+            }
+            rescale.get(30, TimeUnit.SECONDS);
+        } finally {
+            graders.shutdownNow();
+        }
+
+        Assertions.assertEquals(20, assignmentRepository.findScaleById(assignment.getId()).orElseThrow().getMaxMarks());
+        for (AssignmentSubmission submission : graded) {
+            Integer marks = marks(submission);
+            // 20 if graded before the rescale reached the row, 10 if graded after it; 8 would be the
+            // old mark rescaled over a lost grade, 40 a grade scaled twice.
+            Assertions.assertTrue(marks == 20 || marks == 10, "submission " + submission.getId() + ": " + marks);
+        }
+        for (AssignmentSubmission submission : untouched) {
+            Assertions.assertEquals(6, marks(submission));
+        }
+    }
+
+    @Test
+    void gradersOfOneAssignmentDoNotWaitForEachOther() throws Exception {
+        Assignment assignment = assignment(10);
+        List<AssignmentSubmission> submissions = submissions(assignment, 2, 0);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> slowGrader = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    submissionRepository.findWithStudentByIdForUpdate(submissions.get(0).getId()).orElseThrow();
+                    locked.countDown();
+                    try {
+                        release.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        try {
+            Assertions.assertTrue(locked.await(10, TimeUnit.SECONDS));
+            CompletableFuture<AssignmentSubmission> otherGrader = CompletableFuture.supplyAsync(() ->
+                    submissionService.gradeSubmission(submissions.get(1).getId(), grade(7)));
+
+            Assertions.assertEquals(7, otherGrader.get(5, TimeUnit.SECONDS).getMarks());
+        } finally {
+            release.countDown();
+            slowGrader.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void marksOutsideTheOldScaleAreClampedToTheNewOne() {
+        Assignment assignment = assignment(10);
+        AssignmentSubmission over = submissions(assignment, 1, 15).get(0);
+        AssignmentSubmission negative = submissions(assignment, 1, -2).get(0);
+        AssignmentSubmission inRange = submissions(assignment, 1, 7).get(0);
+
+        marksRescaleService.rescaleAssignment(assignment.getId(), 5);
+
+        Assertions.assertEquals(5, marks(over));
+        Assertions.assertEquals(0, marks(negative));
+        Assertions.assertEquals(4, marks(inRange));
+    }
+
+    @Test
+    void gradesAboveTheMaximumAreRejected() {
+        Assignment assignment = assignment(10);
+        AssignmentSubmission submission = submissions(assignment, 1, 0).get(0);
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> submissionService.gradeSubmission(submission.getId(), grade(11)));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> submissionService.gradeSubmission(submission.getId(), grade(-1)));
+        Assertions.assertEquals(10, submissionService.gradeSubmission(submission.getId(), grade(10)).getMarks());
+    }
+
+    private Integer marks(AssignmentSubmission submission) {
+        return submissionRepository.findById(submission.getId()).orElseThrow().getMarks();
+    }
+
+    private Assignment assignment(int maxMarks) {
+        return assignmentRepository.save(Assignment.builder()
+                .classroom(classroom)
+                .title("Lab")
+                .maxMarks(maxMarks)
+                .closed(false)
+                .createdBy(teacher)
+                .build());
+    }
+
+    private List<AssignmentSubmission> submissions(Assignment assignment, int count, Integer marks) {
+        List<AssignmentSubmission> submissions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            submissions.add(AssignmentSubmission.builder()
+                    .assignment(assignment)
+                    .student(user(UserRole.STUDENT))
+                    .marks(marks)
+                    .build());
+        }
+        return submissionRepository.saveAll(submissions);
+    }
+
+    private static GradeSubmissionRequestDTO grade(int marks) {
+        GradeSubmissionRequestDTO request = new GradeSubmissionRequestDTO();
+        request.setMarks(marks);
+        request.setFeedback("Checked");
+        return request;
+    }
+
+    private User user(UserRole role) {
+        return userRepository.save(User.builder()
+                .name(role + " " + UUID.randomUUID())
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .build());
+    }
+}
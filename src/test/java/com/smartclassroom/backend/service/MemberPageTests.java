@@ -0,0 +1,136 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.classroom.MemberPageDTO;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.ClassroomMember;
+import com.smartclassroom.backend.model.ClassroomRole;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.ClassroomMemberRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import com.smartclassroom.backend.repository.projection.MemberSummaryView;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Walks a classroom's member list page by page, in join order and by name, and checks that every
+ * member is seen exactly once and in order.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:member-page;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=member-page"
+})
+public class MemberPageTests {
+
+    // Names tie across page boundaries at every page size below, and two are empty.
+    private static final List<String> NAMES = List.of(
+            "Ana", "", "Zoe", "Ana", "Ben", "Ana", "", "Ben", "Cy", "Ana", "Zoe");
+
+    @Autowired
+    private ClassroomService classroomService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private ClassroomMemberRepository classroomMemberRepository;
+
+    private Classroom classroom;
+    private final List<ClassroomMember> members = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User teacher = user("Teacher", UserRole.TEACHER);
+        classroom = classroomRepository.save(Classroom.builder()
+                .name("History")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+        for (String name : NAMES) {
+            members.add(classroomMemberRepository.save(ClassroomMember.builder()
+                    .classroom(classroom)
+                    .user(user(name, UserRole.STUDENT))
+                    .roleInClass(ClassroomRole.STUDENT)
+                    .build()));
+        }
+    }
+
+    @Test
+    void pagesInJoinOrderSeeEveryMemberOnce() {
+        List<Long> expected = members.stream().map(ClassroomMember::getId).toList();
+        for (int size : new int[]{1, 2, 3, 4, NAMES.size(), NAMES.size() + 1}) {
+            Assertions.assertEquals(expected, walk(size, false), "page size " + size);
+        }
+    }
+
+    @Test
+    void pagesByNameSeeEveryMemberOnceIncludingEmptyNames() {
+        List<Long> expected = members.stream()
+                .sorted(Comparator.comparing((ClassroomMember member) -> member.getUser().getName())
+                        .thenComparing(ClassroomMember::getId))
+                .map(ClassroomMember::getId)
+                .toList();
+        for (int size : new int[]{1, 2, 3, 4, NAMES.size(), NAMES.size() + 1}) {
+            Assertions.assertEquals(expected, walk(size, true), "page size " + size);
+        }
+        // The members with empty names come first, on the first page.
+        List<MemberSummaryView> first = classroomService.getMemberPage(classroom.getId(), null, 2, true).getMembers();
+        Assertions.assertEquals(List.of("", ""), first.stream().map(MemberSummaryView::getName).toList());
+    }
+
+    @Test
+    void badCursorsAndUnknownClassroomsAreRejected() {
+        String joinedCursor = classroomService.getMemberPage(classroom.getId(), null, 2, false).getNextCursor();
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> classroomService.getMemberPage(classroom.getId(), joinedCursor, 2, true));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> classroomService.getMemberPage(classroom.getId(), "not base64!", 2, false));
+        Assertions.assertThrows(ResourceNotFoundException.class,
+                () -> classroomService.getMemberPage(-1L, null, 2, true));
+    }
+
+    // Follows nextCursor to the end and returns the member ids in the order the pages gave them.
+    private List<Long> walk(int size, boolean byName) {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        for (int pages = 0; pages <= NAMES.size() + 1; pages++) {
+            MemberPageDTO page = classroomService.getMemberPage(classroom.getId(), cursor, size, byName);
+            Assertions.assertTrue(page.getMembers().size() <= size);
+            page.getMembers().forEach(member -> seen.add(member.getId()));
+            cursor = page.getNextCursor();
+            if (cursor == null) {
+                return seen;
+            }
+        }
+        Assertions.fail("paging did not end");
+        return seen;
+    }
+
+    private User user(String name, UserRole role) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .build());
+    }
+}
@@ -0,0 +1,129 @@
+package com.smartclassroom.backend.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Parses multipart bodies delivered in reads of every size, so that boundaries, part headers and
+ * near-boundaries inside the content all end up split across reads somewhere.
+ */
+public class MultipartStreamReaderTests {
+
+    private static final String BOUNDARY = "----boundary7MA4YWxkTrZu0gW";
+
+    @Test
+    void partsAreReadWhateverTheReadSizes() throws IOException {
+        // Content that starts like the delimiter but is not one.
+        String notes = "line one\r\n--" + BOUNDARY.substring(0, 10) + "not the boundary\r\n-";
+        byte[] body = body(
+                part("title", null, "Lab report".getBytes(StandardCharsets.UTF_8)),
+                part("file", "notes.txt", notes.getBytes(StandardCharsets.UTF_8)));
+
+        for (int chunk = 1; chunk <= BOUNDARY.length() + 8; chunk++) {
+            MultipartStreamReader reader = new MultipartStreamReader(chunked(body, chunk), BOUNDARY);
+
+            MultipartStreamReader.Part title = reader.next();
+            Assertions.assertEquals("title", title.name());
+            Assertions.assertNull(title.filename());
+            Assertions.assertEquals("Lab report", new String(title.body().readAllBytes(), StandardCharsets.UTF_8));
+
+            MultipartStreamReader.Part file = reader.next();
+            Assertions.assertEquals("file", file.name());
+            Assertions.assertEquals("notes.txt", file.filename());
+            Assertions.assertEquals(notes, new String(file.body().readAllBytes(), StandardCharsets.UTF_8),
+                    "chunk " + chunk);
+
+            Assertions.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void partsLargerThanTheBufferAreStreamed() throws IOException {
+        byte[] content = new byte[300 * 1024];
+        new Random(42).nextBytes(content);
+        byte[] body = body(part("file", "data.bin", content));
+
+        MultipartStreamReader reader = new MultipartStreamReader(chunked(body, 4093), BOUNDARY);
+        MultipartStreamReader.Part file = reader.next();
+
+        Assertions.assertArrayEquals(content, file.body().readAllBytes());
+        Assertions.assertNull(reader.next());
+    }
+
+    @Test
+    void unreadPartsAndThePreambleAreSkipped() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes("This is the preamble.\r\n".getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(body(
+                part("ignored", null, new byte[100_000]),
+                part("file", "a.txt", "kept".getBytes(StandardCharsets.UTF_8))));
+
+        MultipartStreamReader reader = new MultipartStreamReader(chunked(body.toByteArray(), 1000), BOUNDARY);
+        Assertions.assertEquals("ignored", reader.next().name());
+        MultipartStreamReader.Part file = reader.next();
+
+        Assertions.assertEquals("kept", new String(file.body().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void bodiesEndingBeforeTheClosingBoundaryFail() throws IOException {
+        byte[] body = body(part("file", "a.txt", "complete".getBytes(StandardCharsets.UTF_8)));
+        byte[] truncated = Arrays.copyOf(body, body.length - BOUNDARY.length());
+
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(truncated), BOUNDARY);
+        MultipartStreamReader.Part file = reader.next();
+
+        Assertions.assertThrows(IOException.class, () -> file.body().readAllBytes());
+    }
+
+    @Test
+    void quotedBoundariesAreUnquoted() {
+        MediaType contentType = MediaType.parseMediaType("multipart/form-data; boundary=\"" + BOUNDARY + "\"");
+        Assertions.assertEquals(BOUNDARY, MultipartStreamReader.boundaryOf(contentType));
+    }
+
+    static byte[] part(String name, String filename, byte[] content) {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        String disposition = "Content-Disposition: form-data; name=\"" + name + "\""
+                + (filename != null ? "; filename=\"" + filename + "\"" : "");
+        part.writeBytes(("--" + BOUNDARY + "\r\n" + disposition + "\r\n"
+                + (filename != null ? "Content-Type: application/octet-stream\r\n" : "")
+                + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        part.writeBytes(content);
+        part.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        return part.toByteArray();
+    }
+
+    static byte[] body(byte[]... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            body.writeBytes(part);
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    static String contentType() {
+        return "multipart/form-data; boundary=" + BOUNDARY;
+    }
+
+    // Hands out at most chunk bytes per read, as a socket might.
+    static InputStream chunked(byte[] body, int chunk) {
+        return new FilterInputStream(new ByteArrayInputStream(body)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, chunk));
+            }
+        };
+    }
+}
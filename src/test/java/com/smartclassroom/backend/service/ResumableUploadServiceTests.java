@@ -0,0 +1,201 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.upload.UploadSessionCreateRequestDTO;
+import com.smartclassroom.backend.dto.upload.UploadSessionDTO;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.FileOwnershipRepository;
+import com.smartclassroom.backend.repository.StorageUsageRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends chunks in the orders and shapes a flaky client produces and checks which ranges the session
+ * reports and what is finally stored.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ResumableUploadServiceTests {
+
+    private static final Long USER_ID = 1L;
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path uploadDir;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ClassroomRepository classroomRepository;
+
+    @Mock
+    private StorageUsageRepository storageUsageRepository;
+
+    @Mock
+    private FileOwnershipRepository fileOwnershipRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StorageQuotaService storageQuotaService;
+    private ResumableUploadService resumableUploadService;
+    private final AtomicReference<byte[]> stored = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(fileStorageService.getTempDirectory()).thenReturn(uploadDir.resolve("tmp"));
+        Mockito.lenient().when(userRepository.existsById(USER_ID)).thenReturn(true);
+        Mockito.lenient().when(fileStorageService.storeCompletedFile(Mockito.any(), Mockito.anyString())).thenAnswer(inv -> {
+            stored.set(Files.readAllBytes(inv.getArgument(0)));
+            return "stored-" + inv.getArgument(1);
+        });
+        storageQuotaService = new StorageQuotaService(fileOwnershipRepository, storageUsageRepository,
+                userRepository, classroomRepository, transactionManager,
+                DataSize.ofGigabytes(1), DataSize.ofGigabytes(1));
+        resumableUploadService = new ResumableUploadService(fileStorageService, storageQuotaService,
+                DataSize.ofMegabytes(1), Duration.ofHours(1));
+    }
+
+    @Test
+    void chunksArrivingOutOfOrderAssembleTheFile() {
+        String uploadId = createSession();
+
+        write(uploadId, 15, 20);
+        write(uploadId, 5, 10);
+        UploadSessionDTO gaps = write(uploadId, 0, 5);
+        Assertions.assertEquals(List.of("0-9", "15-19"), gaps.getReceivedRanges());
+        Assertions.assertFalse(gaps.getComplete());
+
+        UploadSessionDTO done = write(uploadId, 10, 15);
+        Assertions.assertEquals(List.of("0-19"), done.getReceivedRanges());
+        Assertions.assertTrue(done.getComplete());
+
+        Assertions.assertEquals("stored-notes.txt", resumableUploadService.complete(uploadId, sha256(CONTENT)));
+        Assertions.assertArrayEquals(CONTENT, stored.get());
+        Assertions.assertEquals((long) CONTENT.length, storageQuotaService.getUserUsage(USER_ID).getUsedBytes());
+    }
+
+    @Test
+    void overlappingChunksAreCountedOnce() {
+        String uploadId = createSession();
+
+        write(uploadId, 0, 12);
+        write(uploadId, 8, 20);
+        UploadSessionDTO resent = write(uploadId, 4, 16);
+
+        Assertions.assertEquals(List.of("0-19"), resent.getReceivedRanges());
+        Assertions.assertEquals((long) CONTENT.length, resent.getReceivedBytes());
+        resumableUploadService.complete(uploadId, sha256(CONTENT));
+        Assertions.assertArrayEquals(CONTENT, stored.get());
+    }
+
+    @Test
+    void completingWithAMissingRangeFailsAndKeepsTheSession() {
+        String uploadId = createSession();
+        write(uploadId, 0, 8);
+        write(uploadId, 12, 20);
+
+        BadRequestException missing = Assertions.assertThrows(BadRequestException.class,
+                () -> resumableUploadService.complete(uploadId, sha256(CONTENT)));
+        Assertions.assertTrue(missing.getMessage().contains("missing 4 bytes"), missing.getMessage());
+
+        write(uploadId, 8, 12);
+        Assertions.assertEquals("stored-notes.txt", resumableUploadService.complete(uploadId, sha256(CONTENT)));
+    }
+
+    @Test
+    void checksumMismatchesAreNotStored() {
+        String uploadId = createSession();
+        byte[] corrupted = CONTENT.clone();
+        corrupted[3] = 'X';
+        resumableUploadService.writeChunk(uploadId, 0, new ByteArrayInputStream(corrupted));
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> resumableUploadService.complete(uploadId, sha256(CONTENT)));
+
+        Mockito.verify(fileStorageService, Mockito.never()).storeCompletedFile(Mockito.any(), Mockito.anyString());
+        Assertions.assertEquals(0L, storageQuotaService.getUserUsage(USER_ID).getUsedBytes());
+    }
+
+    @Test
+    void interruptedChunksKeepWhatArrived() {
+        String uploadId = createSession();
+        InputStream dropped = new InputStream() {
+            private int next;
+
+            @Override
+            public int read() throws IOException {
+                if (next == 7) {
+                    throw new IOException("Connection reset");
+                }
+                return CONTENT[next++];
+            }
+        };
+
+        UploadSessionDTO session = resumableUploadService.writeChunk(uploadId, 0, dropped);
+
+        Assertions.assertEquals(List.of("0-6"), session.getReceivedRanges());
+    }
+
+    @Test
+    void writeFailuresAreServerErrors() throws IOException {
+        String uploadId = createSession();
+        try (var parts = Files.list(uploadDir.resolve("tmp").resolve("resumable"))) {
+            for (Path part : parts.toList()) {
+                Files.delete(part);
+            }
+        }
+
+        Assertions.assertThrows(RuntimeException.class, () -> write(uploadId, 0, 5),
+                "a failed write must not be reported as a partial chunk");
+        Assertions.assertThrows(BadRequestException.class,
+                () -> resumableUploadService.complete(uploadId, sha256(CONTENT)));
+    }
+
+    private String createSession() {
+        UploadSessionCreateRequestDTO request = new UploadSessionCreateRequestDTO();
+        request.setFilename("notes.txt");
+        request.setSize((long) CONTENT.length);
+        request.setUserId(USER_ID);
+        return resumableUploadService.createSession(request).getUploadId();
+    }
+
+    private UploadSessionDTO write(String uploadId, int from, int to) {
+        return resumableUploadService.writeChunk(uploadId, from,
+                new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, from, to)));
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.classroom.RosterImportReportDTO;
+import com.smartclassroom.backend.dto.classroom.RosterImportRowDTO;
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.ClassroomMember;
+import com.smartclassroom.backend.model.ClassroomRole;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.ClassroomMemberRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.StatementCounter;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Imports rosters into classrooms of an in-memory database: the status reported for each row, and
+ * the statements an import costs as the roster grows.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:roster-import;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=roster-import",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.smartclassroom.backend.repository.StatementCounter",
+        // Keeps the class code index's background refresh out of the counted statements.
+        "classroom.code-index.refresh-interval=PT1H"
+})
+public class RosterImportServiceTests {
+
+    private static final int LARGE_ROSTER = 5_000;
+
+    @Autowired
+    private RosterImportService rosterImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private ClassroomMemberRepository classroomMemberRepository;
+
+    @Test
+    void everyRowIsReportedWithItsStatus() {
+        String domain = domain();
+        User teacher = user("teacher@" + domain, UserRole.TEACHER);
+        Classroom classroom = classroom(teacher);
+        User member = user("member@" + domain, UserRole.STUDENT);
+        User student = user("student@" + domain, UserRole.STUDENT);
+        User assistant = user("assistant@" + domain, UserRole.TEACHER);
+        classroomMemberRepository.save(ClassroomMember.builder()
+                .classroom(classroom)
+                .user(member)
+                .roleInClass(ClassroomRole.STUDENT)
+                .build());
+
+        String csv = "﻿name;email\r\n"
+                + "Sam;student@" + domain + "\r\n"
+                + "Sam again;\"STUDENT@" + domain.toUpperCase(Locale.ROOT) + "\"\r\n"
+                + "No address;not-an-email\r\n"
+                + "\r\n"
+                + "Ghost;ghost@" + domain + "\r\n"
+                + "Mia;member@" + domain + "\r\n"
+                + "Ada;assistant@" + domain + "\r\n";
+
+        RosterImportReportDTO report = rosterImportService.importCsv(classroom.getId(), teacher.getId(), csv);
+
+        Assertions.assertEquals(2, report.getAdded());
+        Assertions.assertEquals(4, report.getSkipped());
+        List<RosterImportRowDTO> rows = report.getRows();
+        assertRow(rows.get(0), 2, RosterImportRowDTO.Status.ADDED, student);
+        assertRow(rows.get(1), 3, RosterImportRowDTO.Status.DUPLICATE, null);
+        assertRow(rows.get(2), 4, RosterImportRowDTO.Status.INVALID, null);
+        assertRow(rows.get(3), 6, RosterImportRowDTO.Status.NOT_FOUND, null);
+        assertRow(rows.get(4), 7, RosterImportRowDTO.Status.ALREADY_MEMBER, member);
+        assertRow(rows.get(5), 8, RosterImportRowDTO.Status.ADDED, assistant);
+
+        Assertions.assertEquals(ClassroomRole.STUDENT, role(classroom, student));
+        Assertions.assertEquals(ClassroomRole.TEACHER, role(classroom, assistant));
+    }
+
+    @Test
+    void onlyTheClassroomTeacherCanImport() {
+        String domain = domain();
+        User teacher = user("teacher@" + domain, UserRole.TEACHER);
+        User other = user("other@" + domain, UserRole.TEACHER);
+        Classroom classroom = classroom(teacher);
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> rosterImportService.importEmails(classroom.getId(), other.getId(), List.of("other@" + domain)));
+    }
+
+    @Test
+    void queriesDoNotGrowWithTheRoster() {
+        RosterImportReportDTO warmUp = importStudents(50);
+        Assertions.assertEquals(50, warmUp.getAdded());
+        List<String> small = StatementCounter.statements();
+
+        RosterImportReportDTO large = importStudents(LARGE_ROSTER);
+        List<String> statements = StatementCounter.statements();
+
+        Assertions.assertEquals(LARGE_ROSTER, large.getAdded());
+        // The classroom (unless cached), the users and the existing members, then one insert prepared
+        // for all the batches. Only the length of the IN lists differs.
+        Assertions.assertEquals(small.size(), statements.size(), statements.toString());
+        Assertions.assertTrue(selects(statements) <= 3, statements.toString());
+        Assertions.assertEquals(1, statements.stream().filter(sql -> sql.startsWith("insert")).count(), statements.toString());
+        System.out.printf("roster import of %,d students: %,d ms, %,d statements%n",
+                LARGE_ROSTER, large.getElapsedMillis(), statements.size());
+    }
+
+    // Imports a roster of new students into a new classroom and leaves its statements in the counter.
+    private RosterImportReportDTO importStudents(int count) {
+        String domain = domain();
+        User teacher = user("teacher@" + domain, UserRole.TEACHER);
+        Classroom classroom = classroom(teacher);
+        List<User> students = new ArrayList<>(count);
+        List<String> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String email = "student" + i + "@" + domain;
+            students.add(User.builder()
+                    .name("Student " + i)
+                    .email(email)
+                    .password("secret")
+                    .role(UserRole.STUDENT)
+                    .build());
+            emails.add(email);
+        }
+        userRepository.saveAll(students);
+
+        StatementCounter.reset();
+        return rosterImportService.importEmails(classroom.getId(), teacher.getId(), emails);
+    }
+
+    private static long selects(List<String> statements) {
+        return statements.stream().filter(sql -> sql.toLowerCase(Locale.ROOT).startsWith("select")).count();
+    }
+
+    private static void assertRow(RosterImportRowDTO row, int line, RosterImportRowDTO.Status status, User user) {
+        Assertions.assertEquals(line, row.getRow(), row.toString());
+        Assertions.assertEquals(status, row.getStatus(), row.toString());
+        Assertions.assertEquals(user != null ? user.getId() : null, row.getUserId(), row.toString());
+    }
+
+    private ClassroomRole role(Classroom classroom, User user) {
+        return classroomMemberRepository.findByClassroomIdAndUserId(classroom.getId(), user.getId())
+                .orElseThrow()
+                .getRoleInClass();
+    }
+
+    private static String domain() {
+        return UUID.randomUUID().toString().substring(0, 8) + ".example.com";
+    }
+
+    private Classroom classroom(User teacher) {
+        return classroomRepository.save(Classroom.builder()
+                .name("Chemistry")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+    }
+
+    private User user(String email, UserRole role) {
+        return userRepository.save(User.builder()
+                .name(email)
+                .email(email)
+                .password("secret")
+                .role(role)
+                .build());
+    }
+}
@@ -0,0 +1,122 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.storage.ShardMigrationReportDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Moves uploads written before sharding out of the flat upload directory and checks that lookups find
+ * them on either side of the move, including downloads that were already under way.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard-migration;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=shard-migration"
+})
+public class ShardMigrationTests {
+
+    private static Path uploadDir;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) throws IOException {
+        uploadDir = Files.createTempDirectory("shard-migration-tests");
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void emptyUploadDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(uploadDir)) {
+            for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void flatFilesAreFoundBeforeAndAfterTheMigration() throws IOException {
+        String filename = flat("syllabus.txt", "Week 1: kinematics");
+        FileStorageService.StoredFile before = fileStorageService.describe(filename);
+        Assertions.assertEquals(uploadDir.resolve(filename), before.path());
+        Assertions.assertEquals(uploadDir.resolve(filename), fileStorageService.resolvePath(filename));
+
+        ShardMigrationReportDTO report = fileStorageService.migrateToShardedLayout(4);
+
+        Assertions.assertEquals(1L, report.getMovedFiles());
+        Assertions.assertEquals(0L, report.getFailedFiles());
+        Assertions.assertFalse(Files.exists(uploadDir.resolve(filename)));
+        // The cached description of the flat file must not outlive the move.
+        FileStorageService.StoredFile after = fileStorageService.describe(filename);
+        Assertions.assertNotEquals(before.path(), after.path());
+        Assertions.assertEquals(after.path(), fileStorageService.resolvePath(filename));
+        Assertions.assertEquals("Week 1: kinematics", read(after));
+    }
+
+    @Test
+    void downloadsUnderWayWhenAFileMovesAreCompleted() throws IOException {
+        String streaming = flat("lecture.txt", "0123456789".repeat(1_000));
+        String described = flat("notes.txt", "Described before the move");
+        FileStorageService.StoredFile stale = fileStorageService.describe(described);
+
+        try (InputStream in = fileStorageService.openStream(fileStorageService.describe(streaming))) {
+            byte[] head = in.readNBytes(4_000);
+
+            Assertions.assertEquals(2L, fileStorageService.migrateToShardedLayout(2).getMovedFiles());
+
+            String content = new String(head, StandardCharsets.UTF_8)
+                    + new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            Assertions.assertEquals("0123456789".repeat(1_000), content);
+        }
+        // Opened after the move from a description taken before it.
+        Assertions.assertEquals("Described before the move", read(stale));
+    }
+
+    @Test
+    void rerunningTheMigrationMovesNothing() throws IOException {
+        String flat = flat("essay.txt", "First draft");
+        String sharded = fileStorageService.storeStream(
+                new ByteArrayInputStream("Uploaded after sharding".getBytes(StandardCharsets.UTF_8)), "report.txt");
+        Path shardedPath = fileStorageService.resolvePath(sharded);
+
+        Assertions.assertEquals(1L, fileStorageService.migrateToShardedLayout(4).getMovedFiles());
+        ShardMigrationReportDTO rerun = fileStorageService.migrateToShardedLayout(4);
+
+        Assertions.assertEquals(0L, rerun.getMovedFiles());
+        Assertions.assertEquals(0L, rerun.getFailedFiles());
+        Assertions.assertEquals(shardedPath, fileStorageService.resolvePath(sharded));
+        Assertions.assertEquals("First draft", read(fileStorageService.describe(flat)));
+        Assertions.assertEquals("Uploaded after sharding", read(fileStorageService.describe(sharded)));
+    }
+
+    // Written the way uploads were stored before sharding.
+    private static String flat(String name, String content) throws IOException {
+        String filename = UUID.randomUUID() + "_" + name;
+        Files.writeString(uploadDir.resolve(filename), content);
+        return filename;
+    }
+
+    private String read(FileStorageService.StoredFile file) throws IOException {
+        try (InputStream in = fileStorageService.openStream(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.exception.BadRequestException;
+import com.smartclassroom.backend.exception.PayloadTooLargeException;
+import com.smartclassroom.backend.exception.TooManyRequestsException;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.FileOwnershipRepository;
+import com.smartclassroom.backend.repository.StorageUsageRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.smartclassroom.backend.service.MultipartStreamReaderTests.body;
+import static com.smartclassroom.backend.service.MultipartStreamReaderTests.chunked;
+import static com.smartclassroom.backend.service.MultipartStreamReaderTests.contentType;
+import static com.smartclassroom.backend.service.MultipartStreamReaderTests.part;
+
+/**
+ * Streams uploads through the service with the file store mocked out and real quota accounting, and
+ * checks after every outcome that nothing stays reserved: neither quota nor bytes in flight.
+ */
+@ExtendWith(MockitoExtension.class)
+public class StreamingUploadServiceTests {
+
+    private static final Long USER_ID = 1L;
+    private static final int MAX_FILE_SIZE = 64 * 1024;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ClassroomRepository classroomRepository;
+
+    @Mock
+    private StorageUsageRepository storageUsageRepository;
+
+    @Mock
+    private FileOwnershipRepository fileOwnershipRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StorageQuotaService storageQuotaService;
+    private StreamingUploadService streamingUploadService;
+    private final AtomicReference<byte[]> stored = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        storageQuotaService = new StorageQuotaService(fileOwnershipRepository, storageUsageRepository,
+                userRepository, classroomRepository, transactionManager,
+                DataSize.ofGigabytes(1), DataSize.ofGigabytes(1));
+        streamingUploadService = new StreamingUploadService(fileStorageService, storageQuotaService,
+                DataSize.ofBytes(MAX_FILE_SIZE), DataSize.ofMegabytes(1), DataSize.ofMegabytes(2));
+
+        Mockito.lenient().when(userRepository.existsById(USER_ID)).thenReturn(true);
+        // Reads the whole part like the real store does, so limits on the stream apply.
+        Mockito.lenient().when(fileStorageService.storeStream(Mockito.any(), Mockito.anyString())).thenAnswer(inv -> {
+            try (InputStream content = inv.getArgument(0)) {
+                stored.set(content.readAllBytes());
+            }
+            return "stored-" + inv.getArgument(1);
+        });
+    }
+
+    @Test
+    void theFilePartIsStoredAndCharged() {
+        byte[] content = "Lab report".getBytes(StandardCharsets.UTF_8);
+        byte[] body = body(
+                part("title", null, "Lab".getBytes(StandardCharsets.UTF_8)),
+                part("file", "lab.txt", content));
+
+        String filename = store(body.length, chunked(body, 5));
+
+        Assertions.assertEquals("stored-lab.txt", filename);
+        Assertions.assertArrayEquals(content, stored.get());
+        Assertions.assertEquals(content.length, storageQuotaService.getUserUsage(USER_ID).getUsedBytes());
+        Assertions.assertEquals(1L, streamingUploadService.getMetrics().getCompletedUploads());
+        assertNothingReserved();
+    }
+
+    @Test
+    void bodiesWithoutAFilePartAreRejected() {
+        byte[] body = body(part("title", null, "Lab".getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertThrows(BadRequestException.class, () -> store(body.length, new ByteArrayInputStream(body)));
+
+        Mockito.verifyNoInteractions(fileStorageService);
+        assertNothingReserved();
+    }
+
+    @Test
+    void declaredOversizeBodiesAreRejectedUnread() {
+        InputStream body = Mockito.mock(InputStream.class);
+
+        Assertions.assertThrows(PayloadTooLargeException.class, () -> store(10L * MAX_FILE_SIZE, body));
+
+        Mockito.verifyNoInteractions(body);
+        Assertions.assertEquals(1L, streamingUploadService.getMetrics().getRejectedUploads());
+        assertNothingReserved();
+    }
+
+    @Test
+    void oversizeFilesOfUnknownLengthAreCutOff() {
+        byte[] body = body(part("file", "big.bin", new byte[MAX_FILE_SIZE + 1]));
+
+        Assertions.assertThrows(PayloadTooLargeException.class, () -> store(-1, new ByteArrayInputStream(body)));
+
+        Assertions.assertEquals(1L, streamingUploadService.getMetrics().getFailedUploads());
+        assertNothingReserved();
+    }
+
+    @Test
+    void bodiesLongerThanTheirContentLengthAreRejected() {
+        byte[] body = body(part("file", "lab.txt", new byte[10_000]));
+
+        // Declares a tenth of the body, so only that much was reserved.
+        Assertions.assertThrows(BadRequestException.class,
+                () -> store(body.length / 10, new ByteArrayInputStream(body)));
+
+        Assertions.assertEquals(0L, storageQuotaService.getUserUsage(USER_ID).getUsedBytes());
+        assertNothingReserved();
+    }
+
+    @Test
+    void truncatedBodiesFailAndReleaseTheirReservations() {
+        byte[] body = body(part("file", "lab.txt", new byte[10_000]));
+        byte[] truncated = Arrays.copyOf(body, body.length / 2);
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> store(body.length, new ByteArrayInputStream(truncated)));
+
+        assertNothingReserved();
+    }
+
+    @Test
+    void failuresInTheStoreReleaseTheReservations() {
+        Mockito.doThrow(new RuntimeException("Could not store file"))
+                .when(fileStorageService).storeStream(Mockito.any(), Mockito.anyString());
+        byte[] body = body(part("file", "lab.txt", new byte[100]));
+
+        Assertions.assertThrows(RuntimeException.class, () -> store(body.length, new ByteArrayInputStream(body)));
+
+        assertNothingReserved();
+    }
+
+    @Test
+    void uploadsBeyondTheInFlightBudgetAreTurnedAway() {
+        // Unknown lengths reserve the maximum file size, which this per-user budget cannot hold.
+        StreamingUploadService tight = new StreamingUploadService(fileStorageService, storageQuotaService,
+                DataSize.ofBytes(MAX_FILE_SIZE), DataSize.ofBytes(MAX_FILE_SIZE - 1), DataSize.ofMegabytes(2));
+        byte[] body = body(part("file", "lab.txt", new byte[100]));
+
+        Assertions.assertThrows(TooManyRequestsException.class,
+                () -> tight.store(USER_ID, null, contentType(), -1, new ByteArrayInputStream(body)));
+
+        Assertions.assertEquals(0L, tight.getMetrics().getBytesInFlight());
+        Assertions.assertEquals(0L, storageQuotaService.getUserUsage(USER_ID).getReservedBytes());
+    }
+
+    private String store(long contentLength, InputStream body) {
+        return streamingUploadService.store(USER_ID, null, contentType(), contentLength, body);
+    }
+
+    private void assertNothingReserved() {
+        Assertions.assertEquals(0L, streamingUploadService.getMetrics().getBytesInFlight());
+        Assertions.assertEquals(0, streamingUploadService.getMetrics().getActiveUploads());
+        Assertions.assertEquals(0L, storageQuotaService.getUserUsage(USER_ID).getReservedBytes());
+    }
+}
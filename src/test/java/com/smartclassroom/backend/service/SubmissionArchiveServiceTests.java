@@ -0,0 +1,185 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.exception.ResourceNotFoundException;
+import com.smartclassroom.backend.model.Assignment;
+import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.model.Classroom;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.AssignmentRepository;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import com.smartclassroom.backend.repository.ClassroomRepository;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds the archive of an assignment's submissions from stored files and reads it back.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:submission-archive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=submission-archive"
+})
+public class SubmissionArchiveServiceTests {
+
+    // Compresses well, so a deflated entry is much smaller than a stored one.
+    private static final String CONTENT = "The mitochondria is the powerhouse of the cell. ".repeat(200);
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) throws IOException {
+        String uploadDir = Files.createTempDirectory("submission-archive-tests").toString();
+        registry.add("file.upload-dir", () -> uploadDir);
+    }
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private SubmissionArchiveService archiveService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClassroomRepository classroomRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Test
+    void entriesAreNamedByStudentAndCompressedFormatsAreStored() throws IOException {
+        Assignment assignment = assignment();
+        User first = submit(assignment, "Ana Lopez", url(store("essay.txt")));
+        User namesake = submit(assignment, "Ana Lopez", url(store("scan.pdf")));
+        User unsafe = submit(assignment, "Bo/Chen: \"B\"", url(store("photo.jpg")));
+
+        Map<String, ZipEntry> entries = archive(assignment);
+
+        String essay = "Ana Lopez_" + first.getId() + ".txt";
+        String scan = "Ana Lopez_" + namesake.getId() + ".pdf";
+        String photo = "Bo_Chen_ _B__" + unsafe.getId() + ".jpg";
+        Assertions.assertEquals(List.of(essay, scan, photo), List.copyOf(entries.keySet()));
+        for (ZipEntry entry : entries.values()) {
+            Assertions.assertEquals(CONTENT.length(), entry.getSize(), entry.getName());
+        }
+        Assertions.assertTrue(entries.get(essay).getCompressedSize() < CONTENT.length() / 10);
+        // Level 0: the deflater passes the bytes through as stored blocks.
+        Assertions.assertTrue(entries.get(scan).getCompressedSize() >= CONTENT.length());
+        Assertions.assertTrue(entries.get(photo).getCompressedSize() >= CONTENT.length());
+    }
+
+    @Test
+    void linksAndMissingFilesAreListedInsteadOfIncluded() throws IOException {
+        Assignment assignment = assignment();
+        User submitted = submit(assignment, "Dana", url(store("report.txt")));
+        User linked = submit(assignment, "Eli", "https://docs.example.com/d/report");
+        String deleted = store("lost.txt");
+        User missing = submit(assignment, "Fay", url(deleted));
+        fileStorageService.deleteFile(deleted);
+
+        Map<String, ZipEntry> entries = archive(assignment);
+
+        Assertions.assertEquals(List.of("Dana_" + submitted.getId() + ".txt", "not-included.txt"),
+                List.copyOf(entries.keySet()));
+        Assertions.assertEquals(List.of(
+                "Eli (" + linked.getId() + "): submitted a link, not a file",
+                "Fay (" + missing.getId() + "): file no longer exists"), notIncluded());
+    }
+
+    @Test
+    void unknownAssignmentsAreReportedBeforeWriting() {
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> archiveService.getEntries(-1L));
+    }
+
+    private Map<String, ZipEntry> archive(Assignment assignment) throws IOException {
+        Path zip = dir.resolve("archive.zip");
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            archiveService.write(archiveService.getEntries(assignment.getId()), out);
+        }
+        // In archive order, with the sizes the central directory records.
+        Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            file.stream().forEach(entry -> entries.put(entry.getName(), entry));
+        }
+        return entries;
+    }
+
+    private List<String> notIncluded() throws IOException {
+        try (ZipFile file = new ZipFile(dir.resolve("archive.zip").toFile());
+             InputStream in = file.getInputStream(file.getEntry("not-included.txt"))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    private Assignment assignment() {
+        User teacher = user("Teacher", UserRole.TEACHER);
+        Classroom classroom = classroomRepository.save(Classroom.builder()
+                .name("Biology")
+                .code(UUID.randomUUID().toString().substring(0, 8))
+                .teacher(teacher)
+                .build());
+        return assignmentRepository.save(Assignment.builder()
+                .classroom(classroom)
+                .title("Cells")
+                .maxMarks(10)
+                .closed(false)
+                .createdBy(teacher)
+                .build());
+    }
+
+    private User submit(Assignment assignment, String studentName, String contentUrl) {
+        User student = user(studentName, UserRole.STUDENT);
+        submissionRepository.save(AssignmentSubmission.builder()
+                .assignment(assignment)
+                .student(student)
+                .contentUrl(contentUrl)
+                .build());
+        return student;
+    }
+
+    private String store(String name) {
+        return fileStorageService.storeStream(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), name);
+    }
+
+    private static String url(String filename) {
+        return "http://localhost:8080" + FileStorageService.toDownloadPath(filename);
+    }
+
+    private User user(String name, UserRole role) {
+        return userRepository.save(User.builder()
+                .name(name)
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(role)
+                .build());
+    }
+}
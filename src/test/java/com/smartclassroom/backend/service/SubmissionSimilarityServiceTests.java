@@ -0,0 +1,223 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.assignment.SimilarSubmissionPairDTO;
+import com.smartclassroom.backend.event.FileDeletedEvent;
+import com.smartclassroom.backend.model.AssignmentSubmission;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.AssignmentSubmissionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * MinHash estimates and the LSH candidate search over generated documents: near-duplicates made by
+ * editing a few words of an essay, and essays drawn independently from the same vocabulary.
+ */
+@ExtendWith(MockitoExtension.class)
+public class SubmissionSimilarityServiceTests {
+
+    private static final Long ASSIGNMENT_ID = 7L;
+    private static final int WORDS = 1_000;
+
+    @Mock
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private SubmissionSimilarityService similarityService;
+    private final Map<String, byte[]> files = new HashMap<>();
+    private final Map<String, MediaType> types = new HashMap<>();
+    private final List<AssignmentSubmission> submissions = new ArrayList<>();
+    private final Random random = new Random(42);
+    private final String[] vocabulary = vocabulary(5_000);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        similarityService = new SubmissionSimilarityService(submissionRepository, fileStorageService);
+        Mockito.lenient().when(submissionRepository.findByAssignmentId(ASSIGNMENT_ID)).thenReturn(submissions);
+        Mockito.lenient().when(fileStorageService.describe(Mockito.anyString())).thenAnswer(inv -> {
+            String filename = inv.getArgument(0);
+            return new FileStorageService.StoredFile(filename, null, files.get(filename).length, Instant.EPOCH,
+                    "\"" + filename + "\"", types.get(filename));
+        });
+        Mockito.lenient().when(fileStorageService.openStream(Mockito.any())).thenAnswer(inv ->
+                new ByteArrayInputStream(files.get(inv.<FileStorageService.StoredFile>getArgument(0).filename())));
+    }
+
+    @AfterEach
+    void tearDown() {
+        similarityService.shutdown();
+    }
+
+    @Test
+    void estimatesTrackTheJaccardSimilarity() throws IOException {
+        List<String> essay = essay();
+        for (int edits : new int[]{5, 20, 60}) {
+            List<String> edited = edit(essay, edits);
+            double jaccard = jaccard(shingles(essay), shingles(edited));
+            double estimate = MinHash.similarity(signature(essay), signature(edited));
+
+            Assertions.assertEquals(jaccard, estimate, 0.12, edits + " edits");
+        }
+    }
+
+    @Test
+    void nearDuplicatesAreAllFound() {
+        int pairs = 25;
+        for (int i = 0; i < pairs; i++) {
+            List<String> essay = essay();
+            submit(2 * i, essay);
+            submit(2 * i + 1, edit(essay, 10));
+        }
+
+        List<SimilarSubmissionPairDTO> similar = similarityService.findSimilarSubmissions(ASSIGNMENT_ID, 0.7);
+
+        Set<Long> found = new HashSet<>();
+        for (SimilarSubmissionPairDTO pair : similar) {
+            Assertions.assertEquals(pair.getFirstSubmissionId() / 2, pair.getSecondSubmissionId() / 2, pair.toString());
+            found.add(pair.getFirstSubmissionId() / 2);
+        }
+        Assertions.assertEquals(pairs, found.size(), "every near-duplicate pair must be reported");
+    }
+
+    @Test
+    void unrelatedEssaysAreNotReported() {
+        for (int i = 0; i < 50; i++) {
+            submit(i, essay());
+        }
+
+        Assertions.assertEquals(List.of(), similarityService.findSimilarSubmissions(ASSIGNMENT_ID, 0.3));
+    }
+
+    @Test
+    void onlyTextLikeFilesAreFingerprinted() throws IOException {
+        List<String> essay = essay();
+        submit(0, essay);
+        AssignmentSubmission pdf = submit(1, essay);
+        types.put(filename(pdf), MediaType.APPLICATION_PDF);
+
+        Assertions.assertEquals(List.of(), similarityService.findSimilarSubmissions(ASSIGNMENT_ID, 0.8));
+
+        Mockito.verify(fileStorageService, Mockito.times(1)).openStream(Mockito.any());
+    }
+
+    @Test
+    void signaturesOfDeletedFilesAreDropped() throws IOException {
+        List<String> essay = essay();
+        AssignmentSubmission first = submit(0, essay);
+        submit(1, essay);
+        similarityService.findSimilarSubmissions(ASSIGNMENT_ID, 0.8);
+        similarityService.findSimilarSubmissions(ASSIGNMENT_ID, 0.8);
+        Mockito.verify(fileStorageService, Mockito.times(2)).openStream(Mockito.any());
+
+        similarityService.onFileDeleted(new FileDeletedEvent(filename(first)));
+        similarityService.findSimilarSubmissions(ASSIGNMENT_ID, 0.8);
+
+        // Only the deleted file had to be read again.
+        Mockito.verify(fileStorageService, Mockito.times(3)).openStream(Mockito.any());
+    }
+
+    @Test
+    void slotsOfRemovedSignaturesAreReused() {
+        MinHashSignatureStore store = new MinHashSignatureStore(4);
+        store.put("a", new int[]{1, 2, 3, 4});
+        store.put("b", new int[]{5, 6, 7, 8});
+
+        Assertions.assertTrue(store.remove("a"));
+        Assertions.assertFalse(store.remove("a"));
+        store.put("c", new int[]{9, 10, 11, 12});
+
+        Assertions.assertNull(store.get("a"));
+        Assertions.assertArrayEquals(new int[]{5, 6, 7, 8}, store.get("b"));
+        Assertions.assertArrayEquals(new int[]{9, 10, 11, 12}, store.get("c"));
+        Assertions.assertEquals(2, store.size());
+    }
+
+    private AssignmentSubmission submit(long id, List<String> words) {
+        User student = User.builder().id(100 + id).name("Student " + id).role(UserRole.STUDENT).build();
+        String filename = "essay-" + id + ".txt";
+        files.put(filename, String.join(" ", words).getBytes(StandardCharsets.UTF_8));
+        types.put(filename, MediaType.TEXT_PLAIN);
+        AssignmentSubmission submission = AssignmentSubmission.builder()
+                .id(id)
+                .student(student)
+                .contentUrl("http://localhost:8080" + FileStorageService.toDownloadPath(filename))
+                .build();
+        submissions.add(submission);
+        return submission;
+    }
+
+    private static String filename(AssignmentSubmission submission) {
+        return FileStorageService.toStoredFilename(submission.getContentUrl());
+    }
+
+    private List<String> essay() {
+        List<String> words = new ArrayList<>(WORDS);
+        for (int i = 0; i < WORDS; i++) {
+            words.add(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return words;
+    }
+
+    // Replaces words at random positions, as a student disguising a copy would.
+    private List<String> edit(List<String> essay, int edits) {
+        List<String> edited = new ArrayList<>(essay);
+        for (int i = 0; i < edits; i++) {
+            edited.set(random.nextInt(edited.size()), vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return edited;
+    }
+
+    private String[] vocabulary(int size) {
+        Random words = new Random(7);
+        String[] vocabulary = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 3 + words.nextInt(6); word.length() < length; ) {
+                word.append((char) ('a' + words.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+
+    private static int[] signature(List<String> words) throws IOException {
+        return MinHash.signature(new ByteArrayInputStream(String.join(" ", words).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Set<List<String>> shingles(List<String> words) {
+        Set<List<String>> shingles = new HashSet<>();
+        for (int i = 0; i + MinHash.SHINGLE_SIZE <= words.size(); i++) {
+            shingles.add(List.copyOf(words.subList(i, i + MinHash.SHINGLE_SIZE)));
+        }
+        return shingles;
+    }
+
+    private static double jaccard(Set<List<String>> a, Set<List<String>> b) {
+        Set<List<String>> union = new HashSet<>(a);
+        union.addAll(b);
+        Set<List<String>> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        return (double) intersection.size() / union.size();
+    }
+}
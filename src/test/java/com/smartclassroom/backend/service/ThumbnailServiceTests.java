@@ -0,0 +1,164 @@
+package com.smartclassroom.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thumbnails of real image files in a temporary directory. Generations are counted by watching the
+ * variant directory for the temporary files each one writes before moving it into place.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ThumbnailServiceTests {
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private ThumbnailService thumbnailService;
+    private Path variants;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        variants = Files.createDirectories(dir.resolve("variants"));
+        Mockito.lenient().when(fileStorageService.variantPath(Mockito.anyString(), Mockito.anyString()))
+                .thenAnswer(inv -> variants.resolve(inv.getArgument(0) + "~" + inv.getArgument(1)));
+        thumbnailService = new ThumbnailService(fileStorageService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void concurrentFirstRequestsGenerateTheThumbnailOnce() throws Exception {
+        FileStorageService.StoredFile photo = image("photo.jpg", "jpg", MediaType.IMAGE_JPEG, 2_400, 1_600);
+        int threads = 16;
+        ExecutorService requests = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            variants.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            List<Future<ThumbnailService.Thumbnail>> thumbnails = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                thumbnails.add(requests.submit(() -> {
+                    start.await();
+                    return thumbnailService.getThumbnail(photo, 256);
+                }));
+            }
+            start.countDown();
+
+            Path generated = null;
+            for (Future<ThumbnailService.Thumbnail> thumbnail : thumbnails) {
+                ThumbnailService.Thumbnail result = thumbnail.get(30, TimeUnit.SECONDS);
+                Assertions.assertNotNull(result);
+                Assertions.assertEquals(MediaType.IMAGE_JPEG, result.contentType());
+                generated = result.path();
+            }
+            BufferedImage scaled = ImageIO.read(generated.toFile());
+            Assertions.assertEquals(256, scaled.getWidth());
+            Assertions.assertEquals(171, scaled.getHeight());
+            Assertions.assertEquals(1, generations(watcher));
+        } finally {
+            requests.shutdown();
+        }
+    }
+
+    @Test
+    void existingThumbnailsAreNotRegenerated() throws Exception {
+        FileStorageService.StoredFile logo = image("logo.png", "png", MediaType.IMAGE_PNG, 300, 300);
+        Path first = thumbnailService.getThumbnail(logo, 64).path();
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            variants.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            Assertions.assertEquals(first, thumbnailService.getThumbnail(logo, 64).path());
+            Assertions.assertEquals(0, generations(watcher));
+        }
+        Assertions.assertEquals(MediaType.IMAGE_PNG, thumbnailService.getThumbnail(logo, 64).contentType());
+    }
+
+    @Test
+    void filesThatAreNotScalableImagesHaveNoThumbnail() throws IOException {
+        Path notes = Files.writeString(dir.resolve("notes.txt"), "Lecture notes");
+        Path svg = Files.writeString(dir.resolve("logo.svg"), "<svg xmlns=\"http://www.w3.org/2000/svg\"/>");
+        Path corrupt = Files.writeString(dir.resolve("broken.png"), "not really a png");
+
+        Assertions.assertNull(thumbnailService.getThumbnail(stored(notes, MediaType.TEXT_PLAIN), 64));
+        Assertions.assertNull(thumbnailService.getThumbnail(stored(svg, MediaType.valueOf("image/svg+xml")), 64));
+        Assertions.assertNull(thumbnailService.getThumbnail(stored(corrupt, MediaType.IMAGE_PNG), 64));
+        Assertions.assertNull(thumbnailService.getThumbnail(new FileStorageService.StoredFile("remote.png", null, 10,
+                Instant.EPOCH, "\"remote\"", MediaType.IMAGE_PNG), 64));
+
+        try (var leftovers = Files.list(variants)) {
+            Assertions.assertEquals(0, leftovers.count(), "a failed generation must not leave files behind");
+        }
+    }
+
+    // Each generation writes one ".part" file before moving it onto the thumbnail.
+    private int generations(WatchService watcher) throws InterruptedException {
+        int parts = 0;
+        for (WatchKey key = watcher.poll(500, TimeUnit.MILLISECONDS); key != null;
+             key = watcher.poll(500, TimeUnit.MILLISECONDS)) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Assertions.assertNotEquals(StandardWatchEventKinds.OVERFLOW, event.kind());
+                if (event.context().toString().endsWith(".part")) {
+                    parts++;
+                }
+            }
+            key.reset();
+        }
+        return parts;
+    }
+
+    private FileStorageService.StoredFile image(String filename, String format, MediaType contentType,
+                                                int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.ORANGE);
+            graphics.fillRect(0, 0, width / 2, height);
+            graphics.setColor(Color.BLUE);
+            graphics.fillRect(width / 2, 0, width - width / 2, height);
+        } finally {
+            graphics.dispose();
+        }
+        Path path = dir.resolve(filename);
+        Assertions.assertTrue(ImageIO.write(image, format, path.toFile()));
+        return stored(path, contentType);
+    }
+
+    private static FileStorageService.StoredFile stored(Path path, MediaType contentType) throws IOException {
+        return new FileStorageService.StoredFile(path.getFileName().toString(), path, Files.size(path),
+                Files.getLastModifiedTime(path).toInstant(), "\"" + path.getFileName() + "\"", contentType);
+    }
+}
@@ -0,0 +1,171 @@
+package com.smartclassroom.backend.service;
+
+import com.smartclassroom.backend.dto.storage.GcReportDTO;
+import com.smartclassroom.backend.model.User;
+import com.smartclassroom.backend.model.UserRole;
+import com.smartclassroom.backend.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Runs the collector over a real upload directory and an in-memory database, with uploads aged past
+ * the grace period by setting their modification times.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:upload-gc;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.cache.region_prefix=upload-gc",
+        "file.gc.grace-period=24h",
+        "file.gc.max-deletes-per-second=0"
+})
+public class UploadGarbageCollectorTests {
+
+    private static Path uploadDir;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) throws IOException {
+        uploadDir = Files.createTempDirectory("upload-gc-tests");
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Autowired
+    private UploadGarbageCollector uploadGarbageCollector;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoSpyBean
+    private FileCleanupService fileCleanupService;
+
+    @BeforeEach
+    void emptyUploadDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(uploadDir)) {
+            for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void onlyUnreferencedUploadsOlderThanTheGracePeriodAreDeleted() throws IOException {
+        String orphan = store("orphan.txt", Duration.ofDays(2));
+        String recent = store("recent.txt", Duration.ofHours(23));
+        String referenced = store("referenced.txt", Duration.ofDays(2));
+        String queried = store("queried.txt", Duration.ofDays(2));
+        user("http://localhost:8080" + FileStorageService.toDownloadPath(referenced));
+        user(FileStorageService.toDownloadPath(queried) + "?download=1");
+
+        GcReportDTO report = uploadGarbageCollector.collect(false);
+
+        Assertions.assertEquals(List.of(orphan), report.getSampleOrphans());
+        Assertions.assertEquals(1L, report.getDeletedFiles());
+        Assertions.assertFalse(Files.exists(fileStorageService.resolvePath(orphan)));
+        Assertions.assertTrue(Files.exists(fileStorageService.resolvePath(recent)));
+        Assertions.assertTrue(Files.exists(fileStorageService.resolvePath(referenced)));
+        Assertions.assertTrue(Files.exists(fileStorageService.resolvePath(queried)));
+    }
+
+    @Test
+    void uploadsReferencedAfterTheMarkPhaseAreKept() throws IOException {
+        String late = store("late.txt", Duration.ofDays(2));
+        String orphan = store("orphan.txt", Duration.ofDays(2));
+        Mockito.doAnswer(invocation -> {
+            Object marked = invocation.callRealMethod();
+            user(FileStorageService.toDownloadPath(late));
+            return marked;
+        }).when(fileCleanupService).referencedFiles();
+
+        GcReportDTO report = uploadGarbageCollector.collect(false);
+
+        Assertions.assertEquals(2L, report.getOrphanedFiles());
+        Assertions.assertEquals(1L, report.getDeletedFiles());
+        Assertions.assertTrue(Files.exists(fileStorageService.resolvePath(late)));
+        Assertions.assertFalse(Files.exists(fileStorageService.resolvePath(orphan)));
+    }
+
+    @Test
+    void blobsVariantsAndTemporaryFilesAreLeftAlone() throws IOException {
+        String original = store("photo.png", Duration.ofDays(2));
+        user(FileStorageService.toDownloadPath(original));
+        Path variant = aged(fileStorageService.variantPath(original, "thumb-256"), Duration.ofDays(2));
+        Path blob = aged(uploadDir.resolve("blobs").resolve("ab").resolve("ab" + "0".repeat(62)), Duration.ofDays(2));
+        Path temp = aged(fileStorageService.getTempDirectory().resolve("upload.part"), Duration.ofDays(2));
+
+        GcReportDTO report = uploadGarbageCollector.collect(false);
+
+        Assertions.assertEquals(0L, report.getOrphanedFiles());
+        Assertions.assertEquals(1L, report.getScannedFiles());
+        Assertions.assertTrue(Files.exists(variant));
+        Assertions.assertTrue(Files.exists(blob));
+        Assertions.assertTrue(Files.exists(temp));
+    }
+
+    @Test
+    void dryRunsReportWithoutDeleting() throws IOException {
+        String orphan = store("orphan.txt", Duration.ofDays(2));
+        String referenced = store("referenced.txt", Duration.ofDays(2));
+        user(FileStorageService.toDownloadPath(referenced));
+
+        GcReportDTO report = uploadGarbageCollector.collect(true);
+
+        Assertions.assertTrue(report.getDryRun());
+        Assertions.assertEquals(2L, report.getScannedFiles());
+        Assertions.assertEquals(1L, report.getOrphanedFiles());
+        Assertions.assertEquals(Files.size(fileStorageService.resolvePath(orphan)), report.getOrphanedBytes());
+        Assertions.assertEquals(List.of(orphan), report.getSampleOrphans());
+        Assertions.assertEquals(0L, report.getDeletedFiles());
+        Assertions.assertTrue(report.getLiveReferences() >= 1);
+        Assertions.assertTrue(Files.exists(fileStorageService.resolvePath(orphan)));
+    }
+
+    private String store(String name, Duration age) throws IOException {
+        String filename = fileStorageService.storeStream(
+                new ByteArrayInputStream(("Content of " + name).getBytes(StandardCharsets.UTF_8)), name);
+        aged(fileStorageService.resolvePath(filename), age);
+        return filename;
+    }
+
+    private static Path aged(Path path, Duration age) throws IOException {
+        if (!Files.exists(path)) {
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, "derived");
+        }
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(age)));
+        return path;
+    }
+
+    private void user(String profileImageUrl) {
+        userRepository.save(User.builder()
+                .name("Owner")
+                .email(UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(UserRole.STUDENT)
+                .profileImageUrl(profileImageUrl)
+                .build());
+    }
+}
@@ -0,0 +1,110 @@
+-- The schema ddl-auto=update created for the original entities, before migrations were introduced:
+-- IDENTITY keys and Hibernate's generated constraint names. Seeds MigrationTests.
+
+create table users (
+    id bigint not null auto_increment,
+    name varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    phone_number varchar(255),
+    date_of_birth date,
+    profile_image_url varchar(255),
+    role varchar(255) not null,
+    created_at datetime(6),
+    updated_at datetime(6),
+    primary key (id),
+    constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email)
+);
+
+create table classrooms (
+    id bigint not null auto_increment,
+    name varchar(255) not null,
+    description varchar(255),
+    code varchar(16) not null,
+    teacher_id bigint not null,
+    created_at datetime(6),
+    primary key (id),
+    constraint UKa6ckb1fdbmjc1mv4ee3ys2e2w unique (code),
+    constraint FK3bvb6yojxrlxn1l5a1ltccwfp foreign key (teacher_id) references users (id)
+);
+
+create table classroom_members (
+    id bigint not null auto_increment,
+    classroom_id bigint not null,
+    user_id bigint not null,
+    role_in_class varchar(255) not null,
+    joined_at datetime(6),
+    primary key (id),
+    constraint UKk2ehx8n8ehk5xpahlq0kftx4w unique (classroom_id, user_id),
+    constraint FKqtbqh9oi1tkmbq7pwg6xdi9bs foreign key (classroom_id) references classrooms (id),
+    constraint FK1ibbjfjv3iyl0vy10cwxrxgnp foreign key (user_id) references users (id)
+);
+
+create table assignments (
+    id bigint not null auto_increment,
+    classroom_id bigint not null,
+    title varchar(255) not null,
+    description text,
+    due_date datetime(6),
+    max_marks integer,
+    attachment_url text,
+    closed bit not null,
+    created_at datetime(6),
+    created_by bigint not null,
+    primary key (id),
+    constraint FKhrbo1ypfehjdfnk3q2rj4wepv foreign key (classroom_id) references classrooms (id),
+    constraint FK6fg1dpxbl8hnb1d6u1g3mg6kr foreign key (created_by) references users (id)
+);
+
+create table assignment_submissions (
+    id bigint not null auto_increment,
+    assignment_id bigint not null,
+    student_id bigint not null,
+    content_url text,
+    submitted_at datetime(6),
+    marks integer,
+    feedback text,
+    primary key (id),
+    constraint UK2ysqyg8o1yhk1dj3bqq5e31xk unique (assignment_id, student_id),
+    constraint FK8d6h3xsqwdm9v1exyjr5ceuxq foreign key (assignment_id) references assignments (id),
+    constraint FKt2yxhgdbyc7ffpq4kmjpkw1gh foreign key (student_id) references users (id)
+);
+
+create table announcements (
+    id bigint not null auto_increment,
+    classroom_id bigint not null,
+    author_id bigint not null,
+    title varchar(255) not null,
+    content text not null,
+    attachment_url text,
+    created_at datetime(6),
+    primary key (id),
+    constraint FKe0mdbf1cj8dcq3yo25ar6bhho foreign key (classroom_id) references classrooms (id),
+    constraint FK3m3jdh7o3v4l7yxdhd2mmylff foreign key (author_id) references users (id)
+);
+
+create table chat_messages (
+    id bigint not null auto_increment,
+    classroom_id bigint not null,
+    sender_id bigint not null,
+    content text not null,
+    created_at datetime(6),
+    primary key (id),
+    constraint FKeoq5dl1f4w7k2xcxi9dwcr9bb foreign key (classroom_id) references classrooms (id),
+    constraint FKgiqeap8ays4lf684x7m0r2729 foreign key (sender_id) references users (id)
+);
+
+create table audit_logs (
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    action varchar(255) not null,
+    resource_type varchar(255) not null,
+    resource_id varchar(255) not null,
+    reason text,
+    created_at datetime(6),
+    primary key (id),
+    constraint FKjs4iimve3y0xssbtve5ysyef0 foreign key (user_id) references users (id)
+);
+
+insert into users (name, email, password, role) values ('Existing teacher', 'teacher@example.com', 'secret', 'TEACHER');
+insert into classrooms (name, code, teacher_id) values ('Existing classroom', 'EXISTING', 1);